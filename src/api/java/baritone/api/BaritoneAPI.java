@@ -18,6 +18,7 @@
 package baritone.api;
 
 import baritone.api.utils.SettingsUtil;
+import net.minecraft.client.Minecraft;
 
 /**
  * Exposes the {@link IBaritoneProvider} instance and the {@link Settings} instance for API usage.
@@ -27,25 +28,38 @@ import baritone.api.utils.SettingsUtil;
  */
 public final class BaritoneAPI {
 
-    private static final IBaritoneProvider provider;
     private static final Settings settings;
 
     static {
         settings = new Settings();
-        SettingsUtil.readAndApply(settings, SettingsUtil.SETTINGS_DEFAULT_NAME);
-
-        try {
-            provider = (IBaritoneProvider) Class.forName("baritone.BaritoneProvider").newInstance();
-        } catch (ReflectiveOperationException ex) {
-            throw new RuntimeException(ex);
+        // there's no game directory to read the settings from when running outside of the client, e.g. benchmarks
+        if (Minecraft.getInstance() != null) {
+            SettingsUtil.readAndApply(settings, SettingsUtil.SETTINGS_DEFAULT_NAME);
         }
     }
 
     public static IBaritoneProvider getProvider() {
-        return BaritoneAPI.provider;
+        return ProviderHolder.PROVIDER;
     }
 
     public static Settings getSettings() {
         return BaritoneAPI.settings;
     }
+
+    /**
+     * The provider creates the primary {@link IBaritone}, which needs a running client, so it's only created once
+     * something asks for it rather than whenever the settings are first used.
+     */
+    private static final class ProviderHolder {
+
+        private static final IBaritoneProvider PROVIDER;
+
+        static {
+            try {
+                PROVIDER = (IBaritoneProvider) Class.forName("baritone.BaritoneProvider").newInstance();
+            } catch (ReflectiveOperationException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+    }
 }
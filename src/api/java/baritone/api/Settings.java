@@ -532,6 +532,69 @@ public final class Settings {
      */
     public final Setting<Float> pathingMapLoadFactor = new Setting<>(0.75f);
 
+    /**
+     * Keep pathing nodes in primitive parallel arrays instead of one object per position in a Long2ObjectOpenHashMap
+     * <p>
+     * Allocates far less during long searches, so there's less garbage collection stutter. Uses the same default size
+     * and load factor as the map.
+     */
+    public final Setting<Boolean> pathingPrimitiveNodeStore = new Setting<>(false);
+
+    /**
+     * The open set A* uses. One of "binary" (binary heap), "quaternary" (4-ary heap) or "bucket" (bucket queue on
+     * quantized cost)
+     * <p>
+     * Only applies to the object based search, {@link #pathingPrimitiveNodeStore} always uses a binary heap
+     */
+    public final Setting<String> pathingOpenSet = new Setting<>("binary");
+
+    /**
+     * For far away goals, first plan a route over a chunk level graph of the cache (walkable openings between chunks
+     * and how they connect inside each chunk), then only let the block level search into chunks along that route.
+     * <p>
+     * The graph is kept up to date as chunks are packed, so this needs {@link #chunkCaching} to know about anything
+     * outside of render distance.
+     */
+    public final Setting<Boolean> pathingHierarchical = new Setting<>(false);
+
+    /**
+     * Goals closer than this many blocks (by heuristic) are searched without {@link #pathingHierarchical}
+     */
+    public final Setting<Integer> pathingHierarchicalMinDistance = new Setting<>(256);
+
+    /**
+     * Most chunk entrances the {@link #pathingHierarchical} planner expands before giving up and searching normally
+     */
+    public final Setting<Integer> pathingHierarchicalMaxNodes = new Setting<>(50000);
+
+    /**
+     * How many chunks either side of the planned route the block level search may still use
+     */
+    public final Setting<Integer> pathingCorridorRadius = new Setting<>(1);
+
+    /**
+     * Keep the movement costs calculated by each search, and only recalculate the ones near blocks that changed since.
+     * Replans caused by our own block placing and breaking then mostly reuse the previous search's work.
+     */
+    public final Setting<Boolean> incrementalPathing = new Setting<>(false);
+
+    /**
+     * Positions whose movement costs {@link #incrementalPathing} keeps before starting over. About 350 bytes each
+     */
+    public final Setting<Integer> incrementalPathingMaxCachedPositions = new Setting<>(100000);
+
+    /**
+     * Before each search, extract whether every block in the loaded chunks around the start can be walked on, walked
+     * through or passed freely, so that the search reads those from a flat array instead of the chunks. Chunks that
+     * haven't changed are kept between searches.
+     */
+    public final Setting<Boolean> pathingSnapshot = new Setting<>(false);
+
+    /**
+     * How many chunks either side of the start {@link #pathingSnapshot} covers. About 100KB per chunk in the overworld
+     */
+    public final Setting<Integer> pathingSnapshotRadius = new Setting<>(6);
+
     /**
      * How far are you allowed to fall onto solid ground (without a water bucket)?
      * 3 won't deal any damage. But if you just want to get down the mountain quickly and you have
@@ -564,7 +627,7 @@ public final class Settings {
     public final Setting<Boolean> simplifyUnloadedYCoord = new Setting<>(true);
 
     /**
-     * Whenever a block changes, repack the whole chunk that it's in
+     * Whenever a block changes, update the cached copy of the chunk that it's in
      */
     public final Setting<Boolean> repackOnAnyBlockChange = new Setting<>(true);
 
@@ -629,7 +692,7 @@ public final class Settings {
     public final Setting<Boolean> chunkCaching = new Setting<>(true);
 
     /**
-     * On save, delete from RAM any cached regions that are more than 1024 blocks away from the player
+     * Delete from RAM the least recently used cached regions once they take up more than {@link #cachedRegionsMemoryBudgetMB}
      * <p>
      * Temporarily disabled
      * <p>
@@ -640,12 +703,31 @@ public final class Settings {
     public final Setting<Boolean> pruneRegionsFromRAM = new Setting<>(true);
 
     /**
-     * The chunk packer queue can never grow to larger than this, if it does, the oldest chunks are discarded
+     * How much memory, in megabytes, the cached regions of a world may take up before the least recently used ones are
+     * saved and removed from RAM. Only applies if {@link #pruneRegionsFromRAM} is on
+     */
+    public final Setting<Integer> cachedRegionsMemoryBudgetMB = new Setting<>(256);
+
+    /**
+     * Load cached regions from disk in the background before pathing needs them, along the current path, towards the
+     * goal and in the direction the player is moving
+     */
+    public final Setting<Boolean> prefetchCachedRegions = new Setting<>(true);
+
+    /**
+     * The chunk packer queue can never grow to larger than this, if it does, the chunks farthest from the player and the current path are discarded
      * <p>
-     * The newest chunks are kept, so that if you're moving in a straight line quickly then stop, your immediate render distance is still included
+     * The nearest chunks are kept, so that if you're moving in a straight line quickly then stop, your immediate render distance is still included
      */
     public final Setting<Integer> chunkPackerQueueMaxSize = new Setting<>(2000);
 
+    /**
+     * How many threads pack chunks into the cache at once. Chunks closest to the player and to the current path are packed first.
+     * <p>
+     * Takes effect the next time a world is loaded
+     */
+    public final Setting<Integer> chunkPackerThreads = new Setting<>(2);
+
     /**
      * Fill in blocks behind you
      */
@@ -907,6 +989,17 @@ public final class Settings {
      */
     public final Setting<Integer> mineGoalUpdateInterval = new Setting<>(5);
 
+    /**
+     * Blocks to remember the locations of in the cache, on top of the ones that always are (chests, portals, beds, etc).
+     * <p>
+     * Mining a block on this list is answered from the cache instead of by scanning the loaded chunks. Chunks cached
+     * before a block was added only learn about it once they're loaded again, the loaded ones are repacked right away.
+     * <p>
+     * Every location costs memory for as long as its chunk is in RAM, roughly 36 bytes each plus its entry in the
+     * chunk's lookup of special blocks. Common blocks like stone or deepslate can have tens of thousands per chunk.
+     */
+    public final Setting<List<Block>> additionalTrackedBlocks = new Setting<>(new ArrayList<>());
+
     /**
      * After finding this many instances of the target block in the cache, it will stop expanding outward the chunk search.
      */
@@ -988,6 +1081,14 @@ public final class Settings {
      */
     public final Setting<Boolean> extendCacheOnThreshold = new Setting<>(false);
 
+    /**
+     * Answer world scans (mine, farm, get to block) from an in-memory index of the loaded chunks instead of rescanning
+     * them every time. Each chunk is scanned once per filter and then kept up to date from block changes.
+     * <p>
+     * Costs memory proportional to how many matching blocks are loaded, so leave it off when mining very common blocks
+     */
+    public final Setting<Boolean> useLoadedBlockIndex = new Setting<>(false);
+
     /**
      * Don't consider the next layer in builder until the current one is done
      */
@@ -65,7 +65,7 @@ public interface ICachedWorld {
      * @param centerX             The x block coordinate center of the search
      * @param centerZ             The z block coordinate center of the search
      * @param maxRegionDistanceSq The maximum region distance, squared
-     * @return The locations found that match the special block
+     * @return The locations found that match the special block, at most {@code maximum} of them, nearest to the center first
      */
     ArrayList<BlockPos> getLocationsOf(String block, int maximum, int centerX, int centerZ, int maxRegionDistanceSq);
 
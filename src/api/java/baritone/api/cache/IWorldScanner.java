@@ -20,6 +20,7 @@ package baritone.api.cache;
 import baritone.api.utils.BlockOptionalMetaLookup;
 import baritone.api.utils.IPlayerContext;
 import java.util.List;
+import java.util.function.Consumer;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.block.Block;
@@ -43,6 +44,25 @@ public interface IWorldScanner {
      */
     List<BlockPos> scanChunkRadius(IPlayerContext ctx, BlockOptionalMetaLookup filter, int max, int yLevelThreshold, int maxSearchRadius);
 
+    /**
+     * Scans the world, up to the specified max chunk radius, for the specified blocks, reporting what has been found so
+     * far as the scan goes on, so that the caller can start acting on the nearest results before it finishes.
+     *
+     * @param ctx             The {@link IPlayerContext} containing player and world info that the scan is based upon
+     * @param filter          The blocks to scan for
+     * @param max             The maximum number of blocks to scan before cutoff
+     * @param yLevelThreshold If a block is found within this Y level, the current result will be returned, if the value
+     *                        is negative, then this condition doesn't apply.
+     * @param maxSearchRadius The maximum chunk search radius
+     * @param onProgress      Called with the matching block positions found so far, whenever there are new ones
+     * @return The matching block positions
+     */
+    default List<BlockPos> scanChunkRadius(IPlayerContext ctx, BlockOptionalMetaLookup filter, int max, int yLevelThreshold, int maxSearchRadius, Consumer<List<BlockPos>> onProgress) {
+        List<BlockPos> found = scanChunkRadius(ctx, filter, max, yLevelThreshold, maxSearchRadius);
+        onProgress.accept(found);
+        return found;
+    }
+
     default List<BlockPos> scanChunkRadius(IPlayerContext ctx, List<Block> filter, int max, int yLevelThreshold, int maxSearchRadius) {
         return scanChunkRadius(ctx, new BlockOptionalMetaLookup(filter.toArray(new Block[0])), max, yLevelThreshold, maxSearchRadius);
     }
@@ -22,6 +22,7 @@ import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.block.state.BlockState;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -37,6 +38,14 @@ public final class BlockChangeEvent {
         this.blocks = blocks;
     }
 
+    /**
+     * @param pos   The position of the only block that changed
+     * @param state The state it changed to
+     */
+    public BlockChangeEvent(BlockPos pos, BlockState state) {
+        this(new ChunkPos(pos), Collections.singletonList(new Pair<>(pos.immutable(), state)));
+    }
+
     public ChunkPos getChunkPos() {
         return this.chunk;
     }
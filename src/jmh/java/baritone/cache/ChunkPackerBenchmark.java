@@ -0,0 +1,108 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import baritone.pathing.movement.MovementHelper;
+import baritone.utils.SyntheticTerrain;
+import baritone.utils.pathing.PathingBlockType;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.util.BitStorage;
+import net.minecraft.util.SimpleBitStorage;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.HashMapPalette;
+import net.minecraft.world.level.chunk.Palette;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packs the sections of one chunk of {@link SyntheticTerrain}, by classifying each palette entry once like
+ * {@link ChunkPacker} does, and by classifying every block like it used to. Results are in chunks per second.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChunkPackerBenchmark {
+
+    @Param({"FLAT", "CAVES", "NETHER", "OCEAN"})
+    public String terrain;
+
+    private int minY;
+    private Palette<BlockState>[] palettes;
+    private BitStorage[] storages;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+        SyntheticTerrain generator = SyntheticTerrain.valueOf(terrain);
+        minY = generator.minY;
+        int sections = generator.height / 16;
+        palettes = new Palette[sections];
+        storages = new BitStorage[sections];
+        for (int y0 = 0; y0 < sections; y0++) {
+            // 8 bits is plenty for synthetic terrain, so the palette never has to resize
+            palettes[y0] = HashMapPalette.create(8, Block.BLOCK_STATE_REGISTRY, (bits, state) -> {
+                throw new IllegalStateException();
+            }, Collections.emptyList());
+            storages[y0] = new SimpleBitStorage(8, 4096);
+            for (int i = 0; i < 4096; i++) {
+                BlockState state = generator.generate(i & 15, minY + (y0 << 4 | i >> 8), (i >> 4) & 15);
+                storages[y0].set(i, palettes[y0].idFor(state));
+            }
+        }
+    }
+
+    @Benchmark
+    public void palette(Blackhole bh) {
+        Map<String, List<BlockPos>> specialBlocks = new HashMap<>();
+        for (int y0 = 0; y0 < palettes.length; y0++) {
+            bh.consume(ChunkPacker.packSection(palettes[y0], storages[y0], y0 << 4, (state, x, y, z) -> PathingBlockType.WATER, specialBlocks, minY));
+        }
+        bh.consume(specialBlocks);
+    }
+
+    @Benchmark
+    public void perBlock(Blackhole bh) {
+        Map<String, List<BlockPos>> specialBlocks = new HashMap<>();
+        for (int y0 = 0; y0 < palettes.length; y0++) {
+            long[] section = new long[CachedChunk.SECTION_LONGS];
+            for (int i = 0; i < 4096; i++) {
+                BlockState state = palettes[y0].valueFor(storages[y0].get(i));
+                PathingBlockType type = MovementHelper.isWater(state) && !MovementHelper.possiblyFlowing(state) ? PathingBlockType.WATER : ChunkPacker.getPathingBlockType(state);
+                boolean[] bits = type.getBits();
+                section[i >> 5] |= (long) ((bits[0] ? 1 : 0) | (bits[1] ? 2 : 0)) << ((i & 31) << 1);
+                Block block = state.getBlock();
+                if (CachedChunk.isTracked(block)) {
+                    specialBlocks.computeIfAbsent(block.toString(), b -> new ArrayList<>()).add(new BlockPos(i & 15, (y0 << 4 | i >> 8) + minY, (i >> 4) & 15));
+                }
+            }
+            bh.consume(section);
+        }
+        bh.consume(specialBlocks);
+    }
+}
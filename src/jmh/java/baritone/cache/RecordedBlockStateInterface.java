@@ -0,0 +1,106 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import baritone.utils.BlockStateInterface;
+import baritone.utils.pathing.BetterWorldBorder;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.tags.BlockTags;
+import net.minecraft.util.valueproviders.UniformInt;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.border.WorldBorder;
+import net.minecraft.world.level.dimension.BuiltinDimensionTypes;
+import net.minecraft.world.level.dimension.DimensionType;
+
+import java.util.OptionalLong;
+
+/**
+ * Paths through a directory of recorded {@code .bcr} cache regions, the same way the pathfinder falls back to the cache
+ * for unloaded chunks in game. Regions are loaded up front with {@link #preload(int, int, int)} so that file IO isn't
+ * part of what's measured.
+ */
+public final class RecordedBlockStateInterface extends BlockStateInterface {
+
+    private static final BlockState AIR = Blocks.AIR.defaultBlockState();
+
+    private final String directory;
+    private final DimensionType dimension;
+    private final Long2ObjectOpenHashMap<CachedRegion> regions = new Long2ObjectOpenHashMap<>();
+
+    private CachedRegion prevCached;
+
+    public RecordedBlockStateInterface(String directory, int minY, int height) {
+        super(minY, height, new BetterWorldBorder(new WorldBorder()));
+        this.directory = directory;
+        this.dimension = new DimensionType(OptionalLong.empty(), true, false, false, true, 1.0, true, false, minY, height, height, BlockTags.INFINIBURN_OVERWORLD, BuiltinDimensionTypes.OVERWORLD_EFFECTS, 0.0F, new DimensionType.MonsterSettings(false, true, UniformInt.of(0, 7), 0));
+    }
+
+    /**
+     * Loads every region within radius regions of the specified one
+     */
+    public void preload(int regionX, int regionZ, int radius) {
+        for (int x = regionX - radius; x <= regionX + radius; x++) {
+            for (int z = regionZ - radius; z <= regionZ + radius; z++) {
+                CachedRegion region = new CachedRegion(x, z, dimension);
+                region.load(directory);
+                regions.put(getRegionID(x, z), region);
+            }
+        }
+    }
+
+    private CachedRegion getRegion(int regionX, int regionZ) {
+        CachedRegion cached = prevCached;
+        if (cached != null && cached.getX() == regionX && cached.getZ() == regionZ) {
+            return cached;
+        }
+        cached = regions.get(getRegionID(regionX, regionZ));
+        if (cached != null) {
+            prevCached = cached;
+        }
+        return cached;
+    }
+
+    @Override
+    public BlockState get0(int x, int y, int z) {
+        if (y < minY || y >= minY + height) {
+            return AIR;
+        }
+        CachedRegion region = getRegion(x >> 9, z >> 9);
+        if (region == null) {
+            return AIR;
+        }
+        BlockState type = region.getBlock(x & 511, y, z & 511);
+        return type == null ? AIR : type;
+    }
+
+    @Override
+    public boolean isLoaded(int x, int z) {
+        CachedRegion region = getRegion(x >> 9, z >> 9);
+        return region != null && region.isCached(x & 511, z & 511);
+    }
+
+    @Override
+    public boolean worldContainsLoadedChunk(int blockX, int blockZ) {
+        return isLoaded(blockX, blockZ);
+    }
+
+    private static long getRegionID(int regionX, int regionZ) {
+        return (long) regionX & 0xFFFFFFFFL | ((long) regionZ & 0xFFFFFFFFL) << 32;
+    }
+}
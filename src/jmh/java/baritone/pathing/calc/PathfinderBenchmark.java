@@ -0,0 +1,184 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc;
+
+import baritone.Baritone;
+import baritone.api.pathing.goals.Goal;
+import baritone.api.pathing.goals.GoalXZ;
+import baritone.api.utils.BetterBlockPos;
+import baritone.cache.RecordedBlockStateInterface;
+import baritone.pathing.movement.CalculationContext;
+import baritone.utils.BlockStateInterface;
+import baritone.utils.SyntheticBlockStateInterface;
+import baritone.utils.SyntheticTerrain;
+import baritone.utils.ToolSet;
+import baritone.utils.pathing.Favoring;
+import net.minecraft.SharedConstants;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.block.state.BlockState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link AStarPathFinder} without a client, over {@link SyntheticTerrain} or over recorded cache regions.
+ * <p>
+ * {@link #search(Counters)} reports searches per second along with nodes and movements considered per second,
+ * {@link #firstSegment()} reports how long it takes to come up with a segment towards a goal far outside of the loaded
+ * area. Add {@code -prof gc} for the allocation rate.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4G"})
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class PathfinderBenchmark {
+
+    /**
+     * FLAT, CAVES, NETHER, OCEAN or RECORDED
+     */
+    @Param({"FLAT", "CAVES", "NETHER", "OCEAN"})
+    public String terrain;
+
+    /**
+     * How many chunks around the origin are loaded for synthetic terrain
+     */
+    @Param("8")
+    public int radius;
+
+    /**
+     * How far away the goal is for {@link #search(Counters)}, it should be within the loaded area
+     */
+    @Param("100")
+    public int distance;
+
+    @Param("false")
+    public boolean primitiveNodeStore;
+
+    @Param("binary")
+    public String openSet;
+
+    /**
+     * For RECORDED, a directory of .bcr region files, e.g. .minecraft/baritone/&lt;server&gt;/DIM0/cache
+     */
+    @Param("")
+    public String regionDir;
+
+    /**
+     * For RECORDED, the block x and z to start from, the start y is the highest non air block
+     */
+    @Param("0")
+    public int startX;
+
+    @Param("0")
+    public int startZ;
+
+    @Param("-64")
+    public int recordedMinY;
+
+    @Param("384")
+    public int recordedHeight;
+
+    private BlockStateInterface bsi;
+    private CalculationContext context;
+    private BetterBlockPos start;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+
+        public long nodes;
+        public long movements;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+            movements = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+        // pin the settings that would otherwise come from the player or the settings file
+        Baritone.settings().considerPotionEffects.value = false;
+        Baritone.settings().chatDebug.value = false;
+        Baritone.settings().pathingPrimitiveNodeStore.value = primitiveNodeStore;
+        Baritone.settings().pathingOpenSet.value = openSet;
+        if (terrain.equals("RECORDED")) {
+            if (regionDir.isEmpty()) {
+                throw new IllegalArgumentException("RECORDED needs -p regionDir=<directory of .bcr files>");
+            }
+            RecordedBlockStateInterface recorded = new RecordedBlockStateInterface(regionDir, recordedMinY, recordedHeight);
+            recorded.preload(startX >> 9, startZ >> 9, 1);
+            bsi = recorded;
+        } else {
+            bsi = new SyntheticBlockStateInterface(SyntheticTerrain.valueOf(terrain), radius);
+        }
+        context = new CalculationContext(bsi, new BareHandToolSet());
+        start = new BetterBlockPos(startX, surface(startX, startZ), startZ);
+    }
+
+    private int surface(int x, int z) {
+        for (int y = bsi.minY + bsi.height - 1; y > bsi.minY; y--) {
+            if (!bsi.get0(x, y - 1, z).isAir()) {
+                return y;
+            }
+        }
+        return bsi.minY + bsi.height;
+    }
+
+    private AStarPathFinder finder(Goal goal) {
+        return new AStarPathFinder(start, start.x, start.y, start.z, goal, new Favoring(null, context), context);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public Object search(Counters counters) {
+        AStarPathFinder finder = finder(new GoalXZ(start.x + distance, start.z + distance / 2));
+        Object result = finder.calculate0(Baritone.settings().primaryTimeoutMS.value, Baritone.settings().failureTimeoutMS.value);
+        counters.nodes += finder.getNumNodesConsidered();
+        counters.movements += finder.getNumMovementsConsidered();
+        return result;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object firstSegment() {
+        AStarPathFinder finder = finder(new GoalXZ(start.x + 10000, start.z + 5000));
+        return finder.calculate0(Baritone.settings().primaryTimeoutMS.value, Baritone.settings().failureTimeoutMS.value);
+    }
+
+    /**
+     * Mines everything by hand, there's no player inventory to look at
+     */
+    private static final class BareHandToolSet extends ToolSet {
+
+        private BareHandToolSet() {
+            super(null);
+        }
+
+        @Override
+        public double getStrVsBlock(BlockState state) {
+            return calculateSpeedVsBlock(ItemStack.EMPTY, state);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.utils;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.world.level.ChunkPos;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chunk lookups in the pattern that movements along a chunk seam produce, resolved by the chunk map alone, by the map
+ * behind a single remembered chunk like {@link BlockStateInterface} used to do, and by the map behind a
+ * {@link NeighborhoodCache}. Results are in lookups per second.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(SeamLookupBenchmark.LOOKUPS)
+public class SeamLookupBenchmark {
+
+    /**
+     * Nodes along the seam, times every block a movement from each of them looks at
+     */
+    static final int LOOKUPS = 512 * 24;
+
+    /**
+     * How many blocks either side of the seam the path wanders, 0 walks right along it
+     */
+    @Param({"0", "3"})
+    public int wander;
+
+    private final Long2ObjectOpenHashMap<Object> map = new Long2ObjectOpenHashMap<>();
+    private final int[] xs = new int[LOOKUPS];
+    private final int[] zs = new int[LOOKUPS];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        for (int chunkX = -4; chunkX < 4; chunkX++) {
+            for (int chunkZ = -4; chunkZ < 40; chunkZ++) {
+                map.put(ChunkPos.asLong(chunkX, chunkZ), new Object());
+            }
+        }
+        int i = 0;
+        for (int node = 0; node < 512; node++) {
+            int x = wander == 0 ? 0 : node % (2 * wander + 1) - wander; // zigzag over x = 0
+            int z = node;
+            // the feet, head and floor of the eight neighbors, like the traverse, diagonal and descend costs ask for
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    if (dx == 0 && dz == 0) {
+                        continue;
+                    }
+                    for (int dy = 0; dy < 3; dy++) {
+                        xs[i] = x + dx;
+                        zs[i] = z + dz;
+                        i++;
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void mapOnly(Blackhole bh) {
+        for (int i = 0; i < LOOKUPS; i++) {
+            bh.consume(map.get(ChunkPos.asLong(xs[i] >> 4, zs[i] >> 4)));
+        }
+    }
+
+    @Benchmark
+    public void singleSlot(Blackhole bh) {
+        Object prev = null;
+        int prevX = 0;
+        int prevZ = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            int chunkX = xs[i] >> 4;
+            int chunkZ = zs[i] >> 4;
+            if (prev == null || prevX != chunkX || prevZ != chunkZ) {
+                prev = map.get(ChunkPos.asLong(chunkX, chunkZ));
+                prevX = chunkX;
+                prevZ = chunkZ;
+            }
+            bh.consume(prev);
+        }
+    }
+
+    @Benchmark
+    public void neighborhood(Blackhole bh) {
+        NeighborhoodCache<Object> cache = new NeighborhoodCache<>();
+        for (int i = 0; i < LOOKUPS; i++) {
+            int chunkX = xs[i] >> 4;
+            int chunkZ = zs[i] >> 4;
+            Object chunk = cache.get(chunkX, chunkZ);
+            if (chunk == null) {
+                chunk = map.get(ChunkPos.asLong(chunkX, chunkZ));
+                cache.put(chunkX, chunkZ, chunk);
+            }
+            bh.consume(chunk);
+        }
+    }
+}
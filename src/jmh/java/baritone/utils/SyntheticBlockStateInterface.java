@@ -0,0 +1,97 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.utils;
+
+import baritone.utils.pathing.BetterWorldBorder;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.border.WorldBorder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A square of {@link SyntheticTerrain} chunks around the origin, generated up front and stored palette-style so that
+ * lookups cost roughly what a real chunk section lookup does. Everything outside of the square is unloaded.
+ */
+public final class SyntheticBlockStateInterface extends BlockStateInterface {
+
+    private static final BlockState AIR = Blocks.AIR.defaultBlockState();
+
+    private final int radius;
+    private final int diameter;
+    private final BlockState[] palette;
+    private final short[][] chunks;
+
+    public SyntheticBlockStateInterface(SyntheticTerrain terrain, int radius) {
+        super(terrain.minY, terrain.height, new BetterWorldBorder(new WorldBorder()));
+        this.radius = radius;
+        this.diameter = radius * 2 + 1;
+        this.chunks = new short[diameter * diameter][];
+        List<BlockState> states = new ArrayList<>();
+        Object2IntOpenHashMap<BlockState> ids = new Object2IntOpenHashMap<>();
+        ids.defaultReturnValue(-1);
+        for (int chunkX = -radius; chunkX <= radius; chunkX++) {
+            for (int chunkZ = -radius; chunkZ <= radius; chunkZ++) {
+                short[] chunk = new short[height << 8];
+                for (int y = 0; y < height; y++) {
+                    for (int z = 0; z < 16; z++) {
+                        for (int x = 0; x < 16; x++) {
+                            BlockState state = terrain.generate(chunkX << 4 | x, y + minY, chunkZ << 4 | z);
+                            int id = ids.getInt(state);
+                            if (id == -1) {
+                                id = states.size();
+                                states.add(state);
+                                ids.put(state, id);
+                            }
+                            chunk[y << 8 | z << 4 | x] = (short) id;
+                        }
+                    }
+                }
+                chunks[index(chunkX, chunkZ)] = chunk;
+            }
+        }
+        this.palette = states.toArray(new BlockState[0]);
+    }
+
+    private int index(int chunkX, int chunkZ) {
+        return (chunkX + radius) * diameter + chunkZ + radius;
+    }
+
+    @Override
+    public BlockState get0(int x, int y, int z) {
+        y -= minY;
+        if (y < 0 || y >= height || !isLoaded(x, z)) {
+            return AIR;
+        }
+        return palette[chunks[index(x >> 4, z >> 4)][y << 8 | (z & 15) << 4 | (x & 15)]];
+    }
+
+    @Override
+    public boolean isLoaded(int x, int z) {
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+        return chunkX >= -radius && chunkX <= radius && chunkZ >= -radius && chunkZ <= radius;
+    }
+
+    @Override
+    public boolean worldContainsLoadedChunk(int blockX, int blockZ) {
+        return isLoaded(blockX, blockZ);
+    }
+}
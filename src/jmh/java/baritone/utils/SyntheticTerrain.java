@@ -0,0 +1,164 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.utils;
+
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+
+/**
+ * Deterministic generated terrain for the benchmarks, so that the same commit always paths through the same blocks
+ */
+public enum SyntheticTerrain {
+
+    /**
+     * Superflat-ish grass plains with the occasional tree trunk, the easiest case for the pathfinder
+     */
+    FLAT(-64, 384) {
+        @Override
+        public BlockState generate(int x, int y, int z) {
+            if (y < 60) {
+                return STONE;
+            }
+            if (y < 63) {
+                return DIRT;
+            }
+            if (y == 63) {
+                return GRASS;
+            }
+            if (y < 68 && hash(x, 0, z) % 97 == 0) {
+                return LOG;
+            }
+            return AIR;
+        }
+    },
+
+    /**
+     * Rolling hills over stone riddled with noise caves, so there's lots of mining, ascending and descending
+     */
+    CAVES(-64, 384) {
+        @Override
+        public BlockState generate(int x, int y, int z) {
+            int surface = 64 + (int) (noise(x, 0, z, 32) * 24);
+            if (y == -64) {
+                return BEDROCK;
+            }
+            if (y > surface) {
+                return AIR;
+            }
+            if (y < surface - 4 && noise(x, y, z, 12) > 0.62) {
+                return y < -50 ? LAVA : AIR;
+            }
+            if (y == surface) {
+                return GRASS;
+            }
+            if (y > surface - 4) {
+                return DIRT;
+            }
+            return y < 0 ? DEEPSLATE : STONE;
+        }
+    },
+
+    /**
+     * Netherrack with large caverns over a lava sea, under a bedrock ceiling
+     */
+    NETHER(0, 256) {
+        @Override
+        public BlockState generate(int x, int y, int z) {
+            if (y == 0 || y >= 127) {
+                return BEDROCK;
+            }
+            if (noise(x, y, z, 24) > 0.55) {
+                return y <= 31 ? LAVA : AIR;
+            }
+            if (y > 31 && y < 100 && noise(x, y * 2, z, 16) > 0.5) {
+                return AIR;
+            }
+            return y > 31 && hash(x, y, z) % 41 == 0 ? SOUL_SAND : NETHERRACK;
+        }
+    },
+
+    /**
+     * Deep water over a sandy seabed with a few islands poking out
+     */
+    OCEAN(-64, 384) {
+        @Override
+        public BlockState generate(int x, int y, int z) {
+            int seabed = 30 + (int) (noise(x, 0, z, 48) * 40);
+            if (y <= seabed) {
+                return y > seabed - 3 ? SAND : STONE;
+            }
+            if (y <= 62) {
+                return WATER;
+            }
+            return AIR;
+        }
+    };
+
+    private static final BlockState AIR = Blocks.AIR.defaultBlockState();
+    private static final BlockState STONE = Blocks.STONE.defaultBlockState();
+    private static final BlockState DEEPSLATE = Blocks.DEEPSLATE.defaultBlockState();
+    private static final BlockState DIRT = Blocks.DIRT.defaultBlockState();
+    private static final BlockState GRASS = Blocks.GRASS_BLOCK.defaultBlockState();
+    private static final BlockState LOG = Blocks.OAK_LOG.defaultBlockState();
+    private static final BlockState BEDROCK = Blocks.BEDROCK.defaultBlockState();
+    private static final BlockState LAVA = Blocks.LAVA.defaultBlockState();
+    private static final BlockState WATER = Blocks.WATER.defaultBlockState();
+    private static final BlockState SAND = Blocks.SAND.defaultBlockState();
+    private static final BlockState NETHERRACK = Blocks.NETHERRACK.defaultBlockState();
+    private static final BlockState SOUL_SAND = Blocks.SOUL_SAND.defaultBlockState();
+
+    public final int minY;
+    public final int height;
+
+    SyntheticTerrain(int minY, int height) {
+        this.minY = minY;
+        this.height = height;
+    }
+
+    public abstract BlockState generate(int x, int y, int z);
+
+    private static int hash(int x, int y, int z) {
+        int h = x * 73856093 ^ y * 19349663 ^ z * 83492791;
+        h ^= h >>> 13;
+        h *= 0x5bd1e995;
+        h ^= h >>> 15;
+        return h & Integer.MAX_VALUE;
+    }
+
+    /**
+     * Trilinearly interpolated value noise in [0, 1)
+     */
+    private static double noise(int x, int y, int z, int scale) {
+        int x0 = Math.floorDiv(x, scale);
+        int y0 = Math.floorDiv(y, scale);
+        int z0 = Math.floorDiv(z, scale);
+        double fx = (double) Math.floorMod(x, scale) / scale;
+        double fy = (double) Math.floorMod(y, scale) / scale;
+        double fz = (double) Math.floorMod(z, scale) / scale;
+        double result = 0;
+        for (int dx = 0; dx < 2; dx++) {
+            for (int dy = 0; dy < 2; dy++) {
+                for (int dz = 0; dz < 2; dz++) {
+                    double weight = (dx == 0 ? 1 - fx : fx) * (dy == 0 ? 1 - fy : fy) * (dz == 0 ? 1 - fz : fz);
+                    result += weight * (hash(x0 + dx, y0 + dy, z0 + dz) % 1024) / 1024D;
+                }
+            }
+        }
+        return result;
+    }
+}
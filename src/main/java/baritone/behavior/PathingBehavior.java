@@ -20,6 +20,7 @@ package baritone.behavior;
 import baritone.Baritone;
 import baritone.api.behavior.IPathingBehavior;
 import baritone.api.event.events.*;
+import baritone.api.event.events.type.EventState;
 import baritone.api.pathing.calc.IPath;
 import baritone.api.pathing.goals.Goal;
 import baritone.api.pathing.goals.GoalXZ;
@@ -30,19 +31,24 @@ import baritone.api.utils.PathCalculationResult;
 import baritone.api.utils.interfaces.IGoalRenderPos;
 import baritone.pathing.calc.AStarPathFinder;
 import baritone.pathing.calc.AbstractNodeCostSearch;
+import baritone.pathing.calc.MovementCostCache;
 import baritone.pathing.movement.CalculationContext;
 import baritone.pathing.movement.MovementHelper;
 import baritone.pathing.path.PathExecutor;
+import baritone.pathing.precompute.ChangedChunks;
+import baritone.pathing.precompute.PathingSnapshot;
 import baritone.process.ElytraProcess;
 import baritone.utils.PathRenderer;
 import baritone.utils.PathingCommandContext;
 import baritone.utils.pathing.Favoring;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.LinkedBlockingQueue;
 import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.ChunkPos;
 
 public final class PathingBehavior extends Behavior implements IPathingBehavior, Helper {
 
@@ -74,6 +80,14 @@ public final class PathingBehavior extends Behavior implements IPathingBehavior,
 
     private final LinkedBlockingQueue<PathEvent> toDispatch = new LinkedBlockingQueue<>();
 
+    private final MovementCostCache movementCostCache = new MovementCostCache();
+
+    /**
+     * The last snapshot made for a search, and the chunks that changed since. Only one search runs at a time
+     */
+    private volatile PathingSnapshot pathingSnapshot;
+    private final ChangedChunks chunksChangedSincePathingSnapshot = new ChangedChunks();
+
     public PathingBehavior(Baritone baritone) {
         super(baritone);
     }
@@ -107,6 +121,25 @@ public final class PathingBehavior extends Behavior implements IPathingBehavior,
         dispatchEvents();
     }
 
+    @Override
+    public void onBlockChange(BlockChangeEvent event) {
+        if (Baritone.settings().incrementalPathing.value) {
+            movementCostCache.blocksChanged(event, ctx.world());
+        }
+        // even while snapshots are off, so that turning them back on never reuses a chunk that changed in the meantime
+        chunksChangedSincePathingSnapshot.blocksChanged(event);
+    }
+
+    @Override
+    public void onChunkEvent(ChunkEvent event) {
+        if (Baritone.settings().incrementalPathing.value && event.getState() == EventState.POST) {
+            movementCostCache.chunkChanged(new ChunkPos(event.getX(), event.getZ()));
+        }
+        if (event.getState() == EventState.POST) {
+            chunksChangedSincePathingSnapshot.chunkChanged(event.getX(), event.getZ());
+        }
+    }
+
     @Override
     public void onPlayerSprintState(SprintStateEvent event) {
         if (isPathing()) {
@@ -502,6 +535,7 @@ public final class PathingBehavior extends Behavior implements IPathingBehavior,
             if (talkAboutIt) {
                 logDebug("Starting to search for path from " + start + " to " + goal);
             }
+            context.pathingSnapshot = refreshPathingSnapshot(start, context);
 
             PathCalculationResult calcResult = pathfinder.calculate(primaryTimeout, failureTimeout);
             synchronized (pathPlanLock) {
@@ -553,6 +587,21 @@ public final class PathingBehavior extends Behavior implements IPathingBehavior,
         });
     }
 
+    /**
+     * @return The snapshot for a search from this start, or null if snapshots are off
+     */
+    private PathingSnapshot refreshPathingSnapshot(BlockPos start, CalculationContext context) {
+        LongSet changed = chunksChangedSincePathingSnapshot.take();
+        if (!Baritone.settings().pathingSnapshot.value) {
+            // the changes only matter to the last snapshot, which has nothing left to be reused for
+            pathingSnapshot = null;
+            return null;
+        }
+        PathingSnapshot snapshot = PathingSnapshot.refresh(pathingSnapshot, changed, context.bsi, context.precomputedData, start.getX() >> 4, start.getZ() >> 4, Baritone.settings().pathingSnapshotRadius.value);
+        pathingSnapshot = snapshot;
+        return snapshot;
+    }
+
     private AbstractNodeCostSearch createPathfinder(BlockPos start, Goal goal, IPath previous, CalculationContext context) {
         Goal transformed = goal;
         if (Baritone.settings().simplifyUnloadedYCoord.value && goal instanceof IGoalRenderPos) {
@@ -568,7 +617,8 @@ public final class PathingBehavior extends Behavior implements IPathingBehavior,
         if (feet.getY() == realStart.getY() && Math.abs(sub.getX()) <= 1 && Math.abs(sub.getZ()) <= 1) {
             realStart = feet;
         }
-        return new AStarPathFinder(realStart, start.getX(), start.getY(), start.getZ(), transformed, favoring, context);
+        MovementCostCache costCache = Baritone.settings().incrementalPathing.value ? movementCostCache : null;
+        return new AStarPathFinder(realStart, start.getX(), start.getY(), start.getZ(), transformed, favoring, context, costCache);
 
     }
 
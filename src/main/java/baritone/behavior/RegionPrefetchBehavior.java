@@ -0,0 +1,113 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.behavior;
+
+import baritone.Baritone;
+import baritone.api.event.events.TickEvent;
+import baritone.api.pathing.goals.Goal;
+import baritone.api.pathing.goals.GoalXZ;
+import baritone.api.utils.BetterBlockPos;
+import baritone.api.utils.interfaces.IGoalRenderPos;
+import baritone.cache.CachedWorld;
+import baritone.cache.WorldData;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.phys.Vec3;
+
+/**
+ * Loads the cached regions that pathing is about to need in the background, so that looking them up doesn't have to
+ * wait on the disk: the regions along the current path, towards the goal, and ahead of the player.
+ */
+public final class RegionPrefetchBehavior extends Behavior {
+
+    /**
+     * How far ahead, in blocks, to prefetch towards the goal
+     */
+    private static final int GOAL_LOOKAHEAD = 2048;
+
+    /**
+     * How far ahead, in ticks, to prefetch along the player's velocity
+     */
+    private static final int VELOCITY_LOOKAHEAD = 20 * 20;
+
+    private int ticks;
+
+    public RegionPrefetchBehavior(Baritone baritone) {
+        super(baritone);
+    }
+
+    @Override
+    public void onTick(TickEvent event) {
+        if (event.getType() == TickEvent.Type.OUT || !Baritone.settings().prefetchCachedRegions.value) {
+            return;
+        }
+        if (ticks++ % 10 != 0) {
+            return;
+        }
+        WorldData worldData = baritone.getWorldProvider().getCurrentWorld();
+        if (worldData == null) {
+            return;
+        }
+        CachedWorld cache = worldData.cache;
+        BetterBlockPos feet = ctx.playerFeet();
+        prefetch(cache, feet.x, feet.z);
+
+        Vec3 velocity = ctx.player().getDeltaMovement();
+        prefetchAlong(cache, feet.x, feet.z, feet.x + velocity.x * VELOCITY_LOOKAHEAD, feet.z + velocity.z * VELOCITY_LOOKAHEAD);
+
+        baritone.getPathingBehavior().getPath().ifPresent(path -> {
+            for (BetterBlockPos pos : path.positions()) {
+                prefetch(cache, pos.x, pos.z);
+            }
+        });
+
+        Goal goal = baritone.getPathingBehavior().getGoal();
+        double goalX;
+        double goalZ;
+        if (goal instanceof IGoalRenderPos) {
+            BlockPos pos = ((IGoalRenderPos) goal).getGoalPos();
+            goalX = pos.getX();
+            goalZ = pos.getZ();
+        } else if (goal instanceof GoalXZ) {
+            goalX = ((GoalXZ) goal).getX();
+            goalZ = ((GoalXZ) goal).getZ();
+        } else {
+            return;
+        }
+        double dist = Math.sqrt((goalX - feet.x) * (goalX - feet.x) + (goalZ - feet.z) * (goalZ - feet.z));
+        if (dist > GOAL_LOOKAHEAD) {
+            goalX = feet.x + (goalX - feet.x) * GOAL_LOOKAHEAD / dist;
+            goalZ = feet.z + (goalZ - feet.z) * GOAL_LOOKAHEAD / dist;
+        }
+        prefetchAlong(cache, feet.x, feet.z, goalX, goalZ);
+    }
+
+    /**
+     * Prefetches every region a line crosses, sampled at a quarter of a region so that corners aren't skipped often
+     */
+    private static void prefetchAlong(CachedWorld cache, double fromX, double fromZ, double toX, double toZ) {
+        double dist = Math.sqrt((toX - fromX) * (toX - fromX) + (toZ - fromZ) * (toZ - fromZ));
+        int steps = (int) Math.ceil(dist / 128);
+        for (int i = 1; i <= steps; i++) {
+            prefetch(cache, (int) Math.floor(fromX + (toX - fromX) * i / steps), (int) Math.floor(fromZ + (toZ - fromZ) * i / steps));
+        }
+    }
+
+    private static void prefetch(CachedWorld cache, int blockX, int blockZ) {
+        cache.prefetchRegion(blockX >> 9, blockZ >> 9);
+    }
+}
@@ -20,6 +20,7 @@ package baritone.cache;
 import baritone.api.utils.BlockUtils;
 import baritone.utils.pathing.PathingBlockType;
 import com.google.common.collect.ImmutableSet;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.block.Block;
@@ -28,9 +29,13 @@ import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.dimension.DimensionType;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Brady
@@ -38,6 +43,10 @@ import java.util.Map;
  */
 public final class CachedChunk {
 
+    /**
+     * The blocks whose locations are always kept in the cache. More can be added with
+     * {@link baritone.api.Settings#additionalTrackedBlocks}, so use {@link #isTracked} to check a block
+     */
     public static final ImmutableSet<Block> BLOCKS_TO_KEEP_TRACK_OF = ImmutableSet.of(
             Blocks.ENDER_CHEST,
             Blocks.FURNACE,
@@ -68,9 +77,6 @@ public final class CachedChunk {
             Blocks.HOPPER,
             Blocks.BEACON,
             Blocks.BREWING_STAND,
-
-// TODO: Maybe add a predicate for blocks to keep track of?
-// This should really not need to happen
             Blocks.CREEPER_HEAD,
             Blocks.CREEPER_WALL_HEAD,
             Blocks.DRAGON_HEAD,
@@ -110,6 +116,14 @@ public final class CachedChunk {
             Blocks.VINE
     );
 
+    /**
+     * {@link #BLOCKS_TO_KEEP_TRACK_OF} along with {@link baritone.api.Settings#additionalTrackedBlocks}, as of the last
+     * {@link #updateTrackedBlocks}
+     */
+    private static volatile Set<Block> trackedBlocks = BLOCKS_TO_KEEP_TRACK_OF;
+    private static List<Block> trackedAdditional = Collections.emptyList();
+    private static volatile int trackedGeneration;
+
     public final int height;
 
     /**
@@ -135,11 +149,25 @@ public final class CachedChunk {
     public final int z;
 
     /**
-     * The actual raw data of this packed chunk.
+     * The number of longs in a section that isn't uniform: 16x16x16 blocks, 2 bits each
+     */
+    static final int SECTION_LONGS = 16 * 16 * 16 * 2 / 64;
+
+    /**
+     * Pathing types by the 2 bits at a {@link #getPositionIndex}, read as a number
+     */
+    private static final PathingBlockType[] TYPES_BY_BITS = {PathingBlockType.AIR, PathingBlockType.AVOID, PathingBlockType.WATER, PathingBlockType.SOLID};
+
+    /**
+     * The actual raw data of this packed chunk, one 16x16x16 section at a time.
      * <p>
-     * Each block is expressed as 2 bits giving a total of 16 KiB
+     * Each block is expressed as 2 bits, at its {@link #getPositionIndex} minus the start of its section, so a section
+     * is {@link #SECTION_LONGS} longs. Sections where every block has the same type are null here, and that type is
+     * in {@link #uniformSections} instead.
      */
-    private final BitSet data;
+    private final long[][] sections;
+
+    private final PathingBlockType[] uniformSections;
 
     private final Int2ObjectOpenHashMap<String> special;
 
@@ -150,22 +178,51 @@ public final class CachedChunk {
 
     private final int[] heightMap;
 
-    private final Map<String, List<BlockPos>> specialBlockLocations;
+    /**
+     * The positions of each tracked block, packed as {@code y << 8 | z << 4 | x} with the absolute y
+     */
+    private final Map<String, int[]> specialBlockLocations;
 
     public final long cacheTimestamp;
 
     CachedChunk(int x, int z, int height, BitSet data, BlockState[] overview, Map<String, List<BlockPos>> specialBlockLocations, long cacheTimestamp) {
+        this(x, z, height, split(validateSize(data, size(height)), height), new PathingBlockType[height / 16], overview, specialBlockLocations, cacheTimestamp);
+    }
+
+    /**
+     * Any section given here whose blocks all have the same type is elided into {@code uniformSections}.
+     *
+     * @param sections        The sections of this chunk, null where uniform, see {@link #sections}
+     * @param uniformSections The type of each null section
+     */
+    CachedChunk(int x, int z, int height, long[][] sections, PathingBlockType[] uniformSections, BlockState[] overview, Map<String, List<BlockPos>> specialBlockLocations, long cacheTimestamp) {
         this.size = size(height);
         this.sizeInBytes = sizeInBytes(size);
-        validateSize(data);
 
         this.x = x;
         this.z = z;
         this.height = height;
-        this.data = data;
+        this.sections = sections;
+        this.uniformSections = uniformSections;
+        for (int i = 0; i < sections.length; i++) {
+            PathingBlockType uniform = sections[i] == null ? null : uniformType(sections[i]);
+            if (uniform != null) {
+                sections[i] = null;
+                uniformSections[i] = uniform;
+            }
+        }
         this.overview = overview;
         this.heightMap = new int[256];
-        this.specialBlockLocations = specialBlockLocations;
+        this.specialBlockLocations = new HashMap<>(specialBlockLocations.size());
+        for (Map.Entry<String, List<BlockPos>> entry : specialBlockLocations.entrySet()) {
+            List<BlockPos> positions = entry.getValue();
+            int[] packed = new int[positions.size()];
+            for (int i = 0; i < packed.length; i++) {
+                BlockPos pos = positions.get(i);
+                packed[i] = pos.getY() << 8 | pos.getZ() << 4 | pos.getX();
+            }
+            this.specialBlockLocations.put(entry.getKey(), packed);
+        }
         this.cacheTimestamp = cacheTimestamp;
         if (specialBlockLocations.isEmpty()) {
             this.special = null;
@@ -176,6 +233,92 @@ public final class CachedChunk {
         calculateHeightMap();
     }
 
+    private static long[][] split(BitSet data, int height) {
+        long[] words = data.toLongArray(); // leaves off trailing zero words
+        long[][] sections = new long[height / 16][];
+        for (int i = 0; i < sections.length; i++) {
+            int from = Math.min(i * SECTION_LONGS, words.length);
+            sections[i] = Arrays.copyOf(Arrays.copyOfRange(words, from, Math.min(from + SECTION_LONGS, words.length)), SECTION_LONGS);
+        }
+        return sections;
+    }
+
+    /**
+     * Returns a copy of this chunk with some blocks changed. This chunk is left as is for anything still reading it,
+     * and only the sections that changed are copied.
+     *
+     * @param types                 The new type at each changed {@link #getPositionIndex}
+     * @param overview              The overview of the copy
+     * @param specialBlockLocations The special block locations of the copy
+     * @param cacheTimestamp        The timestamp of the copy
+     * @return The copy
+     */
+    CachedChunk withChanges(Int2ObjectMap<PathingBlockType> types, BlockState[] overview, Map<String, List<BlockPos>> specialBlockLocations, long cacheTimestamp) {
+        long[][] sections = this.sections.clone();
+        PathingBlockType[] uniformSections = this.uniformSections.clone();
+        boolean[] copied = new boolean[sections.length];
+        for (Int2ObjectMap.Entry<PathingBlockType> entry : types.int2ObjectEntrySet()) {
+            int index = entry.getIntKey();
+            int sectionIndex = index >> 13;
+            if (!copied[sectionIndex]) {
+                copied[sectionIndex] = true;
+                if (sections[sectionIndex] == null) {
+                    sections[sectionIndex] = new long[SECTION_LONGS];
+                    Arrays.fill(sections[sectionIndex], wordOf(uniformSections[sectionIndex]));
+                } else {
+                    sections[sectionIndex] = sections[sectionIndex].clone();
+                }
+            }
+            long[] section = sections[sectionIndex];
+            int bit = index & 8191;
+            section[bit >> 6] = section[bit >> 6] & ~(3L << (bit & 63)) | (wordOf(entry.getValue()) & 3) << (bit & 63);
+        }
+        return new CachedChunk(x, z, height, sections, uniformSections, overview, specialBlockLocations, cacheTimestamp);
+    }
+
+    /**
+     * @return Roughly how many bytes of heap this chunk takes up, not counting the block states it refers to
+     */
+    public final long estimatedBytes() {
+        long bytes = 64 + 2 * (16 + 4L * sections.length) + (16 + 4 * 256) + (16 + 4 * 256);
+        for (long[] section : sections) {
+            if (section != null) {
+                bytes += 16 + 8 * SECTION_LONGS;
+            }
+        }
+        for (int[] positions : specialBlockLocations.values()) {
+            // each packed position, and its entry in the special map
+            bytes += 16 + positions.length * (4 + 32);
+        }
+        return bytes;
+    }
+
+    /**
+     * @return A section word where every block is this type
+     */
+    private static long wordOf(PathingBlockType type) {
+        boolean[] bits = type.getBits();
+        return ((bits[0] ? 1 : 0) | (bits[1] ? 2 : 0)) * 0x5555555555555555L;
+    }
+
+    /**
+     * @param section The {@link #SECTION_LONGS} longs of a section
+     * @return The type of every block in the section, or null if they aren't all the same
+     */
+    static PathingBlockType uniformType(long[] section) {
+        long first = section[0];
+        int bits = (int) first & 3;
+        if (first != bits * 0x5555555555555555L) {
+            return null;
+        }
+        for (int i = 1; i < section.length; i++) {
+            if (section[i] != first) {
+                return null;
+            }
+        }
+        return TYPES_BY_BITS[bits];
+    }
+
     public static int size(int dimension_height) {
         return 2 * 16 * 16 * dimension_height;
     }
@@ -185,9 +328,9 @@ public final class CachedChunk {
     }
 
     private final void setSpecial() {
-        for (Map.Entry<String, List<BlockPos>> entry : specialBlockLocations.entrySet()) {
-            for (BlockPos pos : entry.getValue()) {
-                special.put(getPositionIndex(pos.getX(), pos.getY(), pos.getZ()), entry.getKey());
+        for (Map.Entry<String, int[]> entry : specialBlockLocations.entrySet()) {
+            for (int pos : entry.getValue()) {
+                special.put(getPositionIndex(pos & 15, pos >> 8, (pos >> 4) & 15), entry.getKey());
             }
         }
     }
@@ -228,8 +371,32 @@ public final class CachedChunk {
         return ChunkPacker.pathingTypeToBlock(type, dimension);
     }
 
+    /**
+     * @param x The chunk local x position
+     * @param y The y position, 0 being the bottom of the world
+     * @param z The chunk local z position
+     * @return The cached pathing type at that position
+     */
+    public final PathingBlockType getPathingType(int x, int y, int z) {
+        return getType(getPositionIndex(x, y, z));
+    }
+
     private PathingBlockType getType(int index) {
-        return PathingBlockType.fromBits(data.get(index), data.get(index + 1));
+        return getType(sections, uniformSections, index);
+    }
+
+    /**
+     * @param index A {@link #getPositionIndex}
+     * @return The type at that index in these sections, see {@link #sections}
+     */
+    static PathingBlockType getType(long[][] sections, PathingBlockType[] uniformSections, int index) {
+        int sectionIndex = index >> 13;
+        long[] section = sections[sectionIndex];
+        if (section == null) {
+            return uniformSections[sectionIndex];
+        }
+        int bit = index & 8191;
+        return TYPES_BY_BITS[(int) (section[bit >> 6] >>> (bit & 63)) & 3];
     }
 
     private void calculateHeightMap() {
@@ -237,9 +404,12 @@ public final class CachedChunk {
             for (int x = 0; x < 16; x++) {
                 int index = z << 4 | x;
                 heightMap[index] = 0;
-                for (int y = height; y >= 0; y--) {
-                    int i = getPositionIndex(x, y, z);
-                    if (data.get(i) || data.get(i + 1)) {
+                for (int y = height - 1; y >= 0; y--) {
+                    if (sections[y >> 4] == null && uniformSections[y >> 4] == PathingBlockType.AIR) {
+                        y &= ~15; // skip the rest of an all air section
+                        continue;
+                    }
+                    if (getType(getPositionIndex(x, y, z)) != PathingBlockType.AIR) {
                         heightMap[index] = y;
                         break;
                     }
@@ -252,26 +422,102 @@ public final class CachedChunk {
         return overview;
     }
 
+    /**
+     * @return The positions of each tracked block, relative to this chunk, unpacked into a new map on every call
+     */
     public final Map<String, List<BlockPos>> getRelativeBlocks() {
-        return specialBlockLocations;
+        Map<String, List<BlockPos>> res = new HashMap<>(specialBlockLocations.size());
+        for (Map.Entry<String, int[]> entry : specialBlockLocations.entrySet()) {
+            List<BlockPos> positions = new ArrayList<>(entry.getValue().length);
+            for (int pos : entry.getValue()) {
+                positions.add(new BlockPos(pos & 15, pos >> 8, (pos >> 4) & 15));
+            }
+            res.put(entry.getKey(), positions);
+        }
+        return res;
     }
 
     public final ArrayList<BlockPos> getAbsoluteBlocks(String blockType) {
-        if (specialBlockLocations.get(blockType) == null) {
+        int[] positions = specialBlockLocations.get(blockType);
+        if (positions == null) {
             return null;
         }
-        ArrayList<BlockPos> res = new ArrayList<>();
-        for (BlockPos pos : specialBlockLocations.get(blockType)) {
-            res.add(new BlockPos(pos.getX() + x * 16, pos.getY(), pos.getZ() + z * 16));
+        ArrayList<BlockPos> res = new ArrayList<>(positions.length);
+        for (int pos : positions) {
+            res.add(new BlockPos((pos & 15) + x * 16, pos >> 8, ((pos >> 4) & 15) + z * 16));
         }
         return res;
     }
 
     /**
-     * @return Returns the raw packed chunk data as a byte array
+     * @return The positions of each tracked block, packed as in {@link #specialBlockLocations}. Not to be modified
+     */
+    final Map<String, int[]> getPackedBlocks() {
+        return specialBlockLocations;
+    }
+
+    /**
+     * @return Whether the locations of this block are kept in the cache
+     */
+    public static boolean isTracked(Block block) {
+        return trackedBlocks.contains(block);
+    }
+
+    /**
+     * @param name A block name, as in {@link BlockUtils#blockToString}
+     * @return Whether the locations of this block are kept in the cache
+     */
+    public static boolean isTracked(String name) {
+        Block block = BlockUtils.stringToBlockNullable(name);
+        return block != null && isTracked(block);
+    }
+
+    /**
+     * @return {@link #BLOCKS_TO_KEEP_TRACK_OF} along with {@link baritone.api.Settings#additionalTrackedBlocks}
+     */
+    public static Set<Block> getTrackedBlocks() {
+        return trackedBlocks;
+    }
+
+    /**
+     * @return A number that changes whenever the tracked blocks do, so a chunk or a world packed before that can be
+     * told apart
+     */
+    static int trackedGeneration() {
+        return trackedGeneration;
+    }
+
+    /**
+     * Picks up any change to the additional tracked blocks. The chunks that were packed before a change are still
+     * missing the locations of any newly tracked block, until they get packed again, which each world finds out
+     * about through {@link CachedWorld#updateTrackedGeneration}.
+     *
+     * @param additional The value of {@link baritone.api.Settings#additionalTrackedBlocks}
+     * @return Whether the tracked blocks changed
+     */
+    public static synchronized boolean updateTrackedBlocks(List<Block> additional) {
+        if (additional.equals(trackedAdditional)) {
+            return false;
+        }
+        trackedAdditional = new ArrayList<>(additional);
+        trackedBlocks = ImmutableSet.<Block>builder().addAll(BLOCKS_TO_KEEP_TRACK_OF).addAll(additional).build();
+        trackedGeneration++;
+        return true;
+    }
+
+    /**
+     * @return Returns the raw packed chunk data as a byte array, as if it were one {@link BitSet} of every section
      */
     public final byte[] toByteArray() {
-        return this.data.toByteArray();
+        long[] words = new long[sections.length * SECTION_LONGS];
+        for (int i = 0; i < sections.length; i++) {
+            if (sections[i] != null) {
+                System.arraycopy(sections[i], 0, words, i * SECTION_LONGS, SECTION_LONGS);
+            } else {
+                Arrays.fill(words, i * SECTION_LONGS, (i + 1) * SECTION_LONGS, wordOf(uniformSections[i]));
+            }
+        }
+        return BitSet.valueOf(words).toByteArray();
     }
 
     /**
@@ -292,11 +538,14 @@ public final class CachedChunk {
      * considered invalid, and thus, an exception will be thrown.
      *
      * @param data The raw data
+     * @param size The maximum size
+     * @return The same data
      * @throws IllegalArgumentException if the bitset size exceeds the maximum size
      */
-    private void validateSize(BitSet data) {
+    private static BitSet validateSize(BitSet data, int size) {
         if (data.size() > size) {
             throw new IllegalArgumentException("BitSet of invalid length provided");
         }
+        return data;
     }
 }
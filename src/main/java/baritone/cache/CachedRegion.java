@@ -20,17 +20,21 @@ package baritone.cache;
 import baritone.Baritone;
 import baritone.api.cache.ICachedRegion;
 import baritone.api.utils.BlockUtils;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.dimension.DimensionType;
 
 import java.io.*;
+import java.lang.ref.SoftReference;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.UnaryOperator;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * @author Brady
@@ -42,14 +46,60 @@ public final class CachedRegion implements ICachedRegion {
     private static final byte CHUNK_PRESENT = 1;
 
     /**
-     * Magic value to detect invalid cache files, or incompatible cache files saved in an old version of Baritone
+     * Magic value of the old format, one gzip stream for the whole region. Files in it are still read, and written
+     * back as a {@link RegionFile} the next time the region is saved
      */
     private static final int CACHED_REGION_MAGIC = 456022911;
 
     /**
-     * All of the chunks in this region: A 32x32 array of them.
+     * The chunks packed since the most recent load or save, which only exist in this form until they're saved.
+     * <p>
+     * This, {@link #records} and {@link #decompressed} are indexed by {@link #index} and read without the lock on this
+     * region, so they're atomic arrays in order for a chunk to be fully visible to whoever reads it from them.
      */
-    private final CachedChunk[][] chunks = new CachedChunk[32][32];
+    private final AtomicReferenceArray<CachedChunk> chunks = new AtomicReferenceArray<>(32 * 32);
+
+    /**
+     * Every other chunk in this region is kept as its compressed {@link RegionFile} record, and only turned back into a
+     * {@link CachedChunk} when something looks at it.
+     */
+    private final AtomicReferenceArray<byte[]> records = new AtomicReferenceArray<>(32 * 32);
+
+    /**
+     * The {@link CachedChunk#cacheTimestamp} of each record, so that finding expired chunks doesn't decompress them
+     */
+    private final long[][] recordTimestamps = new long[32][32];
+
+    /**
+     * Chunks decompressed from records. These can be dropped under memory pressure, the record is still there
+     */
+    private final AtomicReferenceArray<SoftReference<CachedChunk>> decompressed = new AtomicReferenceArray<>(32 * 32);
+
+    /**
+     * Which chunks have been replaced or removed since the most recent load or save
+     */
+    private final boolean[][] modified = new boolean[32][32];
+
+    /**
+     * The {@link ChunkPacker#fingerprint} of each chunk as it was packed, 0 if unknown. Only kept in memory
+     */
+    private final long[][] fingerprints = new long[32][32];
+
+    /**
+     * When each chunk was last seen unchanged, which counts towards its expiry without it being packed or saved again
+     */
+    private final long[][] lastSeenUnchanged = new long[32][32];
+
+    /**
+     * The absolute positions of each tracked block as {@link BlockPos#asLong}, by block name and then by {@link #index},
+     * so a lookup only touches the chunks that have the block. Built the first time it's needed, null until then
+     */
+    private Map<String, Int2ObjectOpenHashMap<long[]>> locations;
+
+    /**
+     * When this region was last looked up, for evicting the least recently used regions
+     */
+    private volatile long lastAccessed;
 
     /**
      * The region x coordinate
@@ -68,6 +118,12 @@ public final class CachedRegion implements ICachedRegion {
      */
     private boolean hasUnsavedChanges;
 
+    /**
+     * Whether this region has been removed from RAM. Nothing can be changed in it anymore, since the changes would never
+     * be saved, they have to go through the region that's loaded again instead
+     */
+    private boolean evicted;
+
     CachedRegion(int x, int z, DimensionType dimension) {
         this.x = x;
         this.z = z;
@@ -78,7 +134,7 @@ public final class CachedRegion implements ICachedRegion {
     @Override
     public final BlockState getBlock(int x, int y, int z) {
         int adjY = y - dimension.minY();
-        CachedChunk chunk = chunks[x >> 4][z >> 4];
+        CachedChunk chunk = getChunk(x >> 4, z >> 4);
         if (chunk != null) {
             return chunk.getBlock(x & 15, adjY, z & 15, dimension);
         }
@@ -87,28 +143,317 @@ public final class CachedRegion implements ICachedRegion {
 
     @Override
     public final boolean isCached(int x, int z) {
-        return chunks[x >> 4][z >> 4] != null;
+        return isPresent(x >> 4, z >> 4);
+    }
+
+    private boolean isPresent(int chunkX, int chunkZ) {
+        int index = index(chunkX, chunkZ);
+        return chunks.get(index) != null || records.get(index) != null;
     }
 
-    public final ArrayList<BlockPos> getLocationsOf(String block) {
+    private static int index(int chunkX, int chunkZ) {
+        return chunkX << 5 | chunkZ;
+    }
+
+    /**
+     * @param chunkX The chunk x coordinate relative to this region, 0 to 31
+     * @param chunkZ The chunk z coordinate relative to this region, 0 to 31
+     * @return The cached chunk, or null if it isn't cached
+     */
+    final CachedChunk getChunk(int chunkX, int chunkZ) {
+        int index = index(chunkX, chunkZ);
+        CachedChunk chunk = chunks.get(index);
+        if (chunk != null) {
+            return chunk;
+        }
+        byte[] record = records.get(index);
+        if (record == null) {
+            // it may have been saved since chunks was read
+            return chunks.get(index);
+        }
+        SoftReference<CachedChunk> ref = decompressed.get(index);
+        chunk = ref == null ? null : ref.get();
+        if (chunk == null) {
+            // racing threads may both decompress it, which is fine, they get equal chunks
+            try {
+                chunk = RegionFile.decompress(record, chunkX + 32 * this.x, chunkZ + 32 * this.z, dimension);
+            } catch (Exception ex) { // a corrupted record is the same as a missing chunk
+                ex.printStackTrace();
+                return null;
+            }
+            decompressed.set(index, new SoftReference<>(chunk));
+        }
+        return chunk;
+    }
+
+    public final synchronized ArrayList<BlockPos> getLocationsOf(String block) {
         ArrayList<BlockPos> res = new ArrayList<>();
-        for (int chunkX = 0; chunkX < 32; chunkX++) {
-            for (int chunkZ = 0; chunkZ < 32; chunkZ++) {
-                if (chunks[chunkX][chunkZ] == null) {
-                    continue;
-                }
-                ArrayList<BlockPos> locs = chunks[chunkX][chunkZ].getAbsoluteBlocks(block);
-                if (locs != null) {
-                    res.addAll(locs);
+        if (!CachedChunk.isTracked(block)) {
+            return res;
+        }
+        Int2ObjectOpenHashMap<long[]> byChunk = indexedLocations().get(block);
+        if (byChunk != null) {
+            for (long[] positions : byChunk.values()) {
+                for (long pos : positions) {
+                    res.add(BlockPos.of(pos));
                 }
             }
         }
         return res;
     }
 
-    public final synchronized void updateCachedChunk(int chunkX, int chunkZ, CachedChunk chunk) {
-        this.chunks[chunkX][chunkZ] = chunk;
+    /**
+     * Offers the positions of a block in this region, skipping every chunk that can't hold one nearer than what's
+     * already been found
+     *
+     * @param block The name of a tracked block
+     * @param out   The nearest positions found so far
+     */
+    final synchronized void addLocationsOf(String block, NearestLocations out) {
+        Int2ObjectOpenHashMap<long[]> byChunk = indexedLocations().get(block);
+        if (byChunk == null) {
+            return;
+        }
+        for (Int2ObjectMap.Entry<long[]> entry : byChunk.int2ObjectEntrySet()) {
+            int index = entry.getIntKey();
+            int minX = ((index >> 5) + 32 * this.x) << 4;
+            int minZ = ((index & 31) + 32 * this.z) << 4;
+            if (out.isFull() && out.distSq(minX, minZ, minX + 15, minZ + 15) >= out.bound()) {
+                continue;
+            }
+            for (long pos : entry.getValue()) {
+                out.offer(pos);
+            }
+        }
+    }
+
+    /**
+     * @return {@link #locations}, built first if it hasn't been yet
+     */
+    private Map<String, Int2ObjectOpenHashMap<long[]>> indexedLocations() {
+        if (locations == null) {
+            locations = new HashMap<>();
+            for (int chunkX = 0; chunkX < 32; chunkX++) {
+                for (int chunkZ = 0; chunkZ < 32; chunkZ++) {
+                    int index = index(chunkX, chunkZ);
+                    CachedChunk chunk = chunks.get(index);
+                    if (chunk == null) {
+                        SoftReference<CachedChunk> ref = decompressed.get(index);
+                        chunk = ref == null ? null : ref.get();
+                    }
+                    if (chunk != null) {
+                        indexLocations(index, chunk);
+                        continue;
+                    }
+                    byte[] record = records.get(index);
+                    if (record == null) {
+                        continue;
+                    }
+                    // only the locations part of the record, the blocks stay compressed
+                    try {
+                        indexLocations(index, chunkX + 32 * this.x, chunkZ + 32 * this.z, RegionFile.locations(record));
+                    } catch (Exception ex) { // a corrupted record is the same as a missing chunk
+                        ex.printStackTrace();
+                    }
+                }
+            }
+        }
+        return locations;
+    }
+
+    /**
+     * Replaces what {@link #locations} has for one chunk
+     *
+     * @param index The {@link #index} of the chunk
+     * @param chunk The chunk as it is now, or null if it's no longer cached
+     */
+    private void indexLocations(int index, CachedChunk chunk) {
+        for (Int2ObjectOpenHashMap<long[]> byChunk : locations.values()) {
+            byChunk.remove(index);
+        }
+        if (chunk != null) {
+            indexLocations(index, chunk.x, chunk.z, chunk.getPackedBlocks());
+        }
+    }
+
+    /**
+     * Adds the locations of one chunk to {@link #locations}
+     *
+     * @param index  The {@link #index} of the chunk
+     * @param chunkX The absolute chunk x coordinate
+     * @param chunkZ The absolute chunk z coordinate
+     * @param blocks The positions of each tracked block, packed as in {@link CachedChunk#getPackedBlocks}
+     */
+    private void indexLocations(int index, int chunkX, int chunkZ, Map<String, int[]> blocks) {
+        int baseX = chunkX << 4;
+        int baseZ = chunkZ << 4;
+        for (Map.Entry<String, int[]> entry : blocks.entrySet()) {
+            int[] packed = entry.getValue();
+            long[] positions = new long[packed.length];
+            for (int i = 0; i < packed.length; i++) {
+                int pos = packed[i];
+                positions[i] = BlockPos.asLong(baseX + (pos & 15), pos >> 8, baseZ + ((pos >> 4) & 15));
+            }
+            locations.computeIfAbsent(entry.getKey(), b -> new Int2ObjectOpenHashMap<>()).put(index, positions);
+        }
+    }
+
+    /**
+     * @return Whether the chunk was updated, false if this region has been evicted
+     */
+    public final synchronized boolean updateCachedChunk(int chunkX, int chunkZ, CachedChunk chunk) {
+        return updateCachedChunk(chunkX, chunkZ, chunk, 0);
+    }
+
+    /**
+     * @param fingerprint The {@link ChunkPacker#fingerprint} of the chunk that was packed, or 0 if unknown
+     * @return Whether the chunk was updated, false if this region has been evicted
+     */
+    final synchronized boolean updateCachedChunk(int chunkX, int chunkZ, CachedChunk chunk, long fingerprint) {
+        if (evicted) {
+            return false;
+        }
+        int index = index(chunkX, chunkZ);
+        // set before the record is cleared, so that readers see one or the other
+        this.chunks.set(index, chunk);
+        this.records.set(index, null);
+        this.decompressed.set(index, null);
+        this.modified[chunkX][chunkZ] = true;
+        this.fingerprints[chunkX][chunkZ] = fingerprint;
+        this.lastSeenUnchanged[chunkX][chunkZ] = 0;
+        if (locations != null) {
+            indexLocations(index, chunk);
+        }
         hasUnsavedChanges = true;
+        return true;
+    }
+
+    /**
+     * If the chunk is cached and was packed from a chunk with this {@link ChunkPacker#fingerprint}, there's no need to
+     * pack it again, so just refresh its timestamp in memory without marking the region as changed.
+     *
+     * @param chunkX      The chunk x coordinate relative to this region, 0 to 31
+     * @param chunkZ      The chunk z coordinate relative to this region, 0 to 31
+     * @param fingerprint The fingerprint of the chunk as it is now
+     * @return Whether the chunk is unchanged, false if this region has been evicted
+     */
+    final synchronized boolean refreshIfUnchanged(int chunkX, int chunkZ, long fingerprint) {
+        if (evicted || fingerprint == 0 || fingerprints[chunkX][chunkZ] != fingerprint || !isPresent(chunkX, chunkZ)) {
+            return false;
+        }
+        lastSeenUnchanged[chunkX][chunkZ] = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * Replaces a cached chunk with a changed copy of it, with no other update to it in between.
+     *
+     * @param chunkX The chunk x coordinate relative to this region, 0 to 31
+     * @param chunkZ The chunk z coordinate relative to this region, 0 to 31
+     * @param change Makes the changed copy
+     * @return The changed copy, or null if the chunk isn't cached or this region has been evicted
+     */
+    final synchronized CachedChunk updateCachedChunk(int chunkX, int chunkZ, UnaryOperator<CachedChunk> change) {
+        CachedChunk chunk = evicted ? null : getChunk(chunkX, chunkZ);
+        if (chunk == null) {
+            return null;
+        }
+        chunk = change.apply(chunk);
+        updateCachedChunk(chunkX, chunkZ, chunk);
+        return chunk;
+    }
+
+    /**
+     * @return Roughly how many bytes of heap this region takes up, counting the records, the chunks packed since the
+     * last save and the decompressed chunks that haven't been collected
+     */
+    public final synchronized long estimatedBytes() {
+        // the arrays indexed by chunk
+        long bytes = 32 * 32 * (4 + 4 + 8 + 4 + 1 + 8 + 8);
+        for (int i = 0; i < 32 * 32; i++) {
+            byte[] record = records.get(i);
+            if (record != null) {
+                bytes += 16 + record.length;
+            }
+            CachedChunk chunk = chunks.get(i);
+            SoftReference<CachedChunk> ref = decompressed.get(i);
+            if (chunk == null && ref != null) {
+                chunk = ref.get();
+            }
+            if (chunk != null) {
+                bytes += chunk.estimatedBytes();
+            }
+        }
+        if (locations != null) {
+            for (Int2ObjectOpenHashMap<long[]> byChunk : locations.values()) {
+                for (long[] positions : byChunk.values()) {
+                    bytes += 32 + 8L * positions.length;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return Whether this region has been modified since its most recent load or save
+     */
+    public final synchronized boolean hasUnsavedChanges() {
+        return hasUnsavedChanges;
+    }
+
+    /**
+     * Marks this region as removed from RAM, so that it refuses any further changes
+     */
+    final synchronized void evict() {
+        evicted = true;
+    }
+
+    /**
+     * @return Whether this region has been removed from RAM, and changes have to be made to a newly loaded copy instead
+     */
+    final synchronized boolean isEvicted() {
+        return evicted;
+    }
+
+    /**
+     * Marks this region as just looked up
+     */
+    final void touch() {
+        lastAccessed = System.nanoTime();
+    }
+
+    /**
+     * @return The {@link System#nanoTime} this region was last looked up at
+     */
+    final long lastAccessed() {
+        return lastAccessed;
+    }
+
+    private long getTimestamp(int chunkX, int chunkZ) {
+        CachedChunk chunk = chunks.get(index(chunkX, chunkZ));
+        return Math.max(chunk != null ? chunk.cacheTimestamp : recordTimestamps[chunkX][chunkZ], lastSeenUnchanged[chunkX][chunkZ]);
+    }
+
+    private void remove(int chunkX, int chunkZ) {
+        clear(chunkX, chunkZ);
+        this.modified[chunkX][chunkZ] = true;
+        if (locations != null) {
+            indexLocations(index(chunkX, chunkZ), null);
+        }
+    }
+
+    /**
+     * Forgets everything about a chunk, as if it had never been cached
+     */
+    private void clear(int chunkX, int chunkZ) {
+        int index = index(chunkX, chunkZ);
+        this.chunks.set(index, null);
+        this.records.set(index, null);
+        this.decompressed.set(index, null);
+        this.recordTimestamps[chunkX][chunkZ] = 0;
+        this.modified[chunkX][chunkZ] = false;
+        this.fingerprints[chunkX][chunkZ] = 0;
+        this.lastSeenUnchanged[chunkX][chunkZ] = 0;
     }
 
 
@@ -124,62 +469,28 @@ public final class CachedRegion implements ICachedRegion {
 
             }
             System.out.println("Saving region " + x + "," + z + " to disk " + path);
-            Path regionFile = getRegionFile(path, this.x, this.z);
-            if (!Files.exists(regionFile)) {
-                Files.createFile(regionFile);
-            }
-            try (
-                    FileOutputStream fileOut = new FileOutputStream(regionFile.toFile());
-                    GZIPOutputStream gzipOut = new GZIPOutputStream(fileOut, 16384);
-                    DataOutputStream out = new DataOutputStream(gzipOut)
-            ) {
-                out.writeInt(CACHED_REGION_MAGIC);
-                for (int x = 0; x < 32; x++) {
-                    for (int z = 0; z < 32; z++) {
-                        CachedChunk chunk = this.chunks[x][z];
-                        if (chunk == null) {
-                            out.write(CHUNK_NOT_PRESENT);
-                        } else {
-                            out.write(CHUNK_PRESENT);
-                            byte[] chunkBytes = chunk.toByteArray();
-                            out.write(chunkBytes);
-                            // Messy, but fills the empty 0s that should be trailing to fill up the space.
-                            out.write(new byte[chunk.sizeInBytes - chunkBytes.length]);
-                        }
-                    }
-                }
-                for (int x = 0; x < 32; x++) {
-                    for (int z = 0; z < 32; z++) {
-                        if (chunks[x][z] != null) {
-                            for (int i = 0; i < 256; i++) {
-                                out.writeUTF(BlockUtils.blockToString(chunks[x][z].getOverview()[i].getBlock()));
-                            }
-                        }
+            // everything is saved as records, and the chunks that were packed since are kept around as if they had
+            // just been decompressed from them
+            byte[][][] toWrite = new byte[32][32][];
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    int index = index(x, z);
+                    CachedChunk chunk = chunks.get(index);
+                    if (chunk != null) {
+                        records.set(index, RegionFile.compress(chunk));
+                        recordTimestamps[x][z] = chunk.cacheTimestamp;
+                        decompressed.set(index, new SoftReference<>(chunk));
                     }
+                    toWrite[x][z] = records.get(index);
                 }
-                for (int x = 0; x < 32; x++) {
-                    for (int z = 0; z < 32; z++) {
-                        if (chunks[x][z] != null) {
-                            Map<String, List<BlockPos>> locs = chunks[x][z].getRelativeBlocks();
-                            out.writeShort(locs.entrySet().size());
-                            for (Map.Entry<String, List<BlockPos>> entry : locs.entrySet()) {
-                                out.writeUTF(entry.getKey());
-                                out.writeShort(entry.getValue().size());
-                                for (BlockPos pos : entry.getValue()) {
-                                    out.writeByte((byte) (pos.getZ() << 4 | pos.getX()));
-                                    out.writeInt(pos.getY()-dimension.minY());
-                                }
-                            }
-                        }
-                    }
-                }
-                for (int x = 0; x < 32; x++) {
-                    for (int z = 0; z < 32; z++) {
-                        if (chunks[x][z] != null) {
-                            out.writeLong(chunks[x][z].cacheTimestamp);
-                        }
-                    }
+            }
+            new RegionFile(getRegionFile(path, this.x, this.z)).write(toWrite, modified);
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    // the record is already there, so readers always see one or the other
+                    chunks.set(index(x, z), null);
                 }
+                Arrays.fill(modified[x], false);
             }
             hasUnsavedChanges = false;
             System.out.println("Saved region successfully");
@@ -203,107 +514,144 @@ public final class CachedRegion implements ICachedRegion {
             System.out.println("Loading region " + x + "," + z + " from disk " + path);
             long start = System.nanoTime() / 1000000L;
 
-            try (
-                    FileInputStream fileIn = new FileInputStream(regionFile.toFile());
-                    GZIPInputStream gzipIn = new GZIPInputStream(fileIn, 32768);
-                    DataInputStream in = new DataInputStream(gzipIn)
-            ) {
-                int magic = in.readInt();
-                if (magic != CACHED_REGION_MAGIC) {
-                    // in the future, if we change the format on disk
-                    // we can keep converters for the old format
-                    // by switching on the magic value, and either loading it normally, or loading through a converter.
-                    throw new IOException("Bad magic value " + magic);
-                }
-                boolean[][] present = new boolean[32][32];
-                BitSet[][] bitSets = new BitSet[32][32];
-                Map<String, List<BlockPos>>[][] location = new Map[32][32];
-                BlockState[][][] overview = new BlockState[32][32][];
-                long[][] cacheTimestamp = new long[32][32];
+            // rebuilt from the loaded chunks the next time it's needed
+            locations = null;
+            RegionFile file = new RegionFile(regionFile);
+            if (file.exists()) {
+                byte[][][] loaded = file.readRecords();
+                long[][] timestamps = new long[32][32];
                 for (int x = 0; x < 32; x++) {
                     for (int z = 0; z < 32; z++) {
-                        int isChunkPresent = in.read();
-                        switch (isChunkPresent) {
-                            case CHUNK_PRESENT:
-                                byte[] bytes = new byte[CachedChunk.sizeInBytes(CachedChunk.size(dimension.height()))];
-                                in.readFully(bytes);
-                                bitSets[x][z] = BitSet.valueOf(bytes);
-                                location[x][z] = new HashMap<>();
-                                //this is top block in columns
-                                overview[x][z] = new BlockState[256];
-                                present[x][z] = true;
-                                break;
-                            case CHUNK_NOT_PRESENT:
-                                break;
-                            default:
-                                throw new IOException("Malformed stream");
+                        if (loaded[x][z] != null) {
+                            timestamps[x][z] = RegionFile.timestamp(loaded[x][z]);
                         }
                     }
                 }
+                // only if the entire file was uncorrupted do we actually set the chunks
                 for (int x = 0; x < 32; x++) {
                     for (int z = 0; z < 32; z++) {
-                        if (present[x][z]) {
-                            for (int i = 0; i < 256; i++) {
-                                overview[x][z][i] = BlockUtils.stringToBlockRequired(in.readUTF()).defaultBlockState();
-                            }
-                        }
+                        clear(x, z);
+                        this.records.set(index(x, z), loaded[x][z]);
                     }
+                    System.arraycopy(timestamps[x], 0, this.recordTimestamps[x], 0, 32);
                 }
+                hasUnsavedChanges = false;
+            } else {
+                CachedChunk[][] loaded = loadLegacy(regionFile);
                 for (int x = 0; x < 32; x++) {
                     for (int z = 0; z < 32; z++) {
-                        if (present[x][z]) {
-                            // 16 * 16 * 256 = 65536 so a short is enough
-                            // ^ haha jokes on leijurv, java doesn't have unsigned types so that isn't correct
-                            //   also why would you have more than 32767 special blocks in a chunk
-                            // haha double jokes on you now it works for 65535 not just 32767
-                            int numSpecialBlockTypes = in.readShort() & 0xffff;
-                            for (int i = 0; i < numSpecialBlockTypes; i++) {
-                                String blockName = in.readUTF();
-                                BlockUtils.stringToBlockRequired(blockName);
-                                List<BlockPos> locs = new ArrayList<>();
-                                location[x][z].put(blockName, locs);
-                                int numLocations = in.readShort() & 0xffff;
-                                if (numLocations == 0) {
-                                    // an entire chunk full of air can happen in the end
-                                    numLocations = 65536;
-                                }
-                                for (int j = 0; j < numLocations; j++) {
-                                    byte xz = in.readByte();
-                                    int X = xz & 0x0f;
-                                    int Z = (xz >>> 4) & 0x0f;
-                                    int Y = in.readInt();
-                                    locs.add(new BlockPos(X, Y+dimension.minY(), Z));
-                                }
-                            }
-                        }
+                        clear(x, z);
+                        this.chunks.set(index(x, z), loaded[x][z]);
                     }
+                    // an old format file is written back in the new format on the next save
+                    Arrays.fill(this.modified[x], true);
                 }
-                for (int x = 0; x < 32; x++) {
-                    for (int z = 0; z < 32; z++) {
-                        if (present[x][z]) {
-                            cacheTimestamp[x][z] = in.readLong();
+                hasUnsavedChanges = true;
+            }
+            removeExpired();
+            long end = System.nanoTime() / 1000000L;
+            System.out.println("Loaded region successfully in " + (end - start) + "ms");
+        } catch (Exception ex) { // corrupted files can cause NullPointerExceptions as well as IOExceptions
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads a file in the old format, where every chunk is in one gzip stream
+     */
+    private CachedChunk[][] loadLegacy(Path regionFile) throws IOException {
+        try (
+                FileInputStream fileIn = new FileInputStream(regionFile.toFile());
+                GZIPInputStream gzipIn = new GZIPInputStream(fileIn, 32768);
+                DataInputStream in = new DataInputStream(gzipIn)
+        ) {
+            int magic = in.readInt();
+            if (magic != CACHED_REGION_MAGIC) {
+                throw new IOException("Bad magic value " + magic);
+            }
+            boolean[][] present = new boolean[32][32];
+            BitSet[][] bitSets = new BitSet[32][32];
+            Map<String, List<BlockPos>>[][] location = new Map[32][32];
+            BlockState[][][] overview = new BlockState[32][32][];
+            long[][] cacheTimestamp = new long[32][32];
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    int isChunkPresent = in.read();
+                    switch (isChunkPresent) {
+                        case CHUNK_PRESENT:
+                            byte[] bytes = new byte[CachedChunk.sizeInBytes(CachedChunk.size(dimension.height()))];
+                            in.readFully(bytes);
+                            bitSets[x][z] = BitSet.valueOf(bytes);
+                            location[x][z] = new HashMap<>();
+                            //this is top block in columns
+                            overview[x][z] = new BlockState[256];
+                            present[x][z] = true;
+                            break;
+                        case CHUNK_NOT_PRESENT:
+                            break;
+                        default:
+                            throw new IOException("Malformed stream");
+                    }
+                }
+            }
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    if (present[x][z]) {
+                        for (int i = 0; i < 256; i++) {
+                            overview[x][z][i] = BlockUtils.stringToBlockRequired(in.readUTF()).defaultBlockState();
                         }
                     }
                 }
-                // only if the entire file was uncorrupted do we actually set the chunks
-                for (int x = 0; x < 32; x++) {
-                    for (int z = 0; z < 32; z++) {
-                        if (present[x][z]) {
-                            int regionX = this.x;
-                            int regionZ = this.z;
-                            int chunkX = x + 32 * regionX;
-                            int chunkZ = z + 32 * regionZ;
-                            this.chunks[x][z] = new CachedChunk(chunkX, chunkZ, dimension.height(), bitSets[x][z], overview[x][z], location[x][z], cacheTimestamp[x][z]);
+            }
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    if (present[x][z]) {
+                        // 16 * 16 * 256 = 65536 so a short is enough
+                        // ^ haha jokes on leijurv, java doesn't have unsigned types so that isn't correct
+                        //   also why would you have more than 32767 special blocks in a chunk
+                        // haha double jokes on you now it works for 65535 not just 32767
+                        int numSpecialBlockTypes = in.readShort() & 0xffff;
+                        for (int i = 0; i < numSpecialBlockTypes; i++) {
+                            String blockName = in.readUTF();
+                            BlockUtils.stringToBlockRequired(blockName);
+                            List<BlockPos> locs = new ArrayList<>();
+                            location[x][z].put(blockName, locs);
+                            int numLocations = in.readShort() & 0xffff;
+                            if (numLocations == 0) {
+                                // an entire chunk full of air can happen in the end
+                                numLocations = 65536;
+                            }
+                            for (int j = 0; j < numLocations; j++) {
+                                byte xz = in.readByte();
+                                int X = xz & 0x0f;
+                                int Z = (xz >>> 4) & 0x0f;
+                                int Y = in.readInt();
+                                locs.add(new BlockPos(X, Y+dimension.minY(), Z));
+                            }
                         }
                     }
                 }
             }
-            removeExpired();
-            hasUnsavedChanges = false;
-            long end = System.nanoTime() / 1000000L;
-            System.out.println("Loaded region successfully in " + (end - start) + "ms");
-        } catch (Exception ex) { // corrupted files can cause NullPointerExceptions as well as IOExceptions
-            ex.printStackTrace();
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    if (present[x][z]) {
+                        cacheTimestamp[x][z] = in.readLong();
+                    }
+                }
+            }
+            CachedChunk[][] loaded = new CachedChunk[32][32];
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    if (present[x][z]) {
+                        int regionX = this.x;
+                        int regionZ = this.z;
+                        int chunkX = x + 32 * regionX;
+                        int chunkZ = z + 32 * regionZ;
+                        loaded[x][z] = new CachedChunk(chunkX, chunkZ, dimension.height(), bitSets[x][z], overview[x][z], location[x][z], cacheTimestamp[x][z]);
+                    }
+                }
+            }
+            return loaded;
         }
     }
 
@@ -316,27 +664,29 @@ public final class CachedRegion implements ICachedRegion {
         long oldestAcceptableAge = now - expiry * 1000L;
         for (int x = 0; x < 32; x++) {
             for (int z = 0; z < 32; z++) {
-                if (this.chunks[x][z] != null && this.chunks[x][z].cacheTimestamp < oldestAcceptableAge) {
-                    System.out.println("Removing chunk " + (x + 32 * this.x) + "," + (z + 32 * this.z) + " because it was cached " + (now - this.chunks[x][z].cacheTimestamp) / 1000L + " seconds ago, and max age is " + expiry);
-                    this.chunks[x][z] = null;
+                if (isPresent(x, z) && getTimestamp(x, z) < oldestAcceptableAge) {
+                    System.out.println("Removing chunk " + (x + 32 * this.x) + "," + (z + 32 * this.z) + " because it was cached " + (now - getTimestamp(x, z)) / 1000L + " seconds ago, and max age is " + expiry);
+                    remove(x, z);
                 }
             }
         }
     }
 
     public synchronized final CachedChunk mostRecentlyModified() {
-        CachedChunk recent = null;
+        int recentX = -1;
+        int recentZ = -1;
         for (int x = 0; x < 32; x++) {
             for (int z = 0; z < 32; z++) {
-                if (this.chunks[x][z] == null) {
+                if (!isPresent(x, z)) {
                     continue;
                 }
-                if (recent == null || this.chunks[x][z].cacheTimestamp > recent.cacheTimestamp) {
-                    recent = this.chunks[x][z];
+                if (recentX == -1 || getTimestamp(x, z) > getTimestamp(recentX, recentZ)) {
+                    recentX = x;
+                    recentZ = z;
                 }
             }
         }
-        return recent;
+        return recentX == -1 ? null : getChunk(recentX, recentZ);
     }
 
     /**
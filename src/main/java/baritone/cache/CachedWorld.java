@@ -22,22 +22,33 @@ import baritone.api.BaritoneAPI;
 import baritone.api.IBaritone;
 import baritone.api.cache.ICachedWorld;
 import baritone.api.cache.IWorldData;
+import baritone.api.pathing.goals.Goal;
+import baritone.api.utils.BetterBlockPos;
 import baritone.api.utils.Helper;
-import com.google.common.cache.CacheBuilder;
-import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import baritone.api.utils.interfaces.IGoalRenderPos;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.chunk.LevelChunk;
 import net.minecraft.world.level.dimension.DimensionType;
 
 import java.io.IOException;
+import java.lang.ref.SoftReference;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongToDoubleFunction;
 
 /**
  * @author Brady
@@ -51,9 +62,34 @@ public final class CachedWorld implements ICachedWorld, Helper {
     private static final int REGION_MAX = 30_000_000 / 512 + 1;
 
     /**
-     * A map of all of the cached regions.
+     * How many regions {@link #prefetchRegion} loads at once. Any more are ignored, they'll be asked for again
      */
-    private Long2ObjectMap<CachedRegion> cachedRegions = new Long2ObjectOpenHashMap<>();
+    private static final int MAX_PREFETCHES_IN_FLIGHT = 2;
+
+    /**
+     * A map of all of the cached regions in RAM. It's never modified once published, changes replace it with a modified
+     * copy while holding the lock on this world, so that lookups never have to take the lock.
+     */
+    private volatile Long2ObjectOpenHashMap<CachedRegion> cachedRegions = new Long2ObjectOpenHashMap<>();
+
+    private final LongAdder regionHits = new LongAdder();
+
+    private final LongAdder regionMisses = new LongAdder();
+
+    private final AtomicLong regionsEvicted = new AtomicLong();
+
+    private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+
+    /**
+     * The regions being loaded in the background by {@link #prefetchRegion}, which are not cached until they're done
+     */
+    private final LongSet prefetching = new LongOpenHashSet();
+
+    /**
+     * Every region being read from disk, prefetched or not, by region id. Anything else that needs one of these waits
+     * for it instead of reading the same file again. Guarded by the lock on this world
+     */
+    private final Long2ObjectOpenHashMap<CompletableFuture<CachedRegion>> loading = new Long2ObjectOpenHashMap<>();
 
     /**
      * The directory that the cached region files are saved to
@@ -61,19 +97,39 @@ public final class CachedWorld implements ICachedWorld, Helper {
     private final String directory;
 
     /**
-     * Queue of positions to pack. Refers to the toPackMap, in that every element of this queue will be a
-     * key in that map.
+     * All chunks pending packing or having block changes applied. A chunk is merged in-place with any new update to it
+     * that occurs while waiting in the queue for a packer thread to get to it.
+     */
+    private final PackerQueue<PackerTask> toPack = new PackerQueue<>();
+
+    /**
+     * How many chunks the packer threads have packed
+     */
+    private final AtomicLong packed = new AtomicLong();
+
+    /**
+     * How many chunks the packer threads skipped because they hadn't changed since they were last packed
+     */
+    private final AtomicLong unchanged = new AtomicLong();
+
+    /**
+     * The chunks that {@link #toPack} is currently prioritized around, sorted. Only used on the game thread
      */
-    private final LinkedBlockingQueue<ChunkPos> toPackQueue = new LinkedBlockingQueue<>();
+    private long[] packingFocus = new long[0];
 
     /**
-     * All chunk positions pending packing. This map will be updated in-place if a new update to the chunk occurs
-     * while waiting in the queue for the packer thread to get to it.
+     * The {@link CachedChunk#trackedGeneration} that the loaded chunks of this world were last packed with. Only used
+     * on the game thread
      */
-    private final Map<ChunkPos, LevelChunk> toPackMap = CacheBuilder.newBuilder().softValues().<ChunkPos, LevelChunk>build().asMap();
+    private int trackedGeneration = CachedChunk.trackedGeneration();
 
     private final DimensionType dimension;
 
+    /**
+     * Chunk level connectivity of the cached chunks, used by the hierarchical planner
+     */
+    private final ChunkGraph chunkGraph;
+
     CachedWorld(Path directory, DimensionType dimension) {
         if (!Files.exists(directory)) {
             try {
@@ -83,8 +139,11 @@ public final class CachedWorld implements ICachedWorld, Helper {
         }
         this.directory = directory.toString();
         this.dimension = dimension;
+        this.chunkGraph = new ChunkGraph(this, dimension.minY());
         System.out.println("Cached world directory: " + directory);
-        Baritone.getExecutor().execute(new PackerThread());
+        for (int i = 0; i < Math.max(1, Baritone.settings().chunkPackerThreads.value); i++) {
+            Baritone.getExecutor().execute(new PackerThread());
+        }
         Baritone.getExecutor().execute(() -> {
             try {
                 Thread.sleep(30000);
@@ -103,9 +162,137 @@ public final class CachedWorld implements ICachedWorld, Helper {
 
     @Override
     public final void queueForPacking(LevelChunk chunk) {
-        if (toPackMap.put(chunk.getPos(), chunk) == null) {
-            toPackQueue.add(chunk.getPos());
+        toPack.offer(chunk.getPos().toLong(), new PackerTask(new SoftReference<>(chunk), null), Baritone.settings().chunkPackerQueueMaxSize.value, PackerTask::merge);
+    }
+
+    /**
+     * Queues block changes for a packer thread to apply to the cached copy of a chunk, which packs the whole chunk
+     * instead if it isn't cached yet. Applying them takes the lock on the region, which saving holds for as long as it
+     * takes to write the file, so this doesn't happen on the calling thread.
+     *
+     * @param chunk   The chunk, with the changes already applied
+     * @param changed The positions that changed, all within the chunk
+     */
+    public final void applyBlockChanges(LevelChunk chunk, List<BlockPos> changed) {
+        toPack.offer(chunk.getPos().toLong(), new PackerTask(new SoftReference<>(chunk), new ArrayList<>(changed)), Baritone.settings().chunkPackerQueueMaxSize.value, PackerTask::merge);
+    }
+
+    /**
+     * @return Whether the block changes were applied, false if the chunk isn't cached and has to be packed instead
+     */
+    private boolean applyQueuedChanges(LevelChunk chunk, List<BlockPos> changed) {
+        ChunkPos pos = chunk.getPos();
+        CachedChunk updated;
+        CachedRegion region;
+        do {
+            region = getOrCreateRegion(pos.x >> 5, pos.z >> 5);
+            updated = region.updateCachedChunk(pos.x & 31, pos.z & 31, cached -> ChunkPacker.applyChanges(cached, chunk, changed));
+            // evicted since it was looked up, so apply them to the copy that's loaded again instead
+        } while (updated == null && region.isEvicted());
+        if (updated == null) {
+            return false;
         }
+        if (Baritone.settings().pathingHierarchical.value) {
+            chunkGraph.update(updated);
+        }
+        return true;
+    }
+
+    /**
+     * @return How many chunks have been packed since this world was loaded
+     */
+    public final long getChunksPacked() {
+        return packed.get();
+    }
+
+    /**
+     * @return How many chunks weren't packed again because they were the same as when they were last packed
+     */
+    public final long getChunksUnchanged() {
+        return unchanged.get();
+    }
+
+    /**
+     * @return How many chunks were discarded without being packed, because the queue was full or they were unloaded
+     */
+    public final long getChunksDropped() {
+        return toPack.dropped();
+    }
+
+    /**
+     * @return How many chunks were queued again before a packer got to them, and so only packed once
+     */
+    public final long getChunksCoalesced() {
+        return toPack.coalesced();
+    }
+
+    /**
+     * Catches this world up with any change to the tracked blocks. Every baritone on this world calls it, but only the
+     * first to do so after a change is told to repack.
+     *
+     * @return Whether the tracked blocks changed since the loaded chunks of this world were packed
+     */
+    public final boolean updateTrackedGeneration() {
+        int generation = CachedChunk.trackedGeneration();
+        if (generation == trackedGeneration) {
+            return false;
+        }
+        trackedGeneration = generation;
+        return true;
+    }
+
+    /**
+     * Works out which chunks packing should focus on, and reprioritizes the queued chunks if they've changed. The
+     * chunks that should be packed first are the ones the player is in or about to path through, so a chunk's priority
+     * is its squared distance, in chunks, to the nearest of the player, the current path and the goal. Called every
+     * tick, on the game thread, so that the packers never have to look at the player or the path themselves.
+     */
+    public final void updatePackingFocus() {
+        LongOpenHashSet focus = new LongOpenHashSet();
+        for (IBaritone ibaritone : BaritoneAPI.getProvider().getAllBaritones()) {
+            IWorldData data = ibaritone.getWorldProvider().getCurrentWorld();
+            if (data == null || data.getCachedWorld() != this || ibaritone.getPlayerContext().player() == null) {
+                continue;
+            }
+            focus.add(ChunkPos.asLong(ibaritone.getPlayerContext().playerFeet()));
+            ibaritone.getPathingBehavior().getPath().ifPresent(path -> {
+                for (BetterBlockPos pos : path.positions()) {
+                    focus.add(ChunkPos.asLong(pos));
+                }
+            });
+            Goal goal = ibaritone.getPathingBehavior().getGoal();
+            if (goal instanceof IGoalRenderPos) {
+                focus.add(ChunkPos.asLong(((IGoalRenderPos) goal).getGoalPos()));
+            }
+        }
+        long[] targets = focus.toLongArray();
+        Arrays.sort(targets);
+        if (Arrays.equals(targets, packingFocus)) {
+            return;
+        }
+        packingFocus = targets;
+        toPack.prioritize(packingPriority(targets));
+    }
+
+    /**
+     * @param targets The chunks to focus on, as longs
+     * @return The packing priority of a chunk position, lower is packed sooner
+     */
+    private static LongToDoubleFunction packingPriority(long[] targets) {
+        if (targets.length == 0) {
+            return pos -> 0;
+        }
+        return pos -> {
+            int x = ChunkPos.getX(pos);
+            int z = ChunkPos.getZ(pos);
+            double best = Double.MAX_VALUE;
+            for (long target : targets) {
+                double dx = x - ChunkPos.getX(target);
+                double dz = z - ChunkPos.getZ(target);
+                best = Math.min(best, dx * dx + dz * dz);
+            }
+            return best;
+        };
     }
 
     @Override
@@ -123,7 +310,11 @@ public final class CachedWorld implements ICachedWorld, Helper {
 
     @Override
     public final ArrayList<BlockPos> getLocationsOf(String block, int maximum, int centerX, int centerZ, int maxRegionDistanceSq) {
-        ArrayList<BlockPos> res = new ArrayList<>();
+        // a block that's no longer tracked stays in the older records until they're packed again
+        if (maximum <= 0 || !CachedChunk.isTracked(block)) {
+            return new ArrayList<>();
+        }
+        NearestLocations found = new NearestLocations(centerX, centerZ, maximum);
         int centerRegionX = centerX >> 9;
         int centerRegionZ = centerZ >> 9;
 
@@ -137,24 +328,42 @@ public final class CachedWorld implements ICachedWorld, Helper {
                     }
                     int regionX = xoff + centerRegionX;
                     int regionZ = zoff + centerRegionZ;
-                    CachedRegion region = getOrCreateRegion(regionX, regionZ);
+                    if (found.isFull() && found.distSq(regionX << 9, regionZ << 9, (regionX << 9) + 511, (regionZ << 9) + 511) >= found.bound()) {
+                        continue;
+                    }
+                    // a region that's still loading in the background counts as not cached, rather than waiting for it
+                    CachedRegion region = isPrefetching(regionX, regionZ) ? null : getOrCreateRegion(regionX, regionZ);
                     if (region != null) {
-                        // TODO: 100% verify if this or addAll is faster.
-                        res.addAll(region.getLocationsOf(block));
+                        region.addLocationsOf(block, found);
                     }
                 }
             }
-            if (res.size() >= maximum) {
-                return res;
+            if (found.isFull()) {
+                // every region further out is at least this many regions away from the center one along some axis
+                long regionsAway = (long) Math.ceil(Math.sqrt((searchRadius + 1) / 2.0D));
+                long closestFurther = Math.max(0, regionsAway - 1) * 512;
+                if (found.bound() <= closestFurther * closestFurther) {
+                    break;
+                }
             }
             searchRadius++;
         }
+        long[] nearest = found.toSortedArray();
+        ArrayList<BlockPos> res = new ArrayList<>(nearest.length);
+        for (long pos : nearest) {
+            res.add(BlockPos.of(pos));
+        }
         return res;
     }
 
-    private void updateCachedChunk(CachedChunk chunk) {
-        CachedRegion region = getOrCreateRegion(chunk.x >> 5, chunk.z >> 5);
-        region.updateCachedChunk(chunk.x & 31, chunk.z & 31, chunk);
+    private void updateCachedChunk(CachedChunk chunk, long fingerprint) {
+        while (true) {
+            CachedRegion region = getOrCreateRegion(chunk.x >> 5, chunk.z >> 5);
+            if (region.updateCachedChunk(chunk.x & 31, chunk.z & 31, chunk, fingerprint)) {
+                return;
+            }
+            // evicted since it was looked up, so it goes in the copy that's loaded again instead
+        }
     }
 
     @Override
@@ -166,7 +375,7 @@ public final class CachedWorld implements ICachedWorld, Helper {
                     region.removeExpired();
                 }
             }); // even if we aren't saving to disk, still delete expired old chunks from RAM
-            prune();
+            evictOverBudget();
             return;
         }
         long start = System.nanoTime() / 1000000L;
@@ -177,61 +386,97 @@ public final class CachedWorld implements ICachedWorld, Helper {
         });
         long now = System.nanoTime() / 1000000L;
         System.out.println("World save took " + (now - start) + "ms");
-        prune();
+        System.out.println("Chunks packed: " + getChunksPacked() + ", unchanged: " + getChunksUnchanged() + ", dropped: " + getChunksDropped() + ", coalesced: " + getChunksCoalesced());
+        evictOverBudget();
+        System.out.println("Regions in RAM: " + getResidentBytes() / 1024 + "KiB, hits: " + getRegionHits() + ", misses: " + getRegionMisses() + ", evicted: " + getRegionsEvicted());
     }
 
     /**
-     * Delete regions that are too far from the player
+     * Saves and removes the least recently used regions from RAM until the rest fit in the memory budget. The most
+     * recently used region always stays.
      */
-    private synchronized void prune() {
+    private void evictOverBudget() {
         if (!Baritone.settings().pruneRegionsFromRAM.value) {
             return;
         }
-        BlockPos pruneCenter = guessPosition();
-        for (CachedRegion region : allRegions()) {
-            if (region == null) {
-                continue;
+        long budget = Baritone.settings().cachedRegionsMemoryBudgetMB.value * 1024L * 1024L;
+        List<CachedRegion> victims = new ArrayList<>();
+        List<CachedRegion> regions = allRegions();
+        // most recently used first, as of now, since lookups carry on while sorting
+        Object2LongMap<CachedRegion> accessed = new Object2LongOpenHashMap<>();
+        regions.forEach(region -> accessed.put(region, region.lastAccessed()));
+        regions.sort(Comparator.comparingLong(accessed::getLong).reversed());
+        long resident = 0;
+        for (int i = 0; i < regions.size(); i++) {
+            resident += regions.get(i).estimatedBytes();
+            if (resident > budget && i != 0) {
+                victims.add(regions.get(i));
+            }
+        }
+        boolean saving = Baritone.settings().chunkCaching.value;
+        for (CachedRegion region : victims) {
+            // dirty regions are written out first, and outside of the lock, so that lookups don't wait on the disk
+            if (saving) {
+                region.save(this.directory);
             }
-            int distX = ((region.getX() << 9) + 256) - pruneCenter.getX();
-            int distZ = ((region.getZ() << 9) + 256) - pruneCenter.getZ();
-            double dist = Math.sqrt(distX * distX + distZ * distZ);
-            if (dist > 1024) {
-                logDebug("Deleting cached region from ram");
-                cachedRegions.remove(getRegionID(region.getX(), region.getZ()));
+            // the region's lock is held from the check until it's marked evicted, so that nothing can be changed in it in
+            // between and then be lost along with it
+            synchronized (region) {
+                synchronized (this) {
+                    long id = getRegionID(region.getX(), region.getZ());
+                    // if it's been changed again while saving, it'll have to wait for the next eviction
+                    if (cachedRegions.get(id) == region && !(saving && region.hasUnsavedChanges())) {
+                        logDebug("Deleting cached region from ram");
+                        Long2ObjectOpenHashMap<CachedRegion> copy = cachedRegions.clone();
+                        copy.remove(id);
+                        cachedRegions = copy;
+                        region.evict();
+                        chunkGraph.removeRegion(region.getX(), region.getZ());
+                        regionsEvicted.incrementAndGet();
+                    }
+                }
             }
         }
     }
 
+    private void scheduleEviction() {
+        if (evictionScheduled.compareAndSet(false, true)) {
+            Baritone.getExecutor().execute(() -> {
+                evictionScheduled.set(false);
+                evictOverBudget();
+            });
+        }
+    }
+
     /**
-     * If we are still in this world and dimension, return player feet, otherwise return most recently modified chunk
+     * @return Roughly how many bytes the regions of this world currently in RAM take up
      */
-    private BlockPos guessPosition() {
-        for (IBaritone ibaritone : BaritoneAPI.getProvider().getAllBaritones()) {
-            IWorldData data = ibaritone.getWorldProvider().getCurrentWorld();
-            if (data != null && data.getCachedWorld() == this && ibaritone.getPlayerContext().player() != null) {
-                return ibaritone.getPlayerContext().playerFeet();
-            }
-        }
-        CachedChunk mostRecentlyModified = null;
-        for (CachedRegion region : allRegions()) {
-            if (region == null) {
-                continue;
-            }
-            CachedChunk ch = region.mostRecentlyModified();
-            if (ch == null) {
-                continue;
-            }
-            if (mostRecentlyModified == null || mostRecentlyModified.cacheTimestamp < ch.cacheTimestamp) {
-                mostRecentlyModified = ch;
-            }
-        }
-        if (mostRecentlyModified == null) {
-            return new BlockPos(0, 0, 0);
-        }
-        return new BlockPos((mostRecentlyModified.x << 4) + 8, 0, (mostRecentlyModified.z << 4) + 8);
+    public final long getResidentBytes() {
+        return allRegions().stream().mapToLong(CachedRegion::estimatedBytes).sum();
+    }
+
+    /**
+     * @return How many times a region was looked up and was already in RAM
+     */
+    public final long getRegionHits() {
+        return regionHits.sum();
+    }
+
+    /**
+     * @return How many times a region was looked up and wasn't in RAM
+     */
+    public final long getRegionMisses() {
+        return regionMisses.sum();
     }
 
-    private synchronized List<CachedRegion> allRegions() {
+    /**
+     * @return How many regions have been removed from RAM to stay within the memory budget
+     */
+    public final long getRegionsEvicted() {
+        return regionsEvicted.get();
+    }
+
+    private List<CachedRegion> allRegions() {
         return new ArrayList<>(this.cachedRegions.values());
     }
 
@@ -248,8 +493,15 @@ public final class CachedWorld implements ICachedWorld, Helper {
     }
 
     @Override
-    public final synchronized CachedRegion getRegion(int regionX, int regionZ) {
-        return cachedRegions.get(getRegionID(regionX, regionZ));
+    public final CachedRegion getRegion(int regionX, int regionZ) {
+        CachedRegion region = cachedRegions.get(getRegionID(regionX, regionZ));
+        if (region == null) {
+            regionMisses.increment();
+            return null;
+        }
+        regionHits.increment();
+        region.touch();
+        return region;
     }
 
     /**
@@ -260,12 +512,106 @@ public final class CachedWorld implements ICachedWorld, Helper {
      * @param regionZ The region Z coordinate
      * @return The region located at the specified coordinates
      */
-    private synchronized CachedRegion getOrCreateRegion(int regionX, int regionZ) {
-        return cachedRegions.computeIfAbsent(getRegionID(regionX, regionZ), id -> {
-            CachedRegion newRegion = new CachedRegion(regionX, regionZ, dimension);
-            newRegion.load(this.directory);
-            return newRegion;
-        });
+    private CachedRegion getOrCreateRegion(int regionX, int regionZ) {
+        long id = getRegionID(regionX, regionZ);
+        CachedRegion region = getRegion(regionX, regionZ);
+        if (region != null) {
+            return region;
+        }
+        CompletableFuture<CachedRegion> inFlight;
+        CompletableFuture<CachedRegion> load = null;
+        synchronized (this) {
+            region = cachedRegions.get(id);
+            if (region != null) {
+                region.touch();
+                return region;
+            }
+            inFlight = loading.get(id);
+            if (inFlight == null) {
+                load = new CompletableFuture<>();
+                loading.put(id, load);
+            }
+        }
+        if (inFlight != null) {
+            // another thread, or a prefetch, is reading this region already
+            return inFlight.join();
+        }
+        return load(regionX, regionZ, id, load);
+    }
+
+    /**
+     * Reads a region from disk outside of the lock, so that lookups of other regions don't wait on the disk, and then
+     * caches it and completes the load that's waiting for it.
+     *
+     * @param load The entry for this region in {@link #loading}
+     * @return The region, or the one that was already there if another thread got there first
+     */
+    private CachedRegion load(int regionX, int regionZ, long id, CompletableFuture<CachedRegion> load) {
+        try {
+            CachedRegion loaded = new CachedRegion(regionX, regionZ, dimension);
+            loaded.load(this.directory);
+            CachedRegion region = putIfAbsent(id, loaded);
+            load.complete(region);
+            return region;
+        } catch (RuntimeException | Error ex) {
+            load.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            // only once it's cached, so that there's no moment it's neither cached nor loading
+            synchronized (this) {
+                loading.remove(id);
+                prefetching.remove(id);
+            }
+        }
+    }
+
+    /**
+     * Starts loading a region in the background, if it isn't in RAM or loading already.
+     *
+     * @param regionX The region X coordinate
+     * @param regionZ The region Z coordinate
+     */
+    public final void prefetchRegion(int regionX, int regionZ) {
+        if (!isRegionInWorld(regionX, regionZ)) {
+            return;
+        }
+        long id = getRegionID(regionX, regionZ);
+        CompletableFuture<CachedRegion> load = new CompletableFuture<>();
+        synchronized (this) {
+            if (cachedRegions.containsKey(id) || loading.containsKey(id) || prefetching.size() >= MAX_PREFETCHES_IN_FLIGHT) {
+                return;
+            }
+            prefetching.add(id);
+            loading.put(id, load);
+        }
+        Baritone.getExecutor().execute(() -> load(regionX, regionZ, id, load));
+    }
+
+    private synchronized boolean isPrefetching(int regionX, int regionZ) {
+        return prefetching.contains(getRegionID(regionX, regionZ));
+    }
+
+    /**
+     * @return The region that was already there if another thread loaded it first, otherwise the given one
+     */
+    private CachedRegion putIfAbsent(long id, CachedRegion loaded) {
+        synchronized (this) {
+            CachedRegion region = cachedRegions.get(id);
+            if (region != null) {
+                region.touch();
+                return region;
+            }
+            Long2ObjectOpenHashMap<CachedRegion> copy = cachedRegions.clone();
+            copy.put(id, loaded);
+            loaded.touch();
+            cachedRegions = copy;
+        }
+        scheduleEviction();
+        return loaded;
+    }
+
+    public final ChunkGraph getChunkGraph() {
+        return chunkGraph;
     }
 
     public void tryLoadFromDisk(int regionX, int regionZ) {
@@ -304,13 +650,29 @@ public final class CachedWorld implements ICachedWorld, Helper {
         public void run() {
             while (true) {
                 try {
-                    ChunkPos pos = toPackQueue.take();
-                    LevelChunk chunk = toPackMap.remove(pos);
-                    if (toPackQueue.size() > Baritone.settings().chunkPackerQueueMaxSize.value) {
+                    PackerTask task = toPack.take();
+                    LevelChunk chunk = task.chunk.get();
+                    if (chunk == null) {
+                        // collected while queued, it's been unloaded anyway
+                        toPack.drop();
+                        continue;
+                    }
+                    if (task.changed != null && applyQueuedChanges(chunk, task.changed)) {
+                        continue;
+                    }
+                    ChunkPos pos = chunk.getPos();
+                    long fingerprint = ChunkPacker.fingerprint(chunk);
+                    if (getOrCreateRegion(pos.x >> 5, pos.z >> 5).refreshIfUnchanged(pos.x & 31, pos.z & 31, fingerprint)) {
+                        // walked back into a chunk that's the same as when it was last packed
+                        unchanged.incrementAndGet();
                         continue;
                     }
                     CachedChunk cached = ChunkPacker.pack(chunk);
-                    CachedWorld.this.updateCachedChunk(cached);
+                    CachedWorld.this.updateCachedChunk(cached, fingerprint);
+                    packed.incrementAndGet();
+                    if (Baritone.settings().pathingHierarchical.value) {
+                        chunkGraph.update(cached);
+                    }
                     //System.out.println("Processed chunk at " + chunk.x + "," + chunk.z);
                 } catch (InterruptedException e) {
                     e.printStackTrace();
@@ -322,4 +684,36 @@ public final class CachedWorld implements ICachedWorld, Helper {
             }
         }
     }
+
+    /**
+     * A chunk waiting for a packer thread, either to be packed whole or to have some block changes applied to its cached
+     * copy. Held softly, so that unloaded chunks don't leak if the packers fall behind.
+     */
+    private static final class PackerTask {
+
+        private final SoftReference<LevelChunk> chunk;
+
+        /**
+         * The positions that changed, or null to pack the whole chunk
+         */
+        private final List<BlockPos> changed;
+
+        private PackerTask(SoftReference<LevelChunk> chunk, List<BlockPos> changed) {
+            this.chunk = chunk;
+            this.changed = changed;
+        }
+
+        /**
+         * A chunk that's queued more than once is only handled once, as the newest copy of it with every change
+         * since it was first queued. If either one packs the whole chunk, so does the result
+         */
+        private static PackerTask merge(PackerTask queued, PackerTask offered) {
+            if (queued.changed == null || offered.changed == null) {
+                return offered.changed == null ? offered : new PackerTask(offered.chunk, null);
+            }
+            List<BlockPos> changed = new ArrayList<>(queued.changed);
+            changed.addAll(offered.changed);
+            return new PackerTask(offered.chunk, changed);
+        }
+    }
 }
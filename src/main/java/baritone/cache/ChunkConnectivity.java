@@ -0,0 +1,412 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import baritone.utils.pathing.PathingBlockType;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Coarse summary of how a cached chunk can be walked through: the walkable openings ("entrances") along each of its
+ * four borders, and how many steps it takes to get from one entrance to another without leaving the chunk.
+ * <p>
+ * This only looks at the 2 bit pathing types in a {@link CachedChunk}, so it's an approximation. A position is
+ * standable if the feet and head blocks are air or water and it's either on top of something solid or in water.
+ * Moves are one block horizontally, stepping up one or dropping up to {@link #MAX_DROP} blocks.
+ */
+public final class ChunkConnectivity {
+
+    /**
+     * Border of the chunk at local z = 0
+     */
+    public static final int NORTH = 0;
+    /**
+     * Border of the chunk at local z = 15
+     */
+    public static final int SOUTH = 1;
+    /**
+     * Border of the chunk at local x = 0
+     */
+    public static final int WEST = 2;
+    /**
+     * Border of the chunk at local x = 15
+     */
+    public static final int EAST = 3;
+
+    /**
+     * Most entrances kept per chunk, the largest ones win. Bounds the size of the step table to 4 KiB
+     */
+    public static final int MAX_ENTRANCES = 32;
+
+    /**
+     * Furthest drop considered walkable
+     */
+    public static final int MAX_DROP = 3;
+
+    public final int chunkX;
+    public final int chunkZ;
+    public final int minY;
+    public final int height;
+
+    /**
+     * {@link CachedChunk#cacheTimestamp} of the chunk this was computed from
+     */
+    public final long sourceTimestamp;
+
+    private final int[] side;
+    private final int[] x;
+    private final int[] y;
+    private final int[] z;
+    private final int[] spanLo;
+    private final int[] spanHi;
+    private final int[] yLo;
+    private final int[] yHi;
+
+    /**
+     * Row major {@code n * n} table of steps from entrance i to entrance j, infinity if not connected
+     */
+    private final float[] steps;
+
+    private ChunkConnectivity(int chunkX, int chunkZ, int minY, int height, long sourceTimestamp, List<Entrance> entrances, float[] steps) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.minY = minY;
+        this.height = height;
+        this.sourceTimestamp = sourceTimestamp;
+        int n = entrances.size();
+        this.side = new int[n];
+        this.x = new int[n];
+        this.y = new int[n];
+        this.z = new int[n];
+        this.spanLo = new int[n];
+        this.spanHi = new int[n];
+        this.yLo = new int[n];
+        this.yHi = new int[n];
+        for (int i = 0; i < n; i++) {
+            Entrance e = entrances.get(i);
+            side[i] = e.side;
+            x[i] = (chunkX << 4) + e.localX;
+            y[i] = e.y + minY;
+            z[i] = (chunkZ << 4) + e.localZ;
+            spanLo[i] = e.spanLo;
+            spanHi[i] = e.spanHi;
+            yLo[i] = e.yLo + minY;
+            yHi[i] = e.yHi + minY;
+        }
+        this.steps = steps;
+    }
+
+    public static ChunkConnectivity of(CachedChunk chunk, int minY) {
+        return compute(chunk.x, chunk.z, minY, chunk.height, chunk.cacheTimestamp, chunk::getPathingType);
+    }
+
+    /**
+     * @param types Pathing type lookup in chunk local coordinates, with y starting at 0 for the bottom of the world
+     */
+    public static ChunkConnectivity compute(int chunkX, int chunkZ, int minY, int height, long sourceTimestamp, TypeLookup types) {
+        Cells cells = new Cells(types, height);
+        List<Entrance> entrances = new ArrayList<>();
+        for (int s = 0; s < 4; s++) {
+            findEntrances(cells, s, entrances);
+        }
+        if (entrances.size() > MAX_ENTRANCES) {
+            entrances.sort((a, b) -> b.size - a.size);
+            entrances = new ArrayList<>(entrances.subList(0, MAX_ENTRANCES));
+        }
+        int n = entrances.size();
+        float[] steps = new float[n * n];
+        for (int i = 0; i < n; i++) {
+            int[] dist = cells.distances(entrances.get(i).cell);
+            for (int j = 0; j < n; j++) {
+                int d = dist[entrances.get(j).cell];
+                steps[i * n + j] = d < 0 ? Float.POSITIVE_INFINITY : d;
+            }
+        }
+        return new ChunkConnectivity(chunkX, chunkZ, minY, height, sourceTimestamp, entrances, steps);
+    }
+
+    private static void findEntrances(Cells cells, int s, List<Entrance> out) {
+        List<Entrance> open = new ArrayList<>();
+        List<Entrance> extended = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            int localX = s == WEST ? 0 : s == EAST ? 15 : t;
+            int localZ = s == NORTH ? 0 : s == SOUTH ? 15 : t;
+            extended.clear();
+            for (int cellY : cells.column(localX, localZ)) {
+                Entrance cluster = null;
+                for (Entrance e : open) {
+                    if (!extended.contains(e) && Math.abs(e.lastY - cellY) <= 1) {
+                        cluster = e;
+                        break;
+                    }
+                }
+                if (cluster == null) {
+                    cluster = new Entrance(s, t, cellY);
+                    out.add(cluster);
+                }
+                cluster.add(t, cellY, cells.id(localX, cellY, localZ));
+                extended.add(cluster);
+            }
+            open.clear();
+            open.addAll(extended);
+        }
+        for (Entrance e : out) {
+            if (e.side == s) {
+                e.pickRepresentative(cells);
+            }
+        }
+    }
+
+    public int entranceCount() {
+        return side.length;
+    }
+
+    /**
+     * @return Which border entrance i is on, one of {@link #NORTH}, {@link #SOUTH}, {@link #WEST} or {@link #EAST}
+     */
+    public int side(int i) {
+        return side[i];
+    }
+
+    public int x(int i) {
+        return x[i];
+    }
+
+    public int y(int i) {
+        return y[i];
+    }
+
+    public int z(int i) {
+        return z[i];
+    }
+
+    /**
+     * @return Steps needed to walk from entrance i to entrance j inside this chunk, infinity if it isn't possible
+     */
+    public float steps(int i, int j) {
+        return steps[i * side.length + j];
+    }
+
+    /**
+     * Whether entrance i of this chunk leads into entrance j of a chunk bordering it on {@link #side(int) side(i)}.
+     * The openings have to overlap along the border and be within a step up or a {@link #MAX_DROP drop} of each other.
+     */
+    public boolean connects(int i, ChunkConnectivity other, int j) {
+        if (other.side[j] != (side[i] ^ 1)) {
+            return false;
+        }
+        if (spanLo[i] > other.spanHi[j] || other.spanLo[j] > spanHi[i]) {
+            return false;
+        }
+        return other.yLo[j] <= yHi[i] + 1 && other.yHi[j] >= yLo[i] - MAX_DROP;
+    }
+
+    /**
+     * Steps from the nearest standable position to x, y, z (world coordinates, searching a couple blocks down) to each
+     * entrance of this chunk. Recomputes the standable positions, so the caller needs the chunk contents.
+     *
+     * @return Steps per entrance, infinity where unreachable, or null if there's nowhere to stand near x, y, z
+     */
+    public float[] stepsFrom(TypeLookup types, int x, int y, int z) {
+        Cells cells = new Cells(types, height);
+        int localX = x & 15;
+        int localZ = z & 15;
+        int start = -1;
+        for (int cellY = y - minY; cellY >= y - minY - MAX_DROP && start < 0; cellY--) {
+            start = cells.id(localX, cellY, localZ);
+        }
+        if (start < 0) {
+            return null;
+        }
+        int[] dist = cells.distances(start);
+        float[] result = new float[side.length];
+        for (int i = 0; i < side.length; i++) {
+            int cell = cells.id(this.x[i] & 15, this.y[i] - minY, this.z[i] & 15);
+            result[i] = cell < 0 || dist[cell] < 0 ? Float.POSITIVE_INFINITY : dist[cell];
+        }
+        return result;
+    }
+
+    @FunctionalInterface
+    public interface TypeLookup {
+
+        PathingBlockType get(int x, int y, int z);
+    }
+
+    private static final class Entrance {
+
+        private final int side;
+        private final int spanLo;
+        private int spanHi;
+        private int yLo;
+        private int yHi;
+        private int lastY;
+        private int size;
+        private final IntArrayList cells = new IntArrayList();
+        private int cell;
+        private int localX;
+        private int y;
+        private int localZ;
+
+        private Entrance(int side, int t, int y) {
+            this.side = side;
+            this.spanLo = t;
+            this.spanHi = t;
+            this.yLo = y;
+            this.yHi = y;
+        }
+
+        private void add(int t, int cellY, int cellId) {
+            spanHi = t;
+            yLo = Math.min(yLo, cellY);
+            yHi = Math.max(yHi, cellY);
+            lastY = cellY;
+            size++;
+            cells.add(cellId);
+        }
+
+        private void pickRepresentative(Cells grid) {
+            cell = cells.getInt(cells.size() / 2);
+            int key = grid.key(cell);
+            localX = key & 15;
+            localZ = (key >> 4) & 15;
+            y = key >>> 8;
+        }
+    }
+
+    /**
+     * The standable positions of one chunk and the walking graph between them
+     */
+    private static final class Cells {
+
+        private final TypeLookup types;
+        private final int height;
+        private final Int2IntOpenHashMap ids = new Int2IntOpenHashMap();
+        private final IntArrayList keys = new IntArrayList();
+        private final IntArrayList[] columns = new IntArrayList[256];
+
+        private Cells(TypeLookup types, int height) {
+            this.types = types;
+            this.height = height;
+            ids.defaultReturnValue(-1);
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    IntArrayList column = new IntArrayList();
+                    boolean below = solid(x, 0, z);
+                    boolean feet = passable(x, 1, z);
+                    for (int y = 1; y < height; y++) {
+                        boolean head = passable(x, y + 1, z);
+                        if (feet && head && (below || types.get(x, y, z) == PathingBlockType.WATER)) {
+                            ids.put(x | z << 4 | y << 8, keys.size());
+                            keys.add(x | z << 4 | y << 8);
+                            column.add(y);
+                        }
+                        below = !feet && solid(x, y, z);
+                        feet = head;
+                    }
+                    columns[z << 4 | x] = column;
+                }
+            }
+        }
+
+        private boolean passable(int x, int y, int z) {
+            if (y >= height) {
+                return true;
+            }
+            if (y < 0) {
+                return false;
+            }
+            PathingBlockType type = types.get(x, y, z);
+            return type == PathingBlockType.AIR || type == PathingBlockType.WATER;
+        }
+
+        private boolean solid(int x, int y, int z) {
+            return y >= 0 && y < height && types.get(x, y, z) == PathingBlockType.SOLID;
+        }
+
+        private IntArrayList column(int x, int z) {
+            return columns[z << 4 | x];
+        }
+
+        private int id(int x, int y, int z) {
+            return ids.get(x | z << 4 | y << 8);
+        }
+
+        private int key(int cell) {
+            return keys.getInt(cell);
+        }
+
+        /**
+         * Breadth first search over the standable positions
+         *
+         * @return Steps from the start cell to every cell, -1 if unreachable
+         */
+        private int[] distances(int start) {
+            int[] dist = new int[keys.size()];
+            Arrays.fill(dist, -1);
+            dist[start] = 0;
+            int[] queue = new int[keys.size()]; // every cell is queued at most once
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = start;
+            while (head < tail) {
+                int cell = queue[head++];
+                int key = keys.getInt(cell);
+                int x = key & 15;
+                int z = (key >> 4) & 15;
+                int y = key >>> 8;
+                for (int dir = 0; dir < 4; dir++) {
+                    int nx = x + (dir == 2 ? -1 : dir == 3 ? 1 : 0);
+                    int nz = z + (dir == 0 ? -1 : dir == 1 ? 1 : 0);
+                    if (nx < 0 || nx > 15 || nz < 0 || nz > 15) {
+                        continue;
+                    }
+                    tail = visit(dist, queue, tail, dist[cell], id(nx, y, nz));
+                    if (passable(x, y + 2, z)) {
+                        tail = visit(dist, queue, tail, dist[cell], id(nx, y + 1, nz));
+                    }
+                    if (passable(nx, y, nz) && passable(nx, y + 1, nz)) {
+                        for (int ny = y - 1; ny >= y - MAX_DROP; ny--) {
+                            int below = id(nx, ny, nz);
+                            if (below >= 0) {
+                                tail = visit(dist, queue, tail, dist[cell], below);
+                                break;
+                            }
+                            if (!passable(nx, ny, nz)) {
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+            return dist;
+        }
+
+        private static int visit(int[] dist, int[] queue, int tail, int from, int cell) {
+            if (cell >= 0 && dist[cell] < 0) {
+                dist[cell] = from + 1;
+                queue[tail++] = cell;
+            }
+            return tail;
+        }
+    }
+}
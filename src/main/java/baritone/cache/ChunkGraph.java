@@ -0,0 +1,104 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.world.level.ChunkPos;
+
+import java.util.Iterator;
+
+/**
+ * The {@link ChunkConnectivity} of every cached chunk in a {@link CachedWorld}, for the hierarchical planner.
+ * <p>
+ * Summaries are computed by the packer thread as chunks are packed, and lazily for chunks that were loaded from disk.
+ * A summary is recomputed whenever the chunk it came from has been replaced in the cache.
+ */
+public final class ChunkGraph {
+
+    private final CachedWorld world;
+
+    private final int minY;
+
+    private final Long2ObjectMap<ChunkConnectivity> summaries = new Long2ObjectOpenHashMap<>();
+
+    ChunkGraph(CachedWorld world, int minY) {
+        this.world = world;
+        this.minY = minY;
+    }
+
+    void update(CachedChunk chunk) {
+        ChunkConnectivity summary = ChunkConnectivity.of(chunk, minY);
+        synchronized (this) {
+            summaries.put(ChunkPos.asLong(chunk.x, chunk.z), summary);
+        }
+    }
+
+    /**
+     * @param chunkX The chunk x coordinate
+     * @param chunkZ The chunk z coordinate
+     * @return The connectivity of that chunk, or null if it isn't cached
+     */
+    public ChunkConnectivity get(int chunkX, int chunkZ) {
+        CachedChunk chunk = getCachedChunk(chunkX, chunkZ);
+        if (chunk == null) {
+            return null;
+        }
+        long key = ChunkPos.asLong(chunkX, chunkZ);
+        ChunkConnectivity summary;
+        synchronized (this) {
+            summary = summaries.get(key);
+        }
+        if (summary == null || summary.sourceTimestamp != chunk.cacheTimestamp) {
+            summary = ChunkConnectivity.of(chunk, minY);
+            synchronized (this) {
+                summaries.put(key, summary);
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * @see ChunkConnectivity#stepsFrom(ChunkConnectivity.TypeLookup, int, int, int)
+     */
+    public float[] stepsFrom(ChunkConnectivity summary, int x, int y, int z) {
+        CachedChunk chunk = getCachedChunk(summary.chunkX, summary.chunkZ);
+        if (chunk == null) {
+            return null;
+        }
+        return summary.stepsFrom(chunk::getPathingType, x, y, z);
+    }
+
+    synchronized void removeRegion(int regionX, int regionZ) {
+        Iterator<Long2ObjectMap.Entry<ChunkConnectivity>> it = summaries.long2ObjectEntrySet().iterator();
+        while (it.hasNext()) {
+            ChunkConnectivity summary = it.next().getValue();
+            if (summary.chunkX >> 5 == regionX && summary.chunkZ >> 5 == regionZ) {
+                it.remove();
+            }
+        }
+    }
+
+    private CachedChunk getCachedChunk(int chunkX, int chunkZ) {
+        CachedRegion region = world.getRegion(chunkX >> 5, chunkZ >> 5);
+        if (region == null) {
+            return null;
+        }
+        return region.getChunk(chunkX & 31, chunkZ & 31);
+    }
+}
@@ -19,8 +19,13 @@ package baritone.cache;
 
 import baritone.api.utils.BlockUtils;
 import baritone.pathing.movement.MovementHelper;
+import baritone.utils.accessor.IPalettedContainer;
 import baritone.utils.pathing.PathingBlockType;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import net.minecraft.core.BlockPos;
+import net.minecraft.util.BitStorage;
 import net.minecraft.world.level.block.AirBlock;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.Blocks;
@@ -28,8 +33,10 @@ import net.minecraft.world.level.block.DoublePlantBlock;
 import net.minecraft.world.level.block.FlowerBlock;
 import net.minecraft.world.level.block.TallGrassBlock;
 import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.GlobalPalette;
 import net.minecraft.world.level.chunk.LevelChunk;
 import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.Palette;
 import net.minecraft.world.level.chunk.PalettedContainer;
 import net.minecraft.world.level.dimension.BuiltinDimensionTypes;
 import net.minecraft.world.level.dimension.DimensionType;
@@ -45,6 +52,29 @@ import static baritone.utils.BlockStateInterface.getFromChunk;
  */
 public final class ChunkPacker {
 
+    /**
+     * A water source, which is only {@link PathingBlockType#WATER} depending on its neighbors
+     */
+    private static final int NEIGHBOR_DEPENDENT = 4;
+
+    /**
+     * A block that {@link CachedChunk#isTracked}
+     */
+    private static final int TRACKED = 8;
+
+    /**
+     * Set on every classification, so that it's never 0
+     */
+    private static final int CLASSIFIED = 16;
+
+    private static final int TYPE_AIR = 0;
+
+    /**
+     * A position and its horizontal neighbors
+     */
+    private static final int[] NEIGHBOR_X = {0, 1, -1, 0, 0};
+    private static final int[] NEIGHBOR_Z = {0, 0, 0, 1, -1};
+
     private ChunkPacker() {}
 
     public static CachedChunk pack(LevelChunk chunk) {
@@ -52,43 +82,24 @@ public final class ChunkPacker {
 
         Map<String, List<BlockPos>> specialBlocks = new HashMap<>();
         final int height = chunk.getLevel().dimensionType().height();
-        BitSet bitSet = new BitSet(CachedChunk.size(height));
+        long[][] sections = new long[height / 16][];
+        PathingBlockType[] uniformSections = new PathingBlockType[height / 16];
+        Arrays.fill(uniformSections, PathingBlockType.AIR);
         try {
             LevelChunkSection[] chunkInternalStorageArray = chunk.getSections();
             for (int y0 = 0; y0 < height / 16; y0++) {
                 LevelChunkSection extendedblockstorage = chunkInternalStorageArray[y0];
-                if (extendedblockstorage == null) {
-                    // any 16x16x16 area that's all air will have null storage
+                if (extendedblockstorage == null || extendedblockstorage.hasOnlyAir()) {
+                    // any 16x16x16 area that's all air will have null or empty storage
                     // for example, in an ocean biome, with air from y=64 to y=256
                     // the first 4 extended blocks storages will be full
-                    // and the remaining 12 will be null
+                    // and the remaining 12 will be empty
 
-                    // since the index into the bitset is calculated from the x y and z
-                    // and doesn't function as an append, we can entirely skip the scanning
-                    // since a bitset is initialized to all zero, and air is saved as zeros
+                    // such a section is stored as just the one type, so we can entirely skip the scanning
                     continue;
                 }
-                PalettedContainer<BlockState> bsc = extendedblockstorage.getStates();
                 int yReal = y0 << 4;
-                // the mapping of BlockStateContainer.getIndex from xyz to index is y << 8 | z << 4 | x;
-                // for better cache locality, iterate in that order
-                for (int y1 = 0; y1 < 16; y1++) {
-                    int y = y1 | yReal;
-                    for (int z = 0; z < 16; z++) {
-                        for (int x = 0; x < 16; x++) {
-                            int index = CachedChunk.getPositionIndex(x, y, z);
-                            BlockState state = bsc.get(x, y1, z);
-                            boolean[] bits = getPathingBlockType(state, chunk, x, y, z).getBits();
-                            bitSet.set(index, bits[0]);
-                            bitSet.set(index + 1, bits[1]);
-                            Block block = state.getBlock();
-                            if (CachedChunk.BLOCKS_TO_KEEP_TRACK_OF.contains(block)) {
-                                String name = BlockUtils.blockToString(block);
-                                specialBlocks.computeIfAbsent(name, b -> new ArrayList<>()).add(new BlockPos(x, y+chunk.getMinBuildHeight(), z));
-                            }
-                        }
-                    }
-                }
+                sections[y0] = packSection(extendedblockstorage.getStates(), yReal, (state, x, y, z) -> getPathingBlockType(state, chunk, x, y, z), specialBlocks, chunk.getMinBuildHeight());
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -103,8 +114,7 @@ public final class ChunkPacker {
             https://www.ibm.com/developerworks/library/j-perry-writing-good-java-code/index.html
             for (int x = 0; x < 16; x++) {
                 for (int y = height - 1; y >= 0; y--) {
-                    int index = CachedChunk.getPositionIndex(x, y, z);
-                    if (bitSet.get(index) || bitSet.get(index + 1)) {
+                    if (CachedChunk.getType(sections, uniformSections, CachedChunk.getPositionIndex(x, y, z)) != PathingBlockType.AIR) {
                         blocks[z << 4 | x] = getFromChunk(chunk, x, y, z);
                         continue https;
                     }
@@ -113,11 +123,247 @@ public final class ChunkPacker {
             }
         }
         // @formatter:on
-        return new CachedChunk(chunk.getPos().x, chunk.getPos().z, height, bitSet, blocks, specialBlocks, System.currentTimeMillis());
+        return new CachedChunk(chunk.getPos().x, chunk.getPos().z, height, sections, uniformSections, blocks, specialBlocks, System.currentTimeMillis());
     }
 
-    private static PathingBlockType getPathingBlockType(BlockState state, LevelChunk chunk, int x, int y, int z) {
+    /**
+     * A cheap hash of the palettes and raw storage of every section of a chunk, so that a chunk that comes back
+     * unchanged doesn't have to be packed again. It doesn't cover the neighboring chunks, which only matter to the
+     * flow of water on the edges of this one.
+     *
+     * @param chunk The chunk
+     * @return The fingerprint, or 0 if this chunk can't be fingerprinted and should always be packed
+     */
+    public static long fingerprint(LevelChunk chunk) {
+        // a chunk packed while different blocks were tracked has to be packed again to pick up the new ones
+        long hash = (long) CachedChunk.trackedGeneration() << 32 | chunk.getSections().length;
+        for (LevelChunkSection section : chunk.getSections()) {
+            if (section == null || section.hasOnlyAir()) {
+                hash = HashCommon.mix(hash ^ -1L);
+                continue;
+            }
+            IPalettedContainer<BlockState> container = (IPalettedContainer<BlockState>) section.getStates();
+            Palette<BlockState> palette = container.getPalette();
+            BitStorage storage = container.getStorage();
+            if (storage == null) {
+                return 0;
+            }
+            if (!(palette instanceof GlobalPalette)) { // a global palette's ids are already registry ids
+                for (int i = 0; i < palette.getSize(); i++) {
+                    hash = HashCommon.mix(hash ^ Block.BLOCK_STATE_REGISTRY.getId(palette.valueFor(i)));
+                }
+            }
+            hash = HashCommon.mix(hash ^ storage.getBits());
+            for (long word : storage.getRaw()) {
+                hash = HashCommon.mix(hash ^ word);
+            }
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Applies block changes to an already cached chunk, reclassifying just the changed blocks, and the blocks next to
+     * them since a water source's type depends on its neighbors, rather than packing the whole chunk again.
+     *
+     * @param cached  The chunk as it's cached
+     * @param chunk   The chunk in the world, with the changes already applied
+     * @param changed The positions that changed, all within this chunk
+     * @return The updated chunk
+     */
+    public static CachedChunk applyChanges(CachedChunk cached, LevelChunk chunk, List<BlockPos> changed) {
+        int minY = chunk.getMinBuildHeight();
+        Int2ObjectMap<PathingBlockType> types = new Int2ObjectOpenHashMap<>();
+        BlockState[] overview = cached.getOverview().clone();
+        Map<String, List<BlockPos>> specialBlocks = new HashMap<>();
+        cached.getRelativeBlocks().forEach((name, positions) -> specialBlocks.put(name, new ArrayList<>(positions)));
+        boolean[] columns = new boolean[256];
+        for (BlockPos pos : changed) {
+            int x = pos.getX() & 15;
+            int y = pos.getY() - minY;
+            int z = pos.getZ() & 15;
+            if (y < 0 || y >= cached.height) {
+                continue;
+            }
+            columns[z << 4 | x] = true;
+            for (int i = 0; i < 5; i++) {
+                int nx = x + NEIGHBOR_X[i];
+                int nz = z + NEIGHBOR_Z[i];
+                if (nx >= 0 && nx < 16 && nz >= 0 && nz < 16) {
+                    types.put(CachedChunk.getPositionIndex(nx, y, nz), getPathingBlockType(getFromChunk(chunk, nx, y, nz), chunk, nx, y, nz));
+                }
+            }
+            BlockPos relative = new BlockPos(x, pos.getY(), z);
+            specialBlocks.values().forEach(positions -> positions.remove(relative));
+            Block block = getFromChunk(chunk, x, y, z).getBlock();
+            if (CachedChunk.isTracked(block)) {
+                specialBlocks.computeIfAbsent(BlockUtils.blockToString(block), b -> new ArrayList<>()).add(relative);
+            }
+        }
+        specialBlocks.values().removeIf(List::isEmpty);
+        CachedChunk updated = cached.withChanges(types, overview, specialBlocks, System.currentTimeMillis());
+        // the new chunk isn't shared with anything yet, so its overview can still be filled in
+        for (int i = 0; i < 256; i++) {
+            if (columns[i]) {
+                overview[i] = topBlock(updated, chunk, i & 15, i >> 4);
+            }
+        }
+        return updated;
+    }
+
+    private static BlockState topBlock(CachedChunk cached, LevelChunk chunk, int x, int z) {
+        for (int y = cached.height - 1; y >= 0; y--) {
+            if (cached.getPathingType(x, y, z) != PathingBlockType.AIR) {
+                return getFromChunk(chunk, x, y, z);
+            }
+        }
+        return Blocks.AIR.defaultBlockState();
+    }
+
+    /**
+     * Packs a section by classifying each entry of its palette once, rather than each of its 4096 blocks. Only water
+     * sources depend on their neighbors, those are classified per position by {@code neighborDependent}.
+     *
+     * @param bsc               The section's states
+     * @param yReal             The y of the bottom of the section, counting from the bottom of the world
+     * @param neighborDependent Classifies a water source at a position in the chunk
+     * @param specialBlocks     Where to add any {@link CachedChunk#isTracked} blocks in the section
+     * @param minY              The bottom of the world
+     * @return The section, laid out as in {@link CachedChunk}
+     */
+    static long[] packSection(PalettedContainer<BlockState> bsc, int yReal, NeighborDependent neighborDependent, Map<String, List<BlockPos>> specialBlocks, int minY) {
+        IPalettedContainer<BlockState> container = (IPalettedContainer<BlockState>) bsc;
+        if (container.getStorage() == null) {
+            long[] section = new long[CachedChunk.SECTION_LONGS];
+            for (int i = 0; i < 4096; i++) {
+                int x = i & 15;
+                int y = i >> 8;
+                int z = (i >> 4) & 15;
+                BlockState state = bsc.get(x, y, z);
+                setType(section, i, classify(state, classify(state), x, yReal | y, z, neighborDependent, specialBlocks, minY));
+            }
+            return section;
+        }
+        return packSection(container.getPalette(), container.getStorage(), yReal, neighborDependent, specialBlocks, minY);
+    }
+
+    /**
+     * @see #packSection(PalettedContainer, int, NeighborDependent, Map, int)
+     */
+    static long[] packSection(Palette<BlockState> palette, BitStorage storage, int yReal, NeighborDependent neighborDependent, Map<String, List<BlockPos>> specialBlocks, int minY) {
+        long[] section = new long[CachedChunk.SECTION_LONGS];
+        int bits = storage.getBits();
+        if (bits == 0) {
+            // a single value palette, every block is id 0
+            BlockState state = palette.valueFor(0);
+            int type = classify(state);
+            for (int i = 0; i < 4096; i++) {
+                setType(section, i, classify(state, type, i & 15, yReal | i >> 8, (i >> 4) & 15, neighborDependent, specialBlocks, minY));
+            }
+            return section;
+        }
+        // one class per palette id, classified the first time the id comes up, 0 means not yet
+        byte[] classes = new byte[1 << bits];
+        long[] raw = storage.getRaw();
+        long mask = (1L << bits) - 1L;
+        // the mapping of BitStorage index from xyz is y << 8 | z << 4 | x, which is also half of the CachedChunk
+        // index within the section, and entries never span two longs
+        for (int l = 0, i = 0; l < raw.length && i < 4096; l++) {
+            long word = raw[l];
+            for (int offset = 0; offset <= 64 - bits && i < 4096; offset += bits, i++) {
+                int id = (int) ((word >>> offset) & mask);
+                int type = classes[id];
+                if (type == 0) {
+                    type = classify(palette.valueFor(id));
+                    classes[id] = (byte) type;
+                }
+                if (type == (TYPE_AIR | CLASSIFIED)) {
+                    continue; // the common case, and air is all zeros
+                }
+                if ((type & (NEIGHBOR_DEPENDENT | TRACKED)) != 0) {
+                    type = classify(palette.valueFor(id), type, i & 15, yReal | i >> 8, (i >> 4) & 15, neighborDependent, specialBlocks, minY);
+                }
+                setType(section, i, type);
+            }
+        }
+        return section;
+    }
+
+    /**
+     * @return The class of a state regardless of position: the 2 bits of its {@link PathingBlockType} as a number,
+     * along with {@link #NEIGHBOR_DEPENDENT}, {@link #TRACKED} and {@link #CLASSIFIED}
+     */
+    private static int classify(BlockState state) {
+        int type = CLASSIFIED;
+        if (CachedChunk.isTracked(state.getBlock())) {
+            type |= TRACKED;
+        }
+        if (MovementHelper.isWater(state) && !MovementHelper.possiblyFlowing(state)) {
+            return type | NEIGHBOR_DEPENDENT;
+        }
+        boolean[] bits = getPathingBlockType(state).getBits();
+        return type | (bits[0] ? 1 : 0) | (bits[1] ? 2 : 0);
+    }
+
+    /**
+     * Resolves the position dependent parts of a class: records a tracked block, and classifies a water source.
+     *
+     * @return The 2 bits of the {@link PathingBlockType} at this position, as a number
+     */
+    private static int classify(BlockState state, int type, int x, int y, int z, NeighborDependent neighborDependent, Map<String, List<BlockPos>> specialBlocks, int minY) {
+        if ((type & TRACKED) != 0) {
+            String name = BlockUtils.blockToString(state.getBlock());
+            specialBlocks.computeIfAbsent(name, b -> new ArrayList<>()).add(new BlockPos(x, y + minY, z));
+        }
+        if ((type & NEIGHBOR_DEPENDENT) != 0) {
+            boolean[] bits = neighborDependent.classify(state, x, y, z).getBits();
+            return (bits[0] ? 1 : 0) | (bits[1] ? 2 : 0);
+        }
+        return type & 3;
+    }
+
+    private static void setType(long[] section, int i, int type) {
+        section[i >> 5] |= (long) (type & 3) << ((i & 31) << 1);
+    }
+
+    /**
+     * Classifies a block whose {@link PathingBlockType} depends on the blocks around it
+     */
+    @FunctionalInterface
+    interface NeighborDependent {
+
+        /**
+         * @param state The block
+         * @param x     The x within the chunk
+         * @param y     The y, counting from the bottom of the world
+         * @param z     The z within the chunk
+         * @return Its type
+         */
+        PathingBlockType classify(BlockState state, int x, int y, int z);
+    }
+
+    /**
+     * @return The type of a block that doesn't depend on its neighbors, i.e. anything but a water source
+     */
+    static PathingBlockType getPathingBlockType(BlockState state) {
         Block block = state.getBlock();
+        if (MovementHelper.isWater(state)) {
+            return PathingBlockType.AVOID; // flowing, a source is neighbor dependent
+        }
+        if (MovementHelper.avoidWalkingInto(state) || MovementHelper.isBottomSlab(state)) {
+            return PathingBlockType.AVOID;
+        }
+        // We used to do an AABB check here
+        // however, this failed in the nether when you were near a nether fortress
+        // because fences check their adjacent blocks in the world for their fence connection status to determine AABB shape
+        // this caused a nullpointerexception when we saved chunks on unload, because they were unable to check their neighbors
+        if (block instanceof AirBlock || block instanceof TallGrassBlock || block instanceof DoublePlantBlock || block instanceof FlowerBlock) {
+            return PathingBlockType.AIR;
+        }
+
+        return PathingBlockType.SOLID;
+    }
+
+    private static PathingBlockType getPathingBlockType(BlockState state, LevelChunk chunk, int x, int y, int z) {
         if (MovementHelper.isWater(state)) {
             // only water source blocks are plausibly usable, flowing water should be avoid
             // FLOWING_WATER is a waterfall, it doesn't really matter and caching it as AVOID just makes it look wrong
@@ -142,19 +388,7 @@ public final class ChunkPacker {
             }
             return PathingBlockType.WATER;
         }
-
-        if (MovementHelper.avoidWalkingInto(state) || MovementHelper.isBottomSlab(state)) {
-            return PathingBlockType.AVOID;
-        }
-        // We used to do an AABB check here
-        // however, this failed in the nether when you were near a nether fortress
-        // because fences check their adjacent blocks in the world for their fence connection status to determine AABB shape
-        // this caused a nullpointerexception when we saved chunks on unload, because they were unable to check their neighbors
-        if (block instanceof AirBlock || block instanceof TallGrassBlock || block instanceof DoublePlantBlock || block instanceof FlowerBlock) {
-            return PathingBlockType.AIR;
-        }
-
-        return PathingBlockType.SOLID;
+        return getPathingBlockType(state);
     }
 
     public static BlockState pathingTypeToBlock(PathingBlockType type, DimensionType dimension) {
@@ -17,6 +17,7 @@
 
 package baritone.cache;
 
+import baritone.Baritone;
 import baritone.api.cache.ICachedWorld;
 import baritone.api.cache.IWorldScanner;
 import baritone.api.utils.BetterBlockPos;
@@ -24,10 +25,12 @@ import baritone.api.utils.BlockOptionalMeta;
 import baritone.api.utils.BlockOptionalMetaLookup;
 import baritone.api.utils.IPlayerContext;
 import baritone.utils.accessor.IPalettedContainer;
-import io.netty.buffer.Unpooled;
+import com.google.common.collect.MapMaker;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongComparator;
+import it.unimi.dsi.fastutil.longs.LongList;
 import net.minecraft.core.BlockPos;
-import net.minecraft.core.IdMapper;
-import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.util.BitStorage;
 import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.block.Block;
@@ -37,35 +40,90 @@ import net.minecraft.world.level.chunk.ChunkSource;
 import net.minecraft.world.level.chunk.LevelChunk;
 import net.minecraft.world.level.chunk.LevelChunkSection;
 import net.minecraft.world.level.chunk.Palette;
-import net.minecraft.world.level.chunk.PalettedContainer;
 import net.minecraft.world.level.chunk.SingleValuePalette;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 public enum FasterWorldScanner implements IWorldScanner {
     INSTANCE;
 
-    private static final BlockState[] PALETTE_REGISTRY_SENTINEL = new BlockState[0];
+    /**
+     * Which palette ids are in the filter, per filter and then per palette. Both are weak on their keys, so sections
+     * that get unloaded and filters that are no longer used don't keep anything alive
+     */
+    private static final Map<BlockOptionalMetaLookup, FilterMasks> MASKS = new MapMaker().weakKeys().makeMap();
+
+    /**
+     * Each scanning thread collects hits into its own buffer, which is only shrunk back down after a chunk with a lot of
+     * hits, such as a section made entirely of the target block
+     */
+    private static final ThreadLocal<LongArrayList> HITS = ThreadLocal.withInitial(LongArrayList::new);
+    private static final int MAX_RETAINED_HITS = 16384;
+
+    /**
+     * Chunks are scanned on this rather than the common pool, so a big scan doesn't starve everything else that uses it
+     */
+    private static final ExecutorService scanPool;
+
+    static {
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "Baritone World Scanner " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        scanPool = pool;
+    }
 
     @Override
     public List<BlockPos> scanChunkRadius(IPlayerContext ctx, BlockOptionalMetaLookup filter, int max, int yLevelThreshold, int maxSearchRadius) {
+        return scan(ctx, filter, max, maxSearchRadius, null);
+    }
+
+    @Override
+    public List<BlockPos> scanChunkRadius(IPlayerContext ctx, BlockOptionalMetaLookup filter, int max, int yLevelThreshold, int maxSearchRadius, Consumer<List<BlockPos>> onProgress) {
+        return scan(ctx, filter, max, maxSearchRadius, onProgress);
+    }
+
+    /**
+     * @param onProgress Called with what has been found so far, or null if nobody is listening
+     */
+    private List<BlockPos> scan(IPlayerContext ctx, BlockOptionalMetaLookup filter, int max, int maxSearchRadius, Consumer<List<BlockPos>> onProgress) {
         assert ctx.world() != null;
         if (maxSearchRadius < 0) {
             throw new IllegalArgumentException("chunkRange must be >= 0");
         }
-        return scanChunksInternal(ctx, filter, getChunkRange(ctx.playerFeet().x >> 4, ctx.playerFeet().z >> 4, maxSearchRadius), max);
+        if (Baritone.settings().useLoadedBlockIndex.value && ctx.worldData() != null) {
+            List<BlockPos> found = ((WorldData) ctx.worldData()).loadedBlocks.nearest(ctx, filter, max, maxSearchRadius);
+            if (onProgress != null) {
+                onProgress.accept(Collections.unmodifiableList(found));
+            }
+            return found;
+        }
+        return scanChunksInternal(ctx, filter, maxSearchRadius, max, onProgress);
     }
 
     @Override
     public List<BlockPos> scanChunk(IPlayerContext ctx, BlockOptionalMetaLookup filter, ChunkPos pos, int max, int yLevelThreshold) {
-        Stream<BlockPos> stream = scanChunkInternal(ctx, filter, pos);
-        if (max >= 0) {
-            stream = stream.limit(max);
+        long[] found = scanChunkInternal(ctx, filter, pos);
+        LongList list = LongArrayList.wrap(found);
+        if (max >= 0 && found.length > max) {
+            list = list.subList(0, max);
         }
-        return stream.collect(Collectors.toList());
+        return toBlockPos(list);
     }
 
     @Override
@@ -107,65 +165,134 @@ public enum FasterWorldScanner implements IWorldScanner {
     public static List<ChunkPos> getChunkRange(int centerX, int centerZ, int chunkRadius) {
         List<ChunkPos> chunks = new ArrayList<>();
         // spiral out
-        chunks.add(new ChunkPos(centerX, centerZ));
-        for (int i = 1; i < chunkRadius; i++) {
-            for (int j = 0; j <= i; j++) {
-                chunks.add(new ChunkPos(centerX - j, centerZ - i));
+        for (int i = 0; i < chunkRadius; i++) {
+            addChunkRing(chunks, centerX, centerZ, i);
+        }
+        return chunks;
+    }
+
+    // the chunks whose chebyshev distance from the center is exactly ring
+    private static void addChunkRing(List<ChunkPos> chunks, int centerX, int centerZ, int ring) {
+        if (ring == 0) {
+            chunks.add(new ChunkPos(centerX, centerZ));
+            return;
+        }
+        int i = ring;
+        for (int j = 0; j <= i; j++) {
+            chunks.add(new ChunkPos(centerX - j, centerZ - i));
+            if (j != 0) {
+                chunks.add(new ChunkPos(centerX + j, centerZ - i));
+                chunks.add(new ChunkPos(centerX - j, centerZ + i));
+            }
+            chunks.add(new ChunkPos(centerX + j, centerZ + i));
+            if (j != i) {
+                chunks.add(new ChunkPos(centerX - i, centerZ - j));
+                chunks.add(new ChunkPos(centerX + i, centerZ - j));
                 if (j != 0) {
-                    chunks.add(new ChunkPos(centerX + j, centerZ - i));
-                    chunks.add(new ChunkPos(centerX - j, centerZ + i));
-                }
-                chunks.add(new ChunkPos(centerX + j, centerZ + i));
-                if (j != i) {
-                    chunks.add(new ChunkPos(centerX - i, centerZ - j));
-                    chunks.add(new ChunkPos(centerX + i, centerZ - j));
-                    if (j != 0) {
-                        chunks.add(new ChunkPos(centerX - i, centerZ + j));
-                        chunks.add(new ChunkPos(centerX + i, centerZ + j));
-                    }
+                    chunks.add(new ChunkPos(centerX - i, centerZ + j));
+                    chunks.add(new ChunkPos(centerX + i, centerZ + j));
                 }
             }
         }
-        return chunks;
     }
 
-    private List<BlockPos> scanChunksInternal(IPlayerContext ctx, BlockOptionalMetaLookup lookup, List<ChunkPos> chunkPositions, int maxBlocks) {
+    private List<BlockPos> scanChunksInternal(IPlayerContext ctx, BlockOptionalMetaLookup lookup, int chunkRadius, int maxBlocks, Consumer<List<BlockPos>> onProgress) {
         assert ctx.world() != null;
-        try {
-            // p -> scanChunkInternal(ctx, lookup, p)
-            Stream<BlockPos> posStream = chunkPositions.parallelStream().flatMap(p -> scanChunkInternal(ctx, lookup, p));
-            if (maxBlocks >= 0) {
-                // WARNING: this can be expensive if maxBlocks is large...
-                // see limit's javadoc
-                posStream = posStream.limit(maxBlocks);
+        BetterBlockPos feet = ctx.playerFeet();
+        LongComparator nearest = (a, b) -> Long.compare(distSq(feet, a), distSq(feet, b));
+        // how far the player is from the closest edge of their own chunk, every block in ring n is at least
+        // (n - 1) * 16 + edge blocks away horizontally
+        int edge = Math.min(
+                Math.min((feet.x & 15) + 1, 16 - (feet.x & 15)),
+                Math.min((feet.z & 15) + 1, 16 - (feet.z & 15))
+        );
+        LongArrayList found = new LongArrayList();
+        if (maxBlocks == 0) {
+            return new ArrayList<>();
+        }
+        List<ChunkPos> ring = new ArrayList<>();
+        List<Future<long[]>> scans = new ArrayList<>();
+        for (int i = 0; i < chunkRadius; i++) {
+            ring.clear();
+            scans.clear();
+            addChunkRing(ring, feet.x >> 4, feet.z >> 4, i);
+            for (ChunkPos pos : ring) {
+                scans.add(scanPool.submit(() -> scanChunkInternal(ctx, lookup, pos)));
+            }
+            int before = found.size();
+            try {
+                for (Future<long[]> scan : scans) {
+                    found.addElements(found.size(), scan.get());
+                }
+            } catch (InterruptedException e) {
+                scans.forEach(scan -> scan.cancel(false));
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                scans.forEach(scan -> scan.cancel(false));
+                e.getCause().printStackTrace();
+                throw new RuntimeException(e.getCause());
+            }
+            if (found.size() != before) {
+                LongArrays.quickSort(found.elements(), 0, found.size(), nearest);
+                if (maxBlocks > 0 && found.size() > maxBlocks) {
+                    found.size(maxBlocks);
+                }
+                if (onProgress != null) {
+                    // only unpacked when someone is listening, the scan itself keeps everything packed
+                    onProgress.accept(Collections.unmodifiableList(toBlockPos(found)));
+                }
+            }
+            // nothing in the rings that are left can beat what we already have
+            long nextRing = (long) i * 16 + edge;
+            if (maxBlocks > 0 && found.size() == maxBlocks && distSq(feet, found.getLong(maxBlocks - 1)) <= nextRing * nextRing) {
+                break;
             }
-            return posStream.collect(Collectors.toList());
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw e;
         }
+        return toBlockPos(found);
     }
 
-    private Stream<BlockPos> scanChunkInternal(IPlayerContext ctx, BlockOptionalMetaLookup lookup, ChunkPos pos) {
+    private static List<BlockPos> toBlockPos(LongList packed) {
+        List<BlockPos> positions = new ArrayList<>(packed.size());
+        for (int i = 0; i < packed.size(); i++) {
+            positions.add(BlockPos.of(packed.getLong(i)));
+        }
+        return positions;
+    }
+
+    static long distSq(BlockPos from, long pos) {
+        long dx = BlockPos.getX(pos) - from.getX();
+        long dy = BlockPos.getY(pos) - from.getY();
+        long dz = BlockPos.getZ(pos) - from.getZ();
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private long[] scanChunkInternal(IPlayerContext ctx, BlockOptionalMetaLookup lookup, ChunkPos pos) {
         ChunkSource chunkProvider = ctx.world().getChunkSource();
-        // if chunk is not loaded, return empty stream
+        // if chunk is not loaded, there's nothing to find
         if (!chunkProvider.hasChunk(pos.x, pos.z)) {
-            return Stream.empty();
+            return LongArrays.EMPTY_ARRAY;
         }
 
-        long chunkX = (long) pos.x << 4;
-        long chunkZ = (long) pos.z << 4;
-
         int playerSectionY = (ctx.playerFeet().y - ctx.world().getMinBuildHeight()) >> 4;
 
-        return collectChunkSections(lookup, chunkProvider.getChunk(pos.x, pos.z, false), chunkX, chunkZ, playerSectionY).stream();
+        return collectChunkSections(lookup, chunkProvider.getChunk(pos.x, pos.z, false), playerSectionY);
     }
 
+    /**
+     * @return Every position in the chunk that matches the filter, as {@link BlockPos#asLong()}
+     */
+    long[] scanLoadedChunk(BlockOptionalMetaLookup lookup, LevelChunk chunk) {
+        return collectChunkSections(lookup, chunk, 0);
+    }
 
-
-    private List<BlockPos> collectChunkSections(BlockOptionalMetaLookup lookup, LevelChunk chunk, long chunkX, long chunkZ, int playerSection) {
+    private long[] collectChunkSections(BlockOptionalMetaLookup lookup, LevelChunk chunk, int playerSection) {
+        int chunkX = chunk.getPos().x << 4;
+        int chunkZ = chunk.getPos().z << 4;
+        // hits go into a buffer that this thread reuses for every chunk, only the final copy is allocated
+        LongArrayList blocks = HITS.get();
+        blocks.clear();
         // iterate over sections relative to player
-        List<BlockPos> blocks = new ArrayList<>();
         LevelChunkSection[] sections = chunk.getSections();
         int l = sections.length;
         int i = playerSection - 1;
@@ -178,22 +305,27 @@ public enum FasterWorldScanner implements IWorldScanner {
                 visitSection(lookup, sections[i], blocks, chunkX, chunkZ);
             }
         }
-        return blocks;
+        long[] result = blocks.toLongArray();
+        if (blocks.elements().length > MAX_RETAINED_HITS) {
+            blocks.trim(MAX_RETAINED_HITS);
+        }
+        return result;
     }
 
-    private void visitSection(BlockOptionalMetaLookup lookup, LevelChunkSection section, List<BlockPos> blocks, long chunkX, long chunkZ) {
+    private void visitSection(BlockOptionalMetaLookup lookup, LevelChunkSection section, LongArrayList blocks, int chunkX, int chunkZ) {
         if (section == null || section.hasOnlyAir()) {
             return;
         }
 
-        PalettedContainer<BlockState> sectionContainer = section.getStates();
+        IPalettedContainer<BlockState> sectionContainer = (IPalettedContainer<BlockState>) section.getStates();
         //this won't work if the PaletteStorage is of the type EmptyPaletteStorage
-        if (((IPalettedContainer<BlockState>) sectionContainer).getStorage() == null) {
+        BitStorage array = sectionContainer.getStorage();
+        if (array == null) {
             return;
         }
 
         int yOffset = section.bottomBlockY();
-        Palette<BlockState> palette = ((IPalettedContainer<BlockState>) sectionContainer).getPalette();
+        Palette<BlockState> palette = sectionContainer.getPalette();
 
         if (palette instanceof SingleValuePalette) {
             // single value palette doesn't have any data
@@ -202,11 +334,7 @@ public enum FasterWorldScanner implements IWorldScanner {
                 for (int x = 0; x < 16; ++x) {
                     for (int y = 0; y < 16; ++y) {
                         for (int z = 0; z < 16; ++z) {
-                            blocks.add(new BlockPos(
-                                (int) chunkX + x,
-                                yOffset + y,
-                                (int) chunkZ + z
-                            ));
+                            blocks.add(BlockPos.asLong(chunkX + x, yOffset + y, chunkZ + z));
                         }
                     }
                 }
@@ -219,7 +347,6 @@ public enum FasterWorldScanner implements IWorldScanner {
             return;
         }
 
-        BitStorage array = ((IPalettedContainer<BlockState>) section.getStates()).getStorage();
         long[] longArray = array.getRaw();
         int arraySize = array.getSize();
         int bitsPerEntry = array.getBits();
@@ -229,43 +356,55 @@ public enum FasterWorldScanner implements IWorldScanner {
             long l = longArray[i];
             for (int offset = 0; offset <= (64 - bitsPerEntry) && idx < arraySize; offset += bitsPerEntry, ++idx) {
                 int value = (int) ((l >> offset) & maxEntryValue);
-                if (isInFilter[value]) {
+                if (value < isInFilter.length && isInFilter[value]) {
                     //noinspection DuplicateExpressions
-                    blocks.add(new BlockPos(
-                        (int) chunkX + ((idx & 255) & 15),
+                    blocks.add(BlockPos.asLong(
+                        chunkX + ((idx & 255) & 15),
                         yOffset + (idx >> 8),
-                        (int) chunkZ + ((idx & 255) >> 4)
+                        chunkZ + ((idx & 255) >> 4)
                     ));
                 }
             }
         }
     }
 
+    /**
+     * @return Which palette ids are in the filter, or an empty array if none of them are
+     */
     private boolean[] getIncludedFilterIndices(BlockOptionalMetaLookup lookup, Palette<BlockState> palette) {
-        boolean commonBlockFound = false;
-        BlockState[] paletteMap = getPalette(palette);
+        FilterMasks masks = MASKS.computeIfAbsent(lookup, k -> new FilterMasks());
 
-        if (paletteMap == PALETTE_REGISTRY_SENTINEL) {
-            return getIncludedFilterIndicesFromRegistry(lookup);
+        if (palette instanceof GlobalPalette) {
+            // a global palette's ids are registry ids, which are the same for every section
+            boolean[] registry = masks.registry;
+            if (registry == null) {
+                registry = getIncludedFilterIndicesFromRegistry(lookup);
+                masks.registry = registry;
+            }
+            return registry;
         }
 
-        int size = paletteMap.length;
+        // linear and hashmap palettes only ever have ids appended to them, so a mask stays valid until the palette grows
+        int size = palette.getSize();
+        PaletteMask cached = masks.byPalette.get(palette);
+        if (cached != null && cached.size == size) {
+            return cached.isInFilter;
+        }
 
+        boolean commonBlockFound = false;
         boolean[] isInFilter = new boolean[size];
 
         for (int i = 0; i < size; i++) {
-            BlockState state = paletteMap[i];
-            if (lookup.has(state)) {
+            if (lookup.has(palette.valueFor(i))) {
                 isInFilter[i] = true;
                 commonBlockFound = true;
-            } else {
-                isInFilter[i] = false;
             }
         }
 
         if (!commonBlockFound) {
-            return new boolean[0];
+            isInFilter = new boolean[0];
         }
+        masks.byPalette.put(palette, new PaletteMask(size, isInFilter));
         return isInFilter;
     }
 
@@ -282,23 +421,23 @@ public enum FasterWorldScanner implements IWorldScanner {
     }
 
     /**
-     * cheats to get the actual map of id -> blockstate from the various palette implementations
+     * The palette masks worked out for one filter, keyed by palette identity
      */
-    private static BlockState[] getPalette(Palette<BlockState> palette) {
-        if (palette instanceof GlobalPalette) {
-            // copying the entire registry is not nice so we treat it as a special case
-            return PALETTE_REGISTRY_SENTINEL;
-        } else {
-            FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
-            palette.write(buf);
-            int size = buf.readVarInt();
-            BlockState[] states = new BlockState[size];
-            for (int i = 0; i < size; i++) {
-                BlockState state = Block.BLOCK_STATE_REGISTRY.byId(buf.readVarInt());
-                assert state != null;
-                states[i] = state;
-            }
-            return states;
+    private static final class FilterMasks {
+
+        private final Map<Palette<BlockState>, PaletteMask> byPalette = new MapMaker().weakKeys().makeMap();
+
+        private volatile boolean[] registry;
+    }
+
+    private static final class PaletteMask {
+
+        private final int size;
+        private final boolean[] isInFilter;
+
+        private PaletteMask(int size, boolean[] isInFilter) {
+            this.size = size;
+            this.isInFilter = isInFilter;
         }
     }
 }
@@ -0,0 +1,179 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import baritone.api.utils.BetterBlockPos;
+import baritone.api.utils.BlockOptionalMetaLookup;
+import baritone.api.utils.IPlayerContext;
+import baritone.api.utils.Pair;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.ChunkSource;
+import net.minecraft.world.level.chunk.LevelChunk;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in-memory index of where blocks matching a {@link BlockOptionalMetaLookup} are in the loaded chunks.
+ * <p>
+ * A chunk is scanned for a filter the first time a query needs it, and is then kept up to date from block change
+ * events until it is unloaded or repopulated, so repeated queries for the same filter don't rescan the world.
+ */
+public final class LoadedBlockIndex {
+
+    /**
+     * How many distinct filters are indexed at once, the least recently queried one is dropped past this
+     */
+    private static final int MAX_FILTERS = 8;
+
+    private final Map<String, FilterIndex> filters = new LinkedHashMap<String, FilterIndex>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FilterIndex> eldest) {
+            return size() > MAX_FILTERS;
+        }
+    };
+
+    /**
+     * How many scans of each chunk are running, so that a change to a chunk while it's being scanned can be noticed
+     */
+    private final Long2IntOpenHashMap scanning = new Long2IntOpenHashMap();
+
+    /**
+     * The chunks being scanned that changed since their scan started. Those scans aren't stored, since they may have
+     * missed the change, but scans of every other chunk still are
+     */
+    private final LongOpenHashSet changedWhileScanning = new LongOpenHashSet();
+
+    /**
+     * Forgets everything indexed for a chunk, called when it is populated or unloaded
+     */
+    public synchronized void chunkChanged(int chunkX, int chunkZ) {
+        long key = ChunkPos.asLong(chunkX, chunkZ);
+        for (FilterIndex index : filters.values()) {
+            index.chunks.remove(key);
+        }
+        changed(key);
+    }
+
+    public synchronized void blocksChanged(ChunkPos pos, List<Pair<BlockPos, BlockState>> changes) {
+        long key = pos.toLong();
+        for (FilterIndex index : filters.values()) {
+            LongOpenHashSet positions = index.chunks.get(key);
+            if (positions == null) {
+                continue;
+            }
+            for (Pair<BlockPos, BlockState> change : changes) {
+                if (index.filter.has(change.second())) {
+                    positions.add(change.first().asLong());
+                } else {
+                    positions.remove(change.first().asLong());
+                }
+            }
+        }
+        changed(key);
+    }
+
+    private void changed(long key) {
+        if (scanning.containsKey(key)) {
+            changedWhileScanning.add(key);
+        }
+    }
+
+    /**
+     * @param ctx         The player context
+     * @param filter      The blocks to look for
+     * @param max         The maximum number of positions to return, or a negative number for no limit
+     * @param chunkRadius The radius in chunks around the player to look in
+     * @return The matching positions in loaded chunks, nearest to the player first
+     */
+    public List<BlockPos> nearest(IPlayerContext ctx, BlockOptionalMetaLookup filter, int max, int chunkRadius) {
+        BetterBlockPos feet = ctx.playerFeet();
+        ChunkSource chunkProvider = ctx.world().getChunkSource();
+        String key = filter.toString();
+        FilterIndex index;
+        synchronized (this) {
+            index = filters.computeIfAbsent(key, k -> new FilterIndex(filter));
+        }
+
+        LongArrayList found = new LongArrayList();
+        for (ChunkPos pos : FasterWorldScanner.getChunkRange(feet.x >> 4, feet.z >> 4, chunkRadius)) {
+            long chunkKey = pos.toLong();
+            synchronized (this) {
+                LongOpenHashSet positions = index.chunks.get(chunkKey);
+                if (positions != null) {
+                    found.addAll(positions);
+                    continue;
+                }
+                scanning.addTo(chunkKey, 1);
+            }
+            LongOpenHashSet positions = null;
+            try {
+                LevelChunk chunk = chunkProvider.getChunk(pos.x, pos.z, false);
+                if (chunk != null && !chunk.isEmpty()) {
+                    positions = new LongOpenHashSet(FasterWorldScanner.INSTANCE.scanLoadedChunk(filter, chunk));
+                }
+            } finally {
+                synchronized (this) {
+                    boolean changed = changedWhileScanning.contains(chunkKey);
+                    if (scanning.addTo(chunkKey, -1) == 1) {
+                        scanning.remove(chunkKey);
+                        changedWhileScanning.remove(chunkKey);
+                    }
+                    if (positions != null && !changed && filters.get(key) == index) {
+                        index.chunks.put(chunkKey, positions);
+                    }
+                }
+            }
+            if (positions != null) {
+                found.addAll(positions);
+            }
+        }
+
+        long[] sorted = found.toLongArray();
+        LongArrays.quickSort(sorted, (a, b) -> Long.compare(FasterWorldScanner.distSq(feet, a), FasterWorldScanner.distSq(feet, b)));
+        int count = max < 0 ? sorted.length : Math.min(max, sorted.length);
+        List<BlockPos> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(BlockPos.of(sorted[i]));
+        }
+        return result;
+    }
+
+    private static final class FilterIndex {
+
+        private final BlockOptionalMetaLookup filter;
+
+        /**
+         * Matching positions by chunk, only for chunks that have been scanned since they were last populated
+         */
+        private final Long2ObjectOpenHashMap<LongOpenHashSet> chunks = new Long2ObjectOpenHashMap<>();
+
+        private FilterIndex(BlockOptionalMetaLookup filter) {
+            this.filter = filter;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import net.minecraft.core.BlockPos;
+
+/**
+ * The positions nearest to a point horizontally out of all those offered, up to a maximum number of them. Kept as a max
+ * heap by distance, so that the furthest one kept is the one to go when a nearer one comes along.
+ */
+final class NearestLocations {
+
+    private final int centerX;
+    private final int centerZ;
+    private final int maximum;
+
+    /**
+     * The positions as {@link BlockPos#asLong}, and their squared distances, as a heap with the furthest at 0
+     */
+    private long[] positions = LongArrays.EMPTY_ARRAY;
+    private long[] distances = LongArrays.EMPTY_ARRAY;
+    private int size;
+
+    NearestLocations(int centerX, int centerZ, int maximum) {
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+        this.maximum = maximum;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isFull() {
+        return size >= maximum;
+    }
+
+    /**
+     * @return The squared distance that a position has to be nearer than to be kept, or {@link Long#MAX_VALUE} if any
+     * position would be
+     */
+    long bound() {
+        return isFull() ? distances[0] : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return The horizontal squared distance from the center to the nearest column in this area, all inclusive
+     */
+    long distSq(int minX, int minZ, int maxX, int maxZ) {
+        long dx = Math.max(minX, Math.min(centerX, maxX)) - (long) centerX;
+        long dz = Math.max(minZ, Math.min(centerZ, maxZ)) - (long) centerZ;
+        return dx * dx + dz * dz;
+    }
+
+    /**
+     * @param pos A position, as {@link BlockPos#asLong}
+     */
+    void offer(long pos) {
+        long dx = BlockPos.getX(pos) - (long) centerX;
+        long dz = BlockPos.getZ(pos) - (long) centerZ;
+        long dist = dx * dx + dz * dz;
+        if (isFull()) {
+            if (dist >= distances[0]) {
+                return;
+            }
+            positions[0] = pos;
+            distances[0] = dist;
+            siftDown(0);
+            return;
+        }
+        if (size == positions.length) {
+            int capacity = (int) Math.min(maximum, Math.max(16L, 2L * size));
+            positions = LongArrays.forceCapacity(positions, capacity, size);
+            distances = LongArrays.forceCapacity(distances, capacity, size);
+        }
+        positions[size] = pos;
+        distances[size] = dist;
+        siftUp(size++);
+    }
+
+    /**
+     * @return The positions, nearest first
+     */
+    long[] toSortedArray() {
+        long[] sortedPositions = new long[size];
+        long[] sortedDistances = new long[size];
+        System.arraycopy(positions, 0, sortedPositions, 0, size);
+        System.arraycopy(distances, 0, sortedDistances, 0, size);
+        LongArrays.radixSort(sortedDistances, sortedPositions);
+        return sortedPositions;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (distances[parent] >= distances[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && distances[child + 1] > distances[child]) {
+                child++;
+            }
+            if (distances[i] >= distances[child]) {
+                return;
+            }
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long pos = positions[a];
+        positions[a] = positions[b];
+        positions[b] = pos;
+        long dist = distances[a];
+        distances[a] = distances[b];
+        distances[b] = dist;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.Comparator;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BinaryOperator;
+import java.util.function.LongToDoubleFunction;
+
+/**
+ * The chunks waiting for the packer, keyed by chunk position. Offering a chunk that's already queued replaces it in
+ * place, and the packers take whichever queued chunk has the lowest priority value. Each chunk's priority is worked out
+ * once when it's queued, and again for every queued chunk whenever {@link #prioritize} is given a new priority, always
+ * outside of the lock so that offering a chunk never waits on scoring the whole queue.
+ *
+ * @param <T> The queued chunk
+ */
+final class PackerQueue<T> {
+
+    private static final Comparator<Entry<?>> ORDER = Comparator.<Entry<?>>comparingDouble(entry -> entry.priority).thenComparingLong(entry -> entry.sequence);
+
+    private final Long2ObjectOpenHashMap<Entry<T>> pending = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * The same entries as {@link #pending}, lowest priority value first and ties in the order they were queued
+     */
+    private final TreeSet<Entry<T>> byPriority = new TreeSet<>(ORDER);
+
+    private final AtomicLong coalesced = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * The priority that every queued chunk has been or is being scored with
+     */
+    private LongToDoubleFunction priority = pos -> 0;
+
+    private long sequence;
+
+    /**
+     * Queues a chunk, replacing any chunk already queued at that position. If that makes the queue larger than
+     * {@code maxSize}, the chunk with the highest priority value is dropped.
+     *
+     * @param pos     The chunk position, as a long
+     * @param chunk   The chunk
+     * @param maxSize The most chunks to keep queued
+     */
+    void offer(long pos, T chunk, int maxSize) {
+        offer(pos, chunk, maxSize, (queued, offered) -> offered);
+    }
+
+    /**
+     * Queues a chunk, combining it with any chunk already queued at that position. If that makes the queue larger than
+     * {@code maxSize}, the chunk with the highest priority value is dropped.
+     *
+     * @param merge Combines the queued chunk with the offered one, in that order
+     * @see #offer(long, Object, int)
+     */
+    void offer(long pos, T chunk, int maxSize, BinaryOperator<T> merge) {
+        LongToDoubleFunction scoredWith;
+        synchronized (this) {
+            if (merge(pos, chunk, merge)) {
+                return;
+            }
+            scoredWith = priority;
+        }
+        while (true) {
+            double value = scoredWith.applyAsDouble(pos);
+            synchronized (this) {
+                if (merge(pos, chunk, merge)) {
+                    return;
+                }
+                if (scoredWith == priority) {
+                    add(pos, chunk, value, maxSize);
+                    return;
+                }
+                // the priority changed while scoring, and the queue has been or is being scored again without this one
+                scoredWith = priority;
+            }
+        }
+    }
+
+    /**
+     * Scores every queued chunk again, and any chunks queued from now on, with a new priority.
+     *
+     * @param priority The priority of a chunk position, lower is packed sooner
+     */
+    void prioritize(LongToDoubleFunction priority) {
+        long[] positions;
+        synchronized (this) {
+            this.priority = priority;
+            positions = pending.keySet().toLongArray();
+        }
+        double[] values = new double[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            values[i] = priority.applyAsDouble(positions[i]);
+        }
+        synchronized (this) {
+            if (this.priority != priority) {
+                return; // a newer priority is being applied
+            }
+            for (int i = 0; i < positions.length; i++) {
+                Entry<T> entry = pending.get(positions[i]);
+                if (entry != null) {
+                    byPriority.remove(entry);
+                    entry.priority = values[i];
+                    byPriority.add(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the queued chunk with the lowest priority value, waiting for one if the queue is empty.
+     *
+     * @return The chunk
+     * @throws InterruptedException If interrupted while waiting
+     */
+    synchronized T take() throws InterruptedException {
+        while (pending.isEmpty()) {
+            wait();
+        }
+        Entry<T> entry = byPriority.pollFirst();
+        pending.remove(entry.pos);
+        return entry.chunk;
+    }
+
+    /**
+     * @return How many chunks were replaced by a newer copy while still queued
+     */
+    long coalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * Records that a queued chunk was taken but couldn't be packed.
+     */
+    void drop() {
+        dropped.incrementAndGet();
+    }
+
+    /**
+     * @return How many chunks were dropped without being packed
+     */
+    long dropped() {
+        return dropped.get();
+    }
+
+    synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * @return Whether a chunk was already queued at this position, and so has been merged with this one
+     */
+    private boolean merge(long pos, T chunk, BinaryOperator<T> merge) {
+        Entry<T> queued = pending.get(pos);
+        if (queued == null) {
+            return false;
+        }
+        queued.chunk = merge.apply(queued.chunk, chunk);
+        coalesced.incrementAndGet();
+        return true;
+    }
+
+    private void add(long pos, T chunk, double value, int maxSize) {
+        Entry<T> entry = new Entry<>(pos, chunk, value, sequence++);
+        pending.put(pos, entry);
+        byPriority.add(entry);
+        if (pending.size() > maxSize) {
+            pending.remove(byPriority.pollLast().pos);
+            dropped.incrementAndGet();
+        } else {
+            notify();
+        }
+    }
+
+    private static final class Entry<T> {
+
+        private final long pos;
+
+        private final long sequence;
+
+        private T chunk;
+
+        /**
+         * Only changed while not in {@link PackerQueue#byPriority}, since it's part of the order
+         */
+        private double priority;
+
+        private Entry(long pos, T chunk, double priority, long sequence) {
+            this.pos = pos;
+            this.chunk = chunk;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+    }
+}
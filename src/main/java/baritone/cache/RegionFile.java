@@ -0,0 +1,345 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import baritone.api.utils.BlockUtils;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.dimension.DimensionType;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The on disk format of a {@link CachedRegion}: a header with the offset and length of each chunk, followed by the
+ * chunks, each compressed on its own. Any one chunk can be read without inflating the rest, and saving only appends the
+ * chunks that changed and rewrites the header. Once more than half of the file is chunks that have since been replaced,
+ * the whole file is written out again.
+ * <p>
+ * Files in the old format, one gzip stream for the whole region, are still read by {@link CachedRegion} and written
+ * back in this format the next time the region is saved.
+ */
+final class RegionFile {
+
+    /**
+     * Magic value to detect files in this format. Old format files start with the gzip magic instead
+     */
+    static final int REGION_FILE_MAGIC = 0x42435232; // BCR2
+
+    private static final int CHUNKS = 32 * 32;
+
+    /**
+     * The magic, then an int offset and int length for each chunk in x major order. An offset of 0 means not present
+     */
+    private static final int HEADER_SIZE = 4 + CHUNKS * 8;
+
+    private final Path path;
+
+    RegionFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * @return Whether the file exists and starts with {@link #REGION_FILE_MAGIC}
+     */
+    boolean exists() throws IOException {
+        if (!Files.exists(path)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            return channel.read(magic, 0) == 4 && magic.getInt(0) == REGION_FILE_MAGIC;
+        }
+    }
+
+    private static int index(int chunkX, int chunkZ) {
+        return chunkX << 5 | chunkZ;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+        int magic = header.getInt(0);
+        if (magic != REGION_FILE_MAGIC) {
+            throw new IOException("Bad magic value " + magic);
+        }
+        return header;
+    }
+
+    private static int offset(ByteBuffer header, int index) {
+        return header.getInt(4 + index * 8);
+    }
+
+    private static int length(ByteBuffer header, int index) {
+        return header.getInt(8 + index * 8);
+    }
+
+    /**
+     * Reads the record of every chunk in the file, without decompressing any of them
+     *
+     * @return A 32x32 array of the records, null where not present
+     * @see #decompress(byte[], int, int, DimensionType)
+     */
+    byte[][][] readRecords() throws IOException {
+        byte[][][] records = new byte[32][32][];
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel);
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    records[x][z] = readRecord(channel, header, index(x, z));
+                }
+            }
+        }
+        return records;
+    }
+
+    private static byte[] readRecord(FileChannel channel, ByteBuffer header, int index) throws IOException {
+        int offset = offset(header, index);
+        if (offset == 0) {
+            return null;
+        }
+        ByteBuffer record = ByteBuffer.allocate(length(header, index));
+        readFully(channel, record, offset);
+        return record.array();
+    }
+
+    /**
+     * Writes the chunks that changed since the last write, or all of them if the file doesn't exist yet, is in the old
+     * format, or is mostly replaced chunks.
+     *
+     * @param records  The 32x32 records of the region's chunks, null where not present
+     * @param modified Which of them changed since the last write, chunks that became null are removed from the file
+     */
+    void write(byte[][][] records, boolean[][] modified) throws IOException {
+        if (!exists()) {
+            writeAll(records);
+            return;
+        }
+        long live = 0;
+        long end;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = readHeader(channel);
+            end = channel.size();
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    int index = index(x, z);
+                    if (modified[x][z]) {
+                        byte[] record = records[x][z];
+                        if (record == null) {
+                            header.putInt(4 + index * 8, 0);
+                            header.putInt(8 + index * 8, 0);
+                            continue;
+                        }
+                        writeFully(channel, ByteBuffer.wrap(record), end);
+                        header.putInt(4 + index * 8, (int) end);
+                        header.putInt(8 + index * 8, record.length);
+                        end += record.length;
+                    }
+                    live += length(header, index);
+                }
+            }
+            // the chunks have to be on disk before the header that points at them, otherwise the OS could write the
+            // header out first and a crash in between would leave it pointing at garbage
+            channel.force(false);
+            header.position(0);
+            writeFully(channel, header, 0);
+            channel.force(false);
+        }
+        if (end - HEADER_SIZE > live * 2) {
+            writeAll(records);
+        }
+    }
+
+    /**
+     * Writes a new file with only these chunks, replacing the old one once it's complete
+     */
+    private void writeAll(byte[][][] records) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(0, REGION_FILE_MAGIC);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long end = HEADER_SIZE;
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    byte[] record = records[x][z];
+                    if (record == null) {
+                        continue;
+                    }
+                    writeFully(channel, ByteBuffer.wrap(record), end);
+                    header.putInt(4 + index(x, z) * 8, (int) end);
+                    header.putInt(8 + index(x, z) * 8, record.length);
+                    end += record.length;
+                }
+            }
+            writeFully(channel, header, 0);
+            // all of it has to be on disk before it replaces the old file
+            channel.force(false);
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * A record is the chunk's timestamp, then the length of its deflated tracked block locations, then those, then the
+     * rest of the chunk deflated separately. The timestamp and the locations can be read without inflating the rest.
+     *
+     * @return The record for this chunk, as it's stored in the file
+     */
+    static byte[] compress(CachedChunk chunk) throws IOException {
+        byte[] locations = deflate(out -> writeLocations(out, chunk.getPackedBlocks()));
+        byte[] body = deflate(out -> writeChunk(out, chunk));
+        ByteBuffer record = ByteBuffer.allocate(8 + 4 + locations.length + body.length);
+        record.putLong(chunk.cacheTimestamp);
+        record.putInt(locations.length);
+        record.put(locations);
+        record.put(body);
+        return record.array();
+    }
+
+    /**
+     * @param chunkX The absolute chunk x coordinate
+     * @param chunkZ The absolute chunk z coordinate
+     * @return The chunk that this record is of
+     */
+    static CachedChunk decompress(byte[] record, int chunkX, int chunkZ, DimensionType dimension) throws IOException {
+        Map<String, int[]> packed = locations(record);
+        Map<String, List<BlockPos>> location = new HashMap<>(packed.size());
+        for (Map.Entry<String, int[]> entry : packed.entrySet()) {
+            List<BlockPos> locs = new ArrayList<>(entry.getValue().length);
+            for (int pos : entry.getValue()) {
+                locs.add(new BlockPos(pos & 15, pos >> 8, (pos >> 4) & 15));
+            }
+            location.put(entry.getKey(), locs);
+        }
+        int bodyStart = 12 + ByteBuffer.wrap(record).getInt(8);
+        try (DataInputStream in = inflate(record, bodyStart, record.length - bodyStart)) {
+            return readChunk(in, chunkX, chunkZ, timestamp(record), location, dimension);
+        }
+    }
+
+    /**
+     * @return The {@link CachedChunk#cacheTimestamp} of the chunk that this record is of
+     */
+    static long timestamp(byte[] record) {
+        return ByteBuffer.wrap(record).getLong(0);
+    }
+
+    /**
+     * Reads only the tracked block locations of a record, leaving the rest of it compressed
+     *
+     * @return The positions of each tracked block, packed as in {@link CachedChunk#getPackedBlocks}
+     */
+    static Map<String, int[]> locations(byte[] record) throws IOException {
+        try (DataInputStream in = inflate(record, 12, ByteBuffer.wrap(record).getInt(8))) {
+            int numSpecialBlockTypes = in.readInt();
+            Map<String, int[]> location = new HashMap<>(numSpecialBlockTypes);
+            for (int i = 0; i < numSpecialBlockTypes; i++) {
+                String blockName = in.readUTF();
+                // a chunk can have more than 65535 of a block now that any block can be tracked
+                int[] locs = new int[in.readInt()];
+                for (int j = 0; j < locs.length; j++) {
+                    locs[j] = in.readInt();
+                }
+                location.put(blockName, locs);
+            }
+            return location;
+        }
+    }
+
+    private interface Writer {
+
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] deflate(Writer writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        Deflater deflater = new Deflater();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater, 16384))) {
+            writer.write(out);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static DataInputStream inflate(byte[] record, int offset, int length) {
+        return new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(record, offset, length)));
+    }
+
+    private static void writeLocations(DataOutputStream out, Map<String, int[]> locs) throws IOException {
+        out.writeInt(locs.size());
+        for (Map.Entry<String, int[]> entry : locs.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue().length);
+            for (int pos : entry.getValue()) {
+                out.writeInt(pos);
+            }
+        }
+    }
+
+    private static void writeChunk(DataOutputStream out, CachedChunk chunk) throws IOException {
+        byte[] chunkBytes = chunk.toByteArray();
+        out.write(chunkBytes);
+        // BitSet.toByteArray leaves off trailing zeros
+        out.write(new byte[chunk.sizeInBytes - chunkBytes.length]);
+        BlockState[] overview = chunk.getOverview();
+        for (int i = 0; i < 256; i++) {
+            out.writeUTF(BlockUtils.blockToString(overview[i].getBlock()));
+        }
+    }
+
+    private static CachedChunk readChunk(DataInputStream in, int chunkX, int chunkZ, long cacheTimestamp, Map<String, List<BlockPos>> location, DimensionType dimension) throws IOException {
+        byte[] bytes = new byte[CachedChunk.sizeInBytes(CachedChunk.size(dimension.height()))];
+        in.readFully(bytes);
+        BlockState[] overview = new BlockState[256];
+        for (int i = 0; i < 256; i++) {
+            overview[i] = BlockUtils.stringToBlockRequired(in.readUTF()).defaultBlockState();
+        }
+        for (String blockName : location.keySet()) {
+            BlockUtils.stringToBlockRequired(blockName);
+        }
+        return new CachedChunk(chunkX, chunkZ, dimension.height(), BitSet.valueOf(bytes), overview, location, cacheTimestamp);
+    }
+}
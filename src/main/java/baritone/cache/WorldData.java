@@ -33,6 +33,7 @@ import java.nio.file.Path;
 public class WorldData implements IWorldData {
 
     public final CachedWorld cache;
+    public final LoadedBlockIndex loadedBlocks;
     private final WaypointCollection waypoints;
     //public final MapData map;
     public final Path directory;
@@ -41,6 +42,7 @@ public class WorldData implements IWorldData {
     WorldData(Path directory, DimensionType dimension) {
         this.directory = directory;
         this.cache = new CachedWorld(directory.resolve("cache"), dimension);
+        this.loadedBlocks = new LoadedBlockIndex();
         this.waypoints = new WaypointCollection(directory.resolve("waypoints"));
         this.dimension = dimension;
     }
@@ -92,7 +92,7 @@ public class FindCommand extends Command {
     public Stream<String> tabComplete(String label, IArgConsumer args) throws CommandException {
         return new TabCompleteHelper()
                 .append(
-                        CachedChunk.BLOCKS_TO_KEEP_TRACK_OF.stream()
+                        CachedChunk.getTrackedBlocks().stream()
                                 .map(BuiltInRegistries.BLOCK::getKey)
                                 .map(Object::toString)
                 )
@@ -18,6 +18,7 @@
 package baritone.event;
 
 import baritone.Baritone;
+import baritone.api.BaritoneAPI;
 import baritone.api.event.events.*;
 import baritone.api.event.events.type.EventState;
 import baritone.api.event.listener.IEventBus;
@@ -25,15 +26,19 @@ import baritone.api.event.listener.IGameEventListener;
 import baritone.api.utils.Helper;
 import baritone.api.utils.Pair;
 import baritone.cache.CachedChunk;
+import baritone.cache.WorldData;
 import baritone.cache.WorldProvider;
+import baritone.pathing.precompute.PrecomputedData;
 import baritone.utils.BlockStateInterface;
+import baritone.utils.LoadedChunksSnapshot;
+import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
-import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.chunk.LevelChunk;
 
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
 
 /**
  * @author Brady
@@ -58,6 +63,15 @@ public final class GameEventHandler implements IEventBus, Helper {
                 ex.printStackTrace();
                 baritone.bsi = null;
             }
+            CachedChunk.updateTrackedBlocks(Baritone.settings().additionalTrackedBlocks.value);
+            WorldData worldData = baritone.getWorldProvider().getCurrentWorld();
+            if (worldData != null) {
+                if (worldData.cache.updateTrackedGeneration()) {
+                    // the loaded chunks were cached without any newly tracked blocks, so go over them again in the background
+                    BaritoneAPI.getProvider().getWorldScanner().repack(baritone.getPlayerContext());
+                }
+                worldData.cache.updatePackingFocus();
+            }
         } else {
             baritone.bsi = null;
         }
@@ -98,31 +112,36 @@ public final class GameEventHandler implements IEventBus, Helper {
                 && type == ChunkEvent.Type.UNLOAD
                 && world.getChunkSource().getChunk(event.getX(), event.getZ(), null, false) != null;
 
+        if (state == EventState.POST) {
+            // the loaded chunks changed, so the copy that BlockStateInterface hands out is stale
+            LoadedChunksSnapshot.chunksChanged();
+        }
+
         if (event.isPostPopulate() || isPreUnload) {
             baritone.getWorldProvider().ifWorldLoaded(worldData -> {
                 LevelChunk chunk = world.getChunk(event.getX(), event.getZ());
                 worldData.getCachedWorld().queueForPacking(chunk);
             });
+            WorldData worldData = baritone.getWorldProvider().getCurrentWorld();
+            if (worldData != null) {
+                worldData.loadedBlocks.chunkChanged(event.getX(), event.getZ());
+            }
         }
 
-
         listeners.forEach(l -> l.onChunkEvent(event));
     }
 
     @Override
     public void onBlockChange(BlockChangeEvent event) {
-        if (Baritone.settings().repackOnAnyBlockChange.value) {
-            final boolean keepingTrackOf = event.getBlocks().stream()
-                    .map(Pair::second).map(BlockState::getBlock)
-                    .anyMatch(CachedChunk.BLOCKS_TO_KEEP_TRACK_OF::contains);
-
-            if (keepingTrackOf) {
-                baritone.getWorldProvider().ifWorldLoaded(worldData -> {
-                    final Level world = baritone.getPlayerContext().world();
-                    ChunkPos pos = event.getChunkPos();
-                    worldData.getCachedWorld().queueForPacking(world.getChunk(pos.x, pos.z));
-                });
+        WorldData worldData = baritone.getWorldProvider().getCurrentWorld();
+        if (worldData != null) {
+            if (Baritone.settings().repackOnAnyBlockChange.value) {
+                final Level world = baritone.getPlayerContext().world();
+                ChunkPos pos = event.getChunkPos();
+                List<BlockPos> changed = event.getBlocks().stream().map(Pair::first).collect(Collectors.toList());
+                worldData.cache.applyBlockChanges(world.getChunk(pos.x, pos.z), changed);
             }
+            worldData.loadedBlocks.blocksChanged(event.getChunkPos(), event.getBlocks());
         }
 
         listeners.forEach(l -> l.onBlockChange(event));
@@ -141,6 +160,8 @@ public final class GameEventHandler implements IEventBus, Helper {
             cache.closeWorld();
             if (event.getWorld() != null) {
                 cache.initWorld(event.getWorld());
+                // fill the shared block state table off thread so the first path doesn't pay for it
+                Baritone.getExecutor().execute(() -> PrecomputedData.get().warm());
             }
         }
 
@@ -23,12 +23,17 @@ import baritone.api.pathing.goals.Goal;
 import baritone.api.pathing.movement.ActionCosts;
 import baritone.api.utils.BetterBlockPos;
 import baritone.pathing.calc.openset.BinaryHeapOpenSet;
+import baritone.pathing.calc.openset.BucketOpenSet;
+import baritone.pathing.calc.openset.IOpenSet;
+import baritone.pathing.calc.openset.IndexedBinaryHeapOpenSet;
+import baritone.pathing.calc.openset.QuaternaryHeapOpenSet;
 import baritone.pathing.movement.CalculationContext;
 import baritone.pathing.movement.Moves;
 import baritone.utils.pathing.BetterWorldBorder;
 import baritone.utils.pathing.Favoring;
 import baritone.utils.pathing.MutableMoveResult;
 
+import java.util.Arrays;
 import java.util.Optional;
 
 /**
@@ -41,28 +46,48 @@ public final class AStarPathFinder extends AbstractNodeCostSearch {
     private final Favoring favoring;
     private final CalculationContext calcContext;
 
+    /**
+     * Movement costs kept from previous searches, null to calculate everything from scratch
+     */
+    private final MovementCostCache costCache;
+
+    private int numMovementsReused;
+
     public AStarPathFinder(BetterBlockPos realStart, int startX, int startY, int startZ, Goal goal, Favoring favoring, CalculationContext context) {
+        this(realStart, startX, startY, startZ, goal, favoring, context, null);
+    }
+
+    public AStarPathFinder(BetterBlockPos realStart, int startX, int startY, int startZ, Goal goal, Favoring favoring, CalculationContext context, MovementCostCache costCache) {
         super(realStart, startX, startY, startZ, goal, context);
         this.favoring = favoring;
         this.calcContext = context;
+        this.costCache = costCache;
     }
 
     @Override
     protected Optional<IPath> calculate0(long primaryTimeout, long failureTimeout) {
-        int minY = calcContext.world.dimensionType().minY();
-        int height = calcContext.world.dimensionType().height();
-        startNode = getNodeAtPosition(startX, startY, startZ, BetterBlockPos.longHash(startX, startY, startZ));
-        startNode.cost = 0;
-        startNode.combinedCost = startNode.estimatedCostToGoal;
-        BinaryHeapOpenSet openSet = new BinaryHeapOpenSet();
-        openSet.insert(startNode);
-        double[] bestHeuristicSoFar = new double[COEFFICIENTS.length];//keep track of the best node by the metric of (estimatedCostToGoal + cost / COEFFICIENTS[i])
-        for (int i = 0; i < bestHeuristicSoFar.length; i++) {
-            bestHeuristicSoFar[i] = startNode.estimatedCostToGoal;
-            bestSoFar[i] = startNode;
+        if (costCache == null) {
+            return search(nodeStore != null ? new NodeStoreAccess() : new PathNodeAccess(), primaryTimeout, failureTimeout);
+        }
+        costCache.begin(calcContext.movementCostKey(), Baritone.settings().incrementalPathingMaxCachedPositions.value);
+        try {
+            Optional<IPath> result = search(nodeStore != null ? new NodeStoreAccess() : new PathNodeAccess(), primaryTimeout, failureTimeout);
+            logDebug("Reused " + numMovementsReused + " movement costs from previous searches, " + costCache.size() + " positions cached");
+            return result;
+        } finally {
+            costCache.end();
         }
+    }
+
+    private Optional<IPath> search(NodeAccess nodes, long primaryTimeout, long failureTimeout) {
+        int minY = calcContext.bsi.minY;
+        int height = calcContext.bsi.height;
+        Corridor corridor = planCorridor();
+        double startEstimate = nodes.start();
+        double[] bestHeuristicSoFar = new double[COEFFICIENTS.length];//keep track of the best node by the metric of (estimatedCostToGoal + cost / COEFFICIENTS[i])
+        Arrays.fill(bestHeuristicSoFar, startEstimate);
         MutableMoveResult res = new MutableMoveResult();
-        BetterWorldBorder worldBorder = new BetterWorldBorder(calcContext.world.getWorldBorder());
+        BetterWorldBorder worldBorder = calcContext.worldBorder;
         long startTime = System.currentTimeMillis();
         boolean slowPath = Baritone.settings().slowPath.value;
         if (slowPath) {
@@ -79,7 +104,7 @@ public final class AStarPathFinder extends AbstractNodeCostSearch {
         int pathingMaxChunkBorderFetch = Baritone.settings().pathingMaxChunkBorderFetch.value; // grab all settings beforehand so that changing settings during pathing doesn't cause a crash or unpredictable behavior
         double minimumImprovement = Baritone.settings().minimumImprovementRepropagation.value ? MIN_IMPROVEMENT : 0;
         Moves[] allMoves = Moves.values();
-        while (!openSet.isEmpty() && numEmptyChunk < pathingMaxChunkBorderFetch && !cancelRequested) {
+        while (!nodes.isOpenSetEmpty() && numEmptyChunk < pathingMaxChunkBorderFetch && !cancelRequested) {
             if ((numNodes & (timeCheckInterval - 1)) == 0) { // only call this once every 64 nodes (about half a millisecond)
                 long now = System.currentTimeMillis(); // since nanoTime is slow on windows (takes many microseconds)
                 if (now - failureTimeoutTime >= 0 || (!failing && now - primaryTimeoutTime >= 0)) {
@@ -91,17 +116,22 @@ public final class AStarPathFinder extends AbstractNodeCostSearch {
                     Thread.sleep(Baritone.settings().slowPathTimeDelayMS.value);
                 } catch (InterruptedException ignored) {}
             }
-            PathNode currentNode = openSet.removeLowest();
-            mostRecentConsidered = currentNode;
+            nodes.removeLowest();
             numNodes++;
-            if (goal.isInGoal(currentNode.x, currentNode.y, currentNode.z)) {
+            int currentX = nodes.currentX();
+            int currentY = nodes.currentY();
+            int currentZ = nodes.currentZ();
+            if (goal.isInGoal(currentX, currentY, currentZ)) {
                 logDebug("Took " + (System.currentTimeMillis() - startTime) + "ms, " + numMovementsConsidered + " movements considered");
-                return Optional.of(new Path(realStart, startNode, currentNode, numNodes, goal, calcContext));
+                recordStats(numNodes, numMovementsConsidered);
+                return Optional.of(nodes.pathToCurrent(numNodes));
             }
+            double currentCost = nodes.currentCost();
+            MovementCostCache.Entry cachedCosts = cachedCostsAt(currentX, currentY, currentZ);
             for (Moves moves : allMoves) {
-                int newX = currentNode.x + moves.xOffset;
-                int newZ = currentNode.z + moves.zOffset;
-                if ((newX >> 4 != currentNode.x >> 4 || newZ >> 4 != currentNode.z >> 4) && !calcContext.isLoaded(newX, newZ)) {
+                int newX = currentX + moves.xOffset;
+                int newZ = currentZ + moves.zOffset;
+                if ((newX >> 4 != currentX >> 4 || newZ >> 4 != currentZ >> 4) && !calcContext.isLoaded(newX, newZ)) {
                     // only need to check if the destination is a loaded chunk if it's in a different chunk than the start of the movement
                     if (!moves.dynamicXZ) { // only increment the counter if the movement would have gone out of bounds guaranteed
                         numEmptyChunk++;
@@ -111,11 +141,14 @@ public final class AStarPathFinder extends AbstractNodeCostSearch {
                 if (!moves.dynamicXZ && !worldBorder.entirelyContains(newX, newZ)) {
                     continue;
                 }
-                if (currentNode.y + moves.yOffset > height || currentNode.y + moves.yOffset < minY) {
+                if (corridor != null && !moves.dynamicXZ && !corridor.allows(newX, newZ)) {
+                    continue;
+                }
+                if (currentY + moves.yOffset > height || currentY + moves.yOffset < minY) {
                     continue;
                 }
                 res.reset();
-                moves.apply(calcContext, currentNode.x, currentNode.y, currentNode.z, res);
+                applyMove(moves, cachedCosts, currentX, currentY, currentZ, res);
                 numMovementsConsidered++;
                 double actionCost = res.cost;
                 if (actionCost >= ActionCosts.COST_INF) {
@@ -128,34 +161,29 @@ public final class AStarPathFinder extends AbstractNodeCostSearch {
                 if (moves.dynamicXZ && !worldBorder.entirelyContains(res.x, res.z)) { // see issue #218
                     continue;
                 }
+                if (corridor != null && moves.dynamicXZ && !corridor.allows(res.x, res.z)) {
+                    continue;
+                }
                 if (!moves.dynamicXZ && (res.x != newX || res.z != newZ)) {
                     throw new IllegalStateException(moves + " " + res.x + " " + newX + " " + res.z + " " + newZ);
                 }
-                if (!moves.dynamicY && res.y != currentNode.y + moves.yOffset) {
-                    throw new IllegalStateException(moves + " " + res.y + " " + (currentNode.y + moves.yOffset));
+                if (!moves.dynamicY && res.y != currentY + moves.yOffset) {
+                    throw new IllegalStateException(moves + " " + res.y + " " + (currentY + moves.yOffset));
                 }
                 long hashCode = BetterBlockPos.longHash(res.x, res.y, res.z);
                 if (isFavoring) {
                     // see issue #18
                     actionCost *= favoring.calculate(hashCode);
                 }
-                PathNode neighbor = getNodeAtPosition(res.x, res.y, res.z, hashCode);
-                double tentativeCost = currentNode.cost + actionCost;
-                if (neighbor.cost - tentativeCost > minimumImprovement) {
-                    neighbor.previous = currentNode;
-                    neighbor.cost = tentativeCost;
-                    neighbor.combinedCost = tentativeCost + neighbor.estimatedCostToGoal;
-                    if (neighbor.isOpen()) {
-                        openSet.update(neighbor);
-                    } else {
-                        openSet.insert(neighbor);//dont double count, dont insert into open set if it's already there
-                    }
+                double tentativeCost = currentCost + actionCost;
+                if (nodes.selectNeighbor(res.x, res.y, res.z, hashCode) - tentativeCost > minimumImprovement) {
+                    double estimatedCostToGoal = nodes.improveNeighbor(tentativeCost);
                     for (int i = 0; i < COEFFICIENTS.length; i++) {
-                        double heuristic = neighbor.estimatedCostToGoal + neighbor.cost / COEFFICIENTS[i];
+                        double heuristic = estimatedCostToGoal + tentativeCost / COEFFICIENTS[i];
                         if (bestHeuristicSoFar[i] - heuristic > minimumImprovement) {
                             bestHeuristicSoFar[i] = heuristic;
-                            bestSoFar[i] = neighbor;
-                            if (failing && getDistFromStartSq(neighbor) > MIN_DIST_PATH * MIN_DIST_PATH) {
+                            nodes.neighborIsBestSoFar(i);
+                            if (failing && nodes.neighborDistFromStartSq() > MIN_DIST_PATH * MIN_DIST_PATH) {
                                 failing = false;
                             }
                         }
@@ -163,11 +191,12 @@ public final class AStarPathFinder extends AbstractNodeCostSearch {
                 }
             }
         }
+        recordStats(numNodes, numMovementsConsidered);
         if (cancelRequested) {
             return Optional.empty();
         }
         System.out.println(numMovementsConsidered + " movements considered");
-        System.out.println("Open set size: " + openSet.size());
+        System.out.println("Open set size: " + nodes.openSetSize());
         System.out.println("PathNode map size: " + mapSize());
         System.out.println((int) (numNodes * 1.0 / ((System.currentTimeMillis() - startTime) / 1000F)) + " nodes per second");
         Optional<IPath> result = bestSoFar(true, numNodes);
@@ -176,4 +205,303 @@ public final class AStarPathFinder extends AbstractNodeCostSearch {
         }
         return result;
     }
+
+    /**
+     * @return The cached costs of the movements from this position, or null to calculate them without caching, which is
+     * the case for positions near chunks that aren't loaded since their movements would read the cache instead
+     */
+    private MovementCostCache.Entry cachedCostsAt(int x, int y, int z) {
+        if (costCache == null) {
+            return null;
+        }
+        int reach = MovementCostCache.HORIZONTAL_REACH;
+        // the reach is less than a chunk, so these corners cover every chunk it touches
+        if (calcContext.bsi.getLoadedChunk((x - reach) >> 4, (z - reach) >> 4) == null
+                || calcContext.bsi.getLoadedChunk((x + reach) >> 4, (z - reach) >> 4) == null
+                || calcContext.bsi.getLoadedChunk((x - reach) >> 4, (z + reach) >> 4) == null
+                || calcContext.bsi.getLoadedChunk((x + reach) >> 4, (z + reach) >> 4) == null) {
+            return null;
+        }
+        return costCache.get(x, y, z, BetterBlockPos.longHash(x, y, z));
+    }
+
+    /**
+     * Calculate a movement, or take its result from {@link #costCache} if an earlier search already did
+     */
+    private void applyMove(Moves moves, MovementCostCache.Entry cachedCosts, int x, int y, int z, MutableMoveResult res) {
+        if (cachedCosts == null) {
+            moves.apply(calcContext, x, y, z, res);
+        } else if (cachedCosts.apply(moves, x, y, z, res)) {
+            numMovementsReused++;
+        } else {
+            moves.apply(calcContext, x, y, z, res);
+            cachedCosts.store(moves, res);
+        }
+    }
+
+    /**
+     * Run the {@link HierarchicalPlanner} over the cache if enabled and the goal is far enough away
+     *
+     * @return The corridor to stay in, or null to search unrestricted
+     */
+    private Corridor planCorridor() {
+        if (!Baritone.settings().pathingHierarchical.value || calcContext.worldData == null) {
+            return null;
+        }
+        if (goal.heuristic(startX, startY, startZ) < Baritone.settings().pathingHierarchicalMinDistance.value * ActionCosts.SPRINT_ONE_BLOCK_COST) {
+            return null;
+        }
+        long start = System.currentTimeMillis();
+        Corridor corridor = HierarchicalPlanner.plan(calcContext.worldData.cache.getChunkGraph(), startX, startY, startZ, goal, Baritone.settings().pathingHierarchicalMaxNodes.value, Baritone.settings().pathingCorridorRadius.value);
+        if (corridor == null) {
+            logDebug("No route through the cache, searching without a corridor");
+        } else {
+            logDebug("Planned a corridor of " + corridor.size() + " chunks in " + (System.currentTimeMillis() - start) + "ms");
+        }
+        return corridor;
+    }
+
+    private IOpenSet createOpenSet() {
+        String type = Baritone.settings().pathingOpenSet.value;
+        switch (type.toLowerCase()) {
+            case "binary":
+                return new BinaryHeapOpenSet();
+            case "quaternary":
+                return new QuaternaryHeapOpenSet();
+            case "bucket":
+                return new BucketOpenSet();
+            default:
+                logDebug("Unknown open set \"" + type + "\", using binary");
+                return new BinaryHeapOpenSet();
+        }
+    }
+
+    /**
+     * How {@link #search} reads and updates nodes, either {@link PathNode} objects or the primitive arrays of
+     * {@link #nodeStore}. The search works on a current node, taken from the open set, and a neighbor of it.
+     */
+    private abstract class NodeAccess {
+
+        /**
+         * Create the start node with a cost of zero, add it to the open set and make it the best node so far for every
+         * coefficient
+         *
+         * @return The estimated cost from the start node to the goal
+         */
+        abstract double start();
+
+        abstract boolean isOpenSetEmpty();
+
+        abstract int openSetSize();
+
+        /**
+         * Take the lowest node out of the open set and make it the current node
+         */
+        abstract void removeLowest();
+
+        abstract int currentX();
+
+        abstract int currentY();
+
+        abstract int currentZ();
+
+        abstract double currentCost();
+
+        /**
+         * Make the node at this position the neighbor, creating it if needed
+         *
+         * @return The neighbor's cost so far
+         */
+        abstract double selectNeighbor(int x, int y, int z, long hashCode);
+
+        /**
+         * Reach the neighbor from the current node with a lower cost, and add it to the open set or move it up
+         *
+         * @return The estimated cost from the neighbor to the goal
+         */
+        abstract double improveNeighbor(double cost);
+
+        abstract void neighborIsBestSoFar(int coefficient);
+
+        abstract double neighborDistFromStartSq();
+
+        abstract IPath pathToCurrent(int numNodes);
+    }
+
+    private final class PathNodeAccess extends NodeAccess {
+
+        private final IOpenSet openSet = createOpenSet();
+        private PathNode current;
+        private PathNode neighbor;
+
+        @Override
+        double start() {
+            startNode = getNodeAtPosition(startX, startY, startZ, BetterBlockPos.longHash(startX, startY, startZ));
+            startNode.cost = 0;
+            startNode.combinedCost = startNode.estimatedCostToGoal;
+            openSet.insert(startNode);
+            Arrays.fill(bestSoFar, startNode);
+            return startNode.estimatedCostToGoal;
+        }
+
+        @Override
+        boolean isOpenSetEmpty() {
+            return openSet.isEmpty();
+        }
+
+        @Override
+        int openSetSize() {
+            return openSet.size();
+        }
+
+        @Override
+        void removeLowest() {
+            current = openSet.removeLowest();
+            mostRecentConsidered = current;
+        }
+
+        @Override
+        int currentX() {
+            return current.x;
+        }
+
+        @Override
+        int currentY() {
+            return current.y;
+        }
+
+        @Override
+        int currentZ() {
+            return current.z;
+        }
+
+        @Override
+        double currentCost() {
+            return current.cost;
+        }
+
+        @Override
+        double selectNeighbor(int x, int y, int z, long hashCode) {
+            neighbor = getNodeAtPosition(x, y, z, hashCode);
+            return neighbor.cost;
+        }
+
+        @Override
+        double improveNeighbor(double cost) {
+            neighbor.previous = current;
+            neighbor.cost = cost;
+            neighbor.combinedCost = cost + neighbor.estimatedCostToGoal;
+            if (neighbor.isOpen()) {
+                openSet.update(neighbor);
+            } else {
+                openSet.insert(neighbor);//dont double count, dont insert into open set if it's already there
+            }
+            return neighbor.estimatedCostToGoal;
+        }
+
+        @Override
+        void neighborIsBestSoFar(int coefficient) {
+            bestSoFar[coefficient] = neighbor;
+        }
+
+        @Override
+        double neighborDistFromStartSq() {
+            return getDistFromStartSq(neighbor);
+        }
+
+        @Override
+        IPath pathToCurrent(int numNodes) {
+            return new Path(realStart, startNode, current, numNodes, goal, calcContext);
+        }
+    }
+
+    private final class NodeStoreAccess extends NodeAccess {
+
+        private final NodeStore store = nodeStore;
+        private final IndexedBinaryHeapOpenSet openSet = new IndexedBinaryHeapOpenSet(store);
+        private int current = NodeStore.NO_NODE;
+        private int neighbor = NodeStore.NO_NODE;
+
+        @Override
+        double start() {
+            startNodeIndex = store.getNodeAtPosition(startX, startY, startZ, BetterBlockPos.longHash(startX, startY, startZ));
+            double estimatedCostToGoal = store.estimatedCostToGoal(startNodeIndex);
+            store.setCost(startNodeIndex, 0);
+            store.setCombinedCost(startNodeIndex, estimatedCostToGoal);
+            openSet.insert(startNodeIndex);
+            Arrays.fill(bestSoFarIndex, startNodeIndex);
+            return estimatedCostToGoal;
+        }
+
+        @Override
+        boolean isOpenSetEmpty() {
+            return openSet.isEmpty();
+        }
+
+        @Override
+        int openSetSize() {
+            return openSet.size();
+        }
+
+        @Override
+        void removeLowest() {
+            current = openSet.removeLowest();
+            mostRecentConsideredIndex = current;
+        }
+
+        @Override
+        int currentX() {
+            return store.x(current);
+        }
+
+        @Override
+        int currentY() {
+            return store.y(current);
+        }
+
+        @Override
+        int currentZ() {
+            return store.z(current);
+        }
+
+        @Override
+        double currentCost() {
+            return store.cost(current);
+        }
+
+        @Override
+        double selectNeighbor(int x, int y, int z, long hashCode) {
+            neighbor = store.getNodeAtPosition(x, y, z, hashCode);
+            return store.cost(neighbor);
+        }
+
+        @Override
+        double improveNeighbor(double cost) {
+            double estimatedCostToGoal = store.estimatedCostToGoal(neighbor);
+            store.setPrevious(neighbor, current);
+            store.setCost(neighbor, cost);
+            store.setCombinedCost(neighbor, cost + estimatedCostToGoal);
+            if (store.isOpen(neighbor)) {
+                openSet.update(neighbor);
+            } else {
+                openSet.insert(neighbor);//dont double count, dont insert into open set if it's already there
+            }
+            return estimatedCostToGoal;
+        }
+
+        @Override
+        void neighborIsBestSoFar(int coefficient) {
+            bestSoFarIndex[coefficient] = neighbor;
+        }
+
+        @Override
+        double neighborDistFromStartSq() {
+            return getDistFromStartSq(neighbor);
+        }
+
+        @Override
+        IPath pathToCurrent(int numNodes) {
+            return new Path(realStart, store.published(), startNodeIndex, current, numNodes, goal, calcContext);
+        }
+    }
 }
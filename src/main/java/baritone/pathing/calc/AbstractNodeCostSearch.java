@@ -27,6 +27,7 @@ import baritone.api.utils.PathCalculationResult;
 import baritone.pathing.movement.CalculationContext;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 
+import java.util.Arrays;
 import java.util.Optional;
 
 /**
@@ -50,14 +51,29 @@ public abstract class AbstractNodeCostSearch implements IPathFinder, Helper {
      */
     private final Long2ObjectOpenHashMap<PathNode> map;
 
+    /**
+     * Used instead of {@link #map} and {@link PathNode} objects when {@link baritone.api.Settings#pathingPrimitiveNodeStore} is on
+     */
+    protected final NodeStore nodeStore;
+
     protected PathNode startNode;
 
     protected PathNode mostRecentConsidered;
 
     protected final PathNode[] bestSoFar = new PathNode[COEFFICIENTS.length];
 
+    protected int startNodeIndex = NodeStore.NO_NODE;
+
+    protected int mostRecentConsideredIndex = NodeStore.NO_NODE;
+
+    protected final int[] bestSoFarIndex = new int[COEFFICIENTS.length];
+
     private volatile boolean isFinished;
 
+    private int numNodesConsidered;
+
+    private int numMovementsConsidered;
+
     protected boolean cancelRequested;
 
     /**
@@ -89,7 +105,14 @@ public abstract class AbstractNodeCostSearch implements IPathFinder, Helper {
         this.startZ = startZ;
         this.goal = goal;
         this.context = context;
-        this.map = new Long2ObjectOpenHashMap<>(Baritone.settings().pathingMapDefaultSize.value, Baritone.settings().pathingMapLoadFactor.value);
+        if (Baritone.settings().pathingPrimitiveNodeStore.value) {
+            this.map = null;
+            this.nodeStore = new NodeStore(goal, Baritone.settings().pathingMapDefaultSize.value, Baritone.settings().pathingMapLoadFactor.value);
+        } else {
+            this.map = new Long2ObjectOpenHashMap<>(Baritone.settings().pathingMapDefaultSize.value, Baritone.settings().pathingMapLoadFactor.value);
+            this.nodeStore = null;
+        }
+        Arrays.fill(bestSoFarIndex, NodeStore.NO_NODE);
     }
 
     public void cancel() {
@@ -140,6 +163,25 @@ public abstract class AbstractNodeCostSearch implements IPathFinder, Helper {
 
     protected abstract Optional<IPath> calculate0(long primaryTimeout, long failureTimeout);
 
+    /**
+     * Called once by {@link #calculate0(long, long)} when the search ends, however it ends
+     *
+     * @param numNodes               How many nodes were taken out of the open set
+     * @param numMovementsConsidered How many movements had their cost calculated
+     */
+    protected void recordStats(int numNodes, int numMovementsConsidered) {
+        this.numNodesConsidered = numNodes;
+        this.numMovementsConsidered = numMovementsConsidered;
+    }
+
+    public int getNumNodesConsidered() {
+        return numNodesConsidered;
+    }
+
+    public int getNumMovementsConsidered() {
+        return numMovementsConsidered;
+    }
+
     /**
      * Determines the distance squared from the specified node to the start
      * node. Intended for use in distance comparison, rather than anything that
@@ -155,6 +197,19 @@ public abstract class AbstractNodeCostSearch implements IPathFinder, Helper {
         return xDiff * xDiff + yDiff * yDiff + zDiff * zDiff;
     }
 
+    /**
+     * Same as {@link #getDistFromStartSq(PathNode)}, for a node in {@link #nodeStore}
+     *
+     * @param node A node index
+     * @return The distance, squared
+     */
+    protected double getDistFromStartSq(int node) {
+        int xDiff = nodeStore.x(node) - startX;
+        int yDiff = nodeStore.y(node) - startY;
+        int zDiff = nodeStore.z(node) - startZ;
+        return xDiff * xDiff + yDiff * yDiff + zDiff * zDiff;
+    }
+
     /**
      * Attempts to search the block position hashCode long to {@link PathNode} map
      * for the node mapped to the specified pos. If no node is found,
@@ -179,6 +234,11 @@ public abstract class AbstractNodeCostSearch implements IPathFinder, Helper {
 
     @Override
     public Optional<IPath> pathToMostRecentNodeConsidered() {
+        if (nodeStore != null) {
+            NodeStore.Nodes nodes = nodeStore.published();
+            int node = mostRecentConsideredIndex;
+            return nodes.contains(startNodeIndex) && nodes.contains(node) ? Optional.of(new Path(realStart, nodes, startNodeIndex, node, 0, goal, context)) : Optional.empty();
+        }
         return Optional.ofNullable(mostRecentConsidered).map(node -> new Path(realStart, startNode, node, 0, goal, context));
     }
 
@@ -188,15 +248,30 @@ public abstract class AbstractNodeCostSearch implements IPathFinder, Helper {
     }
 
     protected Optional<IPath> bestSoFar(boolean logInfo, int numNodes) {
-        if (startNode == null) {
+        if (startNode == null && startNodeIndex == NodeStore.NO_NODE) {
             return Optional.empty();
         }
+        // read once, this can be called from another thread while the search is still growing the store
+        NodeStore.Nodes nodes = nodeStore != null ? nodeStore.published() : null;
         double bestDist = 0;
         for (int i = 0; i < COEFFICIENTS.length; i++) {
-            if (bestSoFar[i] == null) {
-                continue;
+            int bestIndex = bestSoFarIndex[i];
+            double dist;
+            if (nodes != null) {
+                // a node created since the store last grew may not be visible to this thread yet
+                if (!nodes.contains(startNodeIndex) || !nodes.contains(bestIndex)) {
+                    continue;
+                }
+                int xDiff = nodes.x(bestIndex) - startX;
+                int yDiff = nodes.y(bestIndex) - startY;
+                int zDiff = nodes.z(bestIndex) - startZ;
+                dist = xDiff * xDiff + yDiff * yDiff + zDiff * zDiff;
+            } else {
+                if (bestSoFar[i] == null) {
+                    continue;
+                }
+                dist = getDistFromStartSq(bestSoFar[i]);
             }
-            double dist = getDistFromStartSq(bestSoFar[i]);
             if (dist > bestDist) {
                 bestDist = dist;
             }
@@ -210,6 +285,9 @@ public abstract class AbstractNodeCostSearch implements IPathFinder, Helper {
                     System.out.println("Path goes for " + Math.sqrt(dist) + " blocks");
                     logDebug("A* cost coefficient " + COEFFICIENTS[i]);
                 }
+                if (nodes != null) {
+                    return Optional.of(new Path(realStart, nodes, startNodeIndex, bestIndex, numNodes, goal, context));
+                }
                 return Optional.of(new Path(realStart, startNode, bestSoFar[i], numNodes, goal, context));
             }
         }
@@ -238,6 +316,6 @@ public abstract class AbstractNodeCostSearch implements IPathFinder, Helper {
     }
 
     protected int mapSize() {
-        return map.size();
+        return nodeStore != null ? nodeStore.size() : map.size();
     }
 }
@@ -0,0 +1,47 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.world.level.ChunkPos;
+
+/**
+ * The chunks a block level search is allowed into, as planned by {@link HierarchicalPlanner}.
+ * <p>
+ * Only chunks that the high level search looked at and didn't route through are excluded. Anything it never saw
+ * (not cached, or past where it stopped) stays open, since there's nothing known about it to rule it out.
+ */
+final class Corridor {
+
+    private final LongOpenHashSet allowed;
+    private final LongOpenHashSet examined;
+
+    Corridor(LongOpenHashSet allowed, LongOpenHashSet examined) {
+        this.allowed = allowed;
+        this.examined = examined;
+    }
+
+    boolean allows(int x, int z) {
+        long chunk = ChunkPos.asLong(x >> 4, z >> 4);
+        return allowed.contains(chunk) || !examined.contains(chunk);
+    }
+
+    int size() {
+        return allowed.size();
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc;
+
+import baritone.api.pathing.goals.Goal;
+import baritone.api.pathing.movement.ActionCosts;
+import baritone.cache.ChunkConnectivity;
+import baritone.cache.ChunkGraph;
+import it.unimi.dsi.fastutil.longs.Long2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.world.level.ChunkPos;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * High level search over the entrances of cached chunks (see {@link ChunkGraph}), HPA* style.
+ * <p>
+ * Finds a route of chunks from the start towards the goal using only what's in the cache, then widens it into a
+ * {@link Corridor} that {@link AStarPathFinder} stays inside of. Entrances that lead into chunks that aren't cached
+ * are treated as exits with the goal heuristic as the remaining cost, so a route can be found even if the goal itself
+ * is far outside of the cache.
+ */
+final class HierarchicalPlanner {
+
+    /**
+     * Cost of one step in the chunk graph, consistent with the goal heuristics which are in sprinting distance
+     */
+    private static final double STEP_COST = ActionCosts.SPRINT_ONE_BLOCK_COST;
+
+    /**
+     * An entrance this close to the goal (by heuristic) ends the high level search
+     */
+    private static final double CLOSE_ENOUGH = 16 * STEP_COST;
+
+    private HierarchicalPlanner() {}
+
+    /**
+     * @param maxNodes Most entrances to expand before giving up
+     * @param radius   How many chunks to widen the route by on each side
+     * @return The corridor, or null if the start isn't cached or no route was found
+     */
+    static Corridor plan(ChunkGraph graph, int startX, int startY, int startZ, Goal goal, int maxNodes, int radius) {
+        ChunkConnectivity startChunk = graph.get(startX >> 4, startZ >> 4);
+        if (startChunk == null) {
+            return null;
+        }
+        float[] fromStart = graph.stepsFrom(startChunk, startX, startY, startZ);
+        if (fromStart == null) {
+            return null;
+        }
+        LongOpenHashSet examined = new LongOpenHashSet();
+        examined.add(ChunkPos.asLong(startChunk.chunkX, startChunk.chunkZ));
+        Long2DoubleOpenHashMap bestCost = new Long2DoubleOpenHashMap();
+        bestCost.defaultReturnValue(Double.POSITIVE_INFINITY);
+        PriorityQueue<Node> openSet = new PriorityQueue<>(Comparator.comparingDouble(node -> node.combinedCost));
+        for (int i = 0; i < fromStart.length; i++) {
+            if (fromStart[i] != Float.POSITIVE_INFINITY) {
+                relax(openSet, bestCost, goal, startChunk, i, fromStart[i] * STEP_COST, null);
+            }
+        }
+        Node bestExit = null;
+        double bestExitCost = Double.POSITIVE_INFINITY;
+        int expanded = 0;
+        while (!openSet.isEmpty() && expanded < maxNodes) {
+            Node node = openSet.poll();
+            if (node.cost > bestCost.get(node.key)) {
+                continue; // stale, a cheaper way here was found after this was queued
+            }
+            if (node.combinedCost >= bestExitCost) {
+                break;
+            }
+            expanded++;
+            ChunkConnectivity chunk = node.chunk;
+            int i = node.entrance;
+            int x = chunk.x(i);
+            int y = chunk.y(i);
+            int z = chunk.z(i);
+            double exitCost = goal.isInGoal(x, y, z) ? node.cost : node.estimatedCostToGoal <= CLOSE_ENOUGH ? node.cost + node.estimatedCostToGoal : Double.POSITIVE_INFINITY;
+            if (exitCost < bestExitCost) {
+                bestExit = node;
+                bestExitCost = exitCost;
+            }
+            for (int j = 0; j < chunk.entranceCount(); j++) {
+                float steps = chunk.steps(i, j);
+                if (j != i && steps != Float.POSITIVE_INFINITY) {
+                    relax(openSet, bestCost, goal, chunk, j, node.cost + steps * STEP_COST, node);
+                }
+            }
+            int side = chunk.side(i);
+            int dx = side == ChunkConnectivity.WEST ? -1 : side == ChunkConnectivity.EAST ? 1 : 0;
+            int dz = side == ChunkConnectivity.NORTH ? -1 : side == ChunkConnectivity.SOUTH ? 1 : 0;
+            ChunkConnectivity neighbor = graph.get(chunk.chunkX + dx, chunk.chunkZ + dz);
+            if (neighbor == null) {
+                // leads out of the cache, all we know about the rest of the way is the heuristic
+                double frontierCost = node.cost + STEP_COST + goal.heuristic(x + dx, y, z + dz);
+                if (frontierCost < bestExitCost) {
+                    bestExit = node;
+                    bestExitCost = frontierCost;
+                }
+                continue;
+            }
+            examined.add(ChunkPos.asLong(neighbor.chunkX, neighbor.chunkZ));
+            for (int j = 0; j < neighbor.entranceCount(); j++) {
+                if (chunk.connects(i, neighbor, j)) {
+                    int steps = Math.abs(neighbor.x(j) - x) + Math.abs(neighbor.y(j) - y) + Math.abs(neighbor.z(j) - z);
+                    relax(openSet, bestCost, goal, neighbor, j, node.cost + steps * STEP_COST, node);
+                }
+            }
+        }
+        if (bestExit == null) {
+            return null;
+        }
+        LongOpenHashSet allowed = new LongOpenHashSet();
+        widen(allowed, startChunk.chunkX, startChunk.chunkZ, radius);
+        for (Node node = bestExit; node != null; node = node.previous) {
+            widen(allowed, node.chunk.chunkX, node.chunk.chunkZ, radius);
+        }
+        return new Corridor(allowed, examined);
+    }
+
+    private static void relax(PriorityQueue<Node> openSet, Long2DoubleOpenHashMap bestCost, Goal goal, ChunkConnectivity chunk, int entrance, double cost, Node previous) {
+        long key = key(chunk, entrance);
+        if (cost >= bestCost.get(key)) {
+            return;
+        }
+        bestCost.put(key, cost);
+        double estimate = goal.heuristic(chunk.x(entrance), chunk.y(entrance), chunk.z(entrance));
+        openSet.add(new Node(key, chunk, entrance, cost, estimate, previous));
+    }
+
+    private static void widen(LongOpenHashSet allowed, int chunkX, int chunkZ, int radius) {
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dz = -radius; dz <= radius; dz++) {
+                allowed.add(ChunkPos.asLong(chunkX + dx, chunkZ + dz));
+            }
+        }
+    }
+
+    private static long key(ChunkConnectivity chunk, int entrance) {
+        // chunk x and z take 26 bits each (two's complement, masked), the entrance index sits above them from bit 52
+        return ((long) chunk.chunkX & 0x3FFFFFFL) | ((long) chunk.chunkZ & 0x3FFFFFFL) << 26 | (long) entrance << 52;
+    }
+
+    private static final class Node {
+
+        private final long key;
+        private final ChunkConnectivity chunk;
+        private final int entrance;
+        private final double cost;
+        private final double estimatedCostToGoal;
+        private final double combinedCost;
+        private final Node previous;
+
+        private Node(long key, ChunkConnectivity chunk, int entrance, double cost, double estimatedCostToGoal, Node previous) {
+            this.key = key;
+            this.chunk = chunk;
+            this.entrance = entrance;
+            this.cost = cost;
+            this.estimatedCostToGoal = estimatedCostToGoal;
+            this.combinedCost = cost + estimatedCostToGoal;
+            this.previous = previous;
+        }
+    }
+}
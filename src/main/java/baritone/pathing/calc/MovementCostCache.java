@@ -0,0 +1,291 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc;
+
+import baritone.api.event.events.BlockChangeEvent;
+import baritone.api.utils.BetterBlockPos;
+import baritone.api.utils.Pair;
+import baritone.pathing.movement.CalculationContext;
+import baritone.pathing.movement.Moves;
+import baritone.utils.pathing.MutableMoveResult;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.BlockGetter;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.FallingBlock;
+import net.minecraft.world.level.block.state.BlockState;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+
+/**
+ * Movement costs calculated by previous searches, kept so that a replan after a few blocks changed only recalculates
+ * the movements that could have read one of those blocks.
+ * <p>
+ * Only one search at a time reads and writes the costs, between {@link #begin(List, int)} and {@link #end()}. Block and
+ * chunk changes arrive on the game thread and are queued, then applied by {@link #begin(List, int)} before the next
+ * search. That way a cost that a running search calculates from a block that's changing underneath it still gets thrown
+ * out before anything reads it again.
+ * <p>
+ * Only the costs of movements that read nothing but loaded chunks are kept, since there's no event for the cached
+ * chunks that are read instead of unloaded ones changing. See {@link AStarPathFinder}.
+ * <p>
+ * Searches from a new start towards possibly a new goal can't reuse the previous search's costs so far, but the
+ * individual movement costs don't depend on either, and calculating those is where nearly all of the time goes.
+ */
+public final class MovementCostCache {
+
+    private static final Moves[] MOVES = Moves.values();
+
+    /**
+     * How far horizontally a movement from a position can look. Parkour reaches 4 blocks out, plus checking around that
+     */
+    static final int HORIZONTAL_REACH = 5;
+
+    /**
+     * How far up or down a movement from a position can look, besides falling
+     */
+    private static final int VERTICAL_REACH = 4;
+
+    /**
+     * Block changes in one event past which it's cheaper to just drop everything near the chunk
+     */
+    private static final int MAX_BLOCKS_PER_EVENT = 64;
+
+    private static final long NO_ENTRIES = Long.MIN_VALUE;
+
+    private final Long2ObjectOpenHashMap<Entry> entries = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * Lowest and highest y with an entry in each x, z column, packed as {@code minY << 32 | maxY}
+     */
+    private final Long2LongOpenHashMap columns = new Long2LongOpenHashMap();
+
+    private final Queue<BlockPos> changedBlocks = new ConcurrentLinkedQueue<>();
+    private final Queue<ChunkPos> changedChunks = new ConcurrentLinkedQueue<>();
+
+    private List<Object> contextKey;
+
+    /**
+     * Whether a search is between {@link #begin} and {@link #end}
+     */
+    private boolean inUse;
+
+    /**
+     * The most positions to keep costs for, as of the last {@link #begin}
+     */
+    private int maxEntries;
+
+    public MovementCostCache() {
+        columns.defaultReturnValue(NO_ENTRIES);
+    }
+
+    /**
+     * Called from the game thread when blocks change
+     *
+     * @param world The world, with the changes already applied
+     */
+    public void blocksChanged(BlockChangeEvent event, BlockGetter world) {
+        blocksChanged(event, pos -> world.getBlockState(pos).getBlock() instanceof FallingBlock);
+    }
+
+    /**
+     * @param isFalling Whether the block at a position is a {@link FallingBlock}
+     */
+    void blocksChanged(BlockChangeEvent event, Predicate<BlockPos> isFalling) {
+        if (event.getBlocks().size() > MAX_BLOCKS_PER_EVENT) {
+            changedChunks.add(event.getChunkPos());
+            return;
+        }
+        for (Pair<BlockPos, BlockState> change : event.getBlocks()) {
+            BlockPos pos = change.first();
+            changedBlocks.add(pos);
+            // breaking a block counts the falling blocks stacked on top of it, all the way up to this one
+            BlockPos below = pos.below();
+            while (isFalling.test(below)) {
+                changedBlocks.add(below);
+                below = below.below();
+            }
+            changedBlocks.add(below);
+        }
+    }
+
+    /**
+     * Called from the game thread when a chunk is loaded, unloaded or repopulated
+     */
+    public void chunkChanged(ChunkPos chunk) {
+        changedChunks.add(chunk);
+    }
+
+    /**
+     * Prepare for a search. Applies the queued changes, and forgets everything if the search's context would calculate
+     * different costs than the last one or the cache is full. Waits for the previous search to {@link #end()} first,
+     * which is only ever a moment since that's one that was cancelled.
+     *
+     * @param key        The {@link CalculationContext#movementCostKey()} of the search's context
+     * @param maxEntries The most positions to keep costs for, past this the search carries on without storing more
+     */
+    synchronized void begin(List<Object> key, int maxEntries) {
+        boolean interrupted = false;
+        while (inUse) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        inUse = true;
+        this.maxEntries = maxEntries;
+        if (!key.equals(contextKey) || entries.size() >= maxEntries) {
+            contextKey = key;
+            entries.clear();
+            columns.clear();
+            changedBlocks.clear();
+            changedChunks.clear();
+            return;
+        }
+        ChunkPos chunk;
+        while ((chunk = changedChunks.poll()) != null) {
+            int x = chunk.getMinBlockX();
+            int z = chunk.getMinBlockZ();
+            invalidate(x - HORIZONTAL_REACH, z - HORIZONTAL_REACH, x + 15 + HORIZONTAL_REACH, z + 15 + HORIZONTAL_REACH, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+        BlockPos pos;
+        while ((pos = changedBlocks.poll()) != null) {
+            invalidate(pos.getX() - HORIZONTAL_REACH, pos.getZ() - HORIZONTAL_REACH, pos.getX() + HORIZONTAL_REACH, pos.getZ() + HORIZONTAL_REACH, pos.getY() - VERTICAL_REACH, pos.getY() + VERTICAL_REACH);
+            // falls read straight down as far as it takes to land, so everything above in the adjacent columns
+            invalidate(pos.getX() - 1, pos.getZ() - 1, pos.getX() + 1, pos.getZ() + 1, pos.getY() - VERTICAL_REACH, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Called once the search that called {@link #begin} is done with the costs, however it ended
+     */
+    synchronized void end() {
+        inUse = false;
+        notifyAll();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Invalidate the entries from {@code minY} to {@code maxY} (inclusive) in all of the columns in the area
+     */
+    private void invalidate(int minX, int minZ, int maxX, int maxZ, int minY, int maxY) {
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                long bounds = columns.get(BetterBlockPos.longHash(x, 0, z));
+                if (bounds == NO_ENTRIES) {
+                    continue;
+                }
+                int from = Math.max(minY, (int) (bounds >> 32));
+                int to = Math.min(maxY, (int) bounds);
+                for (int y = from; y <= to; y++) {
+                    entries.remove(BetterBlockPos.longHash(x, y, z));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The cached costs of movements from this position, created empty if there weren't any. Once the cache is
+     * full, positions that aren't in it yet get an entry that doesn't store anything
+     */
+    Entry get(int x, int y, int z, long hashCode) {
+        Entry entry = entries.get(hashCode);
+        if (entry == null) {
+            if (entries.size() >= maxEntries) {
+                return Entry.FULL;
+            }
+            entry = new Entry();
+            entries.put(hashCode, entry);
+            long column = BetterBlockPos.longHash(x, 0, z);
+            long bounds = columns.get(column);
+            if (bounds == NO_ENTRIES) {
+                columns.put(column, (long) y << 32 | (y & 0xFFFFFFFFL));
+            } else {
+                int min = Math.min(y, (int) (bounds >> 32));
+                int max = Math.max(y, (int) bounds);
+                columns.put(column, (long) min << 32 | (max & 0xFFFFFFFFL));
+            }
+        }
+        return entry;
+    }
+
+    static final class Entry {
+
+        /**
+         * Handed out for new positions once the cache is full. Never has anything to apply, and ignores stores
+         */
+        private static final Entry FULL = new Entry();
+
+        private final double[] costs = new double[MOVES.length];
+
+        /**
+         * Destinations of the movements whose destination isn't a fixed offset, as {@link BlockPos#asLong}
+         */
+        private final long[] destinations = new long[MOVES.length];
+
+        private Entry() {
+            Arrays.fill(costs, Double.NaN);
+        }
+
+        /**
+         * Fill in the result of this movement if it was calculated before
+         *
+         * @return Whether it was
+         */
+        boolean apply(Moves moves, int x, int y, int z, MutableMoveResult res) {
+            double cost = costs[moves.ordinal()];
+            if (Double.isNaN(cost)) {
+                return false;
+            }
+            res.cost = cost;
+            if (moves.dynamicXZ || moves.dynamicY) {
+                long dest = destinations[moves.ordinal()];
+                res.x = BlockPos.getX(dest);
+                res.y = BlockPos.getY(dest);
+                res.z = BlockPos.getZ(dest);
+            } else {
+                res.x = x + moves.xOffset;
+                res.y = y + moves.yOffset;
+                res.z = z + moves.zOffset;
+            }
+            return true;
+        }
+
+        void store(Moves moves, MutableMoveResult res) {
+            if (this == FULL) {
+                return;
+            }
+            costs[moves.ordinal()] = res.cost;
+            if (moves.dynamicXZ || moves.dynamicY) {
+                destinations[moves.ordinal()] = BlockPos.asLong(res.x, res.y, res.z);
+            }
+        }
+    }
+}
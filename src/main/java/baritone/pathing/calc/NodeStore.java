@@ -0,0 +1,300 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc;
+
+import baritone.api.pathing.goals.Goal;
+import baritone.api.pathing.movement.ActionCosts;
+import it.unimi.dsi.fastutil.HashCommon;
+
+import java.util.Arrays;
+
+/**
+ * A struct-of-arrays alternative to keeping one {@link PathNode} object per position in a map.
+ * <p>
+ * Every node is an int index into parallel primitive arrays, and positions are resolved to indices through an
+ * open-addressed long to int table, so a search allocates a handful of arrays instead of millions of small objects.
+ */
+public final class NodeStore {
+
+    /**
+     * Used for {@link #previous(int)} and by the search to mean "no node at all"
+     */
+    public static final int NO_NODE = -1;
+
+    private final Goal goal;
+
+    private int[] x;
+    private int[] y;
+    private int[] z;
+    private double[] cost;
+    private double[] combinedCost;
+    private double[] estimatedCostToGoal;
+    private int[] previous;
+    private int[] heapPosition;
+
+    private int size;
+
+    /**
+     * The arrays that a path is traced through, as of the last time they grew
+     */
+    private volatile Nodes published;
+
+    /**
+     * Open addressed position hash to node index table. A value of 0 means the slot is empty, otherwise the slot holds
+     * the node index plus one.
+     */
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int maxFill;
+    private final float loadFactor;
+
+    public NodeStore(Goal goal, int expectedSize, float loadFactor) {
+        this.goal = goal;
+        this.loadFactor = loadFactor;
+        int capacity = Math.max(expectedSize, 16);
+        this.x = new int[capacity];
+        this.y = new int[capacity];
+        this.z = new int[capacity];
+        this.cost = new double[capacity];
+        this.combinedCost = new double[capacity];
+        this.estimatedCostToGoal = new double[capacity];
+        this.previous = new int[capacity];
+        this.heapPosition = new int[capacity];
+        this.published = new Nodes(x, y, z, cost, previous);
+        int tableSize = HashCommon.arraySize(capacity, loadFactor);
+        this.keys = new long[tableSize];
+        this.values = new int[tableSize];
+        this.mask = tableSize - 1;
+        this.maxFill = HashCommon.maxFill(tableSize, loadFactor);
+    }
+
+    /**
+     * Looks up the node at the specified position, creating it if it doesn't exist yet.
+     *
+     * @param x        The x position of the node
+     * @param y        The y position of the node
+     * @param z        The z position of the node
+     * @param hashCode The hash code of the node, provided by {@link baritone.api.utils.BetterBlockPos#longHash(int, int, int)}
+     * @return The index of the associated node
+     */
+    public int getNodeAtPosition(int x, int y, int z, long hashCode) {
+        int pos = (int) HashCommon.mix(hashCode) & mask;
+        int value;
+        while ((value = values[pos]) != 0) {
+            if (keys[pos] == hashCode) {
+                return value - 1;
+            }
+            pos = (pos + 1) & mask;
+        }
+        int node = createNode(x, y, z);
+        keys[pos] = hashCode;
+        values[pos] = node + 1;
+        if (size >= maxFill) {
+            rehash(HashCommon.arraySize(size + 1, loadFactor));
+        }
+        return node;
+    }
+
+    private int createNode(int nodeX, int nodeY, int nodeZ) {
+        if (size == x.length) {
+            int capacity = x.length + (x.length >> 1);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            z = Arrays.copyOf(z, capacity);
+            cost = Arrays.copyOf(cost, capacity);
+            combinedCost = Arrays.copyOf(combinedCost, capacity);
+            estimatedCostToGoal = Arrays.copyOf(estimatedCostToGoal, capacity);
+            previous = Arrays.copyOf(previous, capacity);
+            heapPosition = Arrays.copyOf(heapPosition, capacity);
+            published = new Nodes(x, y, z, cost, previous);
+        }
+        double heuristic = goal.heuristic(nodeX, nodeY, nodeZ);
+        if (Double.isNaN(heuristic)) {
+            throw new IllegalStateException(goal + " calculated implausible heuristic");
+        }
+        int node = size;
+        x[node] = nodeX;
+        y[node] = nodeY;
+        z[node] = nodeZ;
+        cost[node] = ActionCosts.COST_INF;
+        estimatedCostToGoal[node] = heuristic;
+        previous[node] = NO_NODE;
+        heapPosition[node] = -1;
+        size++;
+        return node;
+    }
+
+    private void rehash(int tableSize) {
+        long[] newKeys = new long[tableSize];
+        int[] newValues = new int[tableSize];
+        int newMask = tableSize - 1;
+        for (int i = 0; i < values.length; i++) {
+            int value = values[i];
+            if (value == 0) {
+                continue;
+            }
+            int pos = (int) HashCommon.mix(keys[i]) & newMask;
+            while (newValues[pos] != 0) {
+                pos = (pos + 1) & newMask;
+            }
+            newKeys[pos] = keys[i];
+            newValues[pos] = value;
+        }
+        keys = newKeys;
+        values = newValues;
+        mask = newMask;
+        maxFill = HashCommon.maxFill(tableSize, loadFactor);
+    }
+
+    /**
+     * The arrays of this store that a path is traced through, for a thread other than the one running the search. The
+     * arrays themselves are written without any synchronization, so a node created since the last time they grew may
+     * be out of their bounds, and anything else may be out of date, but they're always the same length as each other.
+     *
+     * @return The arrays as of the last time they grew
+     */
+    public Nodes published() {
+        return published;
+    }
+
+    /**
+     * @return The number of nodes created so far
+     */
+    public int size() {
+        return size;
+    }
+
+    public int x(int node) {
+        return x[node];
+    }
+
+    public int y(int node) {
+        return y[node];
+    }
+
+    public int z(int node) {
+        return z[node];
+    }
+
+    /**
+     * Total cost of getting from start to here
+     */
+    public double cost(int node) {
+        return cost[node];
+    }
+
+    public void setCost(int node, double value) {
+        cost[node] = value;
+    }
+
+    /**
+     * Should always be equal to estimatedCostToGoal + cost
+     */
+    public double combinedCost(int node) {
+        return combinedCost[node];
+    }
+
+    public void setCombinedCost(int node, double value) {
+        combinedCost[node] = value;
+    }
+
+    /**
+     * Cached, should always be equal to goal.heuristic(pos)
+     */
+    public double estimatedCostToGoal(int node) {
+        return estimatedCostToGoal[node];
+    }
+
+    /**
+     * In the graph search, what previous node contributed to the cost, or {@link #NO_NODE}
+     */
+    public int previous(int node) {
+        return previous[node];
+    }
+
+    public void setPrevious(int node, int value) {
+        previous[node] = value;
+    }
+
+    /**
+     * Where is this node in the array flattenization of the heap? Needed for decrease-key operations.
+     */
+    public int heapPosition(int node) {
+        return heapPosition[node];
+    }
+
+    public void setHeapPosition(int node, int value) {
+        heapPosition[node] = value;
+    }
+
+    public boolean isOpen(int node) {
+        return heapPosition[node] != -1;
+    }
+
+    /**
+     * @see #published()
+     */
+    public static final class Nodes {
+
+        private final int[] x;
+        private final int[] y;
+        private final int[] z;
+        private final double[] cost;
+        private final int[] previous;
+
+        private Nodes(int[] x, int[] y, int[] z, double[] cost, int[] previous) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.cost = cost;
+            this.previous = previous;
+        }
+
+        /**
+         * @return The number of nodes these arrays have room for, whether or not they've been created yet
+         */
+        public int capacity() {
+            return previous.length;
+        }
+
+        public boolean contains(int node) {
+            return node >= 0 && node < previous.length;
+        }
+
+        public int x(int node) {
+            return x[node];
+        }
+
+        public int y(int node) {
+            return y[node];
+        }
+
+        public int z(int node) {
+            return z[node];
+        }
+
+        public double cost(int node) {
+            return cost[node];
+        }
+
+        public int previous(int node) {
+            return previous[node];
+        }
+    }
+}
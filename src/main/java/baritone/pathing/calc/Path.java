@@ -28,6 +28,7 @@ import baritone.pathing.movement.Moves;
 import baritone.pathing.path.CutoffPath;
 import baritone.utils.pathing.PathBase;
 import com.google.common.collect.Lists;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -59,7 +60,10 @@ class Path extends PathBase {
 
     private final List<Movement> movements;
 
-    private final List<PathNode> nodes;
+    /**
+     * The cost from the start of the path to each position, in the same order as {@link #path}
+     */
+    private final double[] costs;
 
     private final Goal goal;
 
@@ -70,31 +74,33 @@ class Path extends PathBase {
     private volatile boolean verified;
 
     Path(BetterBlockPos realStart, PathNode start, PathNode end, int numNodes, Goal goal, CalculationContext context) {
-        this.end = new BetterBlockPos(end.x, end.y, end.z);
+        this(realStart, new BetterBlockPos(start.x, start.y, start.z), traceNodes(end), numNodes, goal, context);
+    }
+
+    /**
+     * @param nodes The arrays of the store, which must contain both start and end
+     */
+    Path(BetterBlockPos realStart, NodeStore.Nodes nodes, int start, int end, int numNodes, Goal goal, CalculationContext context) {
+        this(realStart, new BetterBlockPos(nodes.x(start), nodes.y(start), nodes.z(start)), traceNodes(nodes, end), numNodes, goal, context);
+    }
+
+    private Path(BetterBlockPos realStart, BetterBlockPos startNodePos, Trace trace, int numNodes, Goal goal, CalculationContext context) {
+        this.end = trace.positions.get(0);
         this.numNodes = numNodes;
         this.movements = new ArrayList<>();
         this.goal = goal;
         this.context = context;
 
-        PathNode current = end;
-        List<BetterBlockPos> tempPath = new ArrayList<>();
-        List<PathNode> tempNodes = new ArrayList<>();
-        while (current != null) {
-            tempNodes.add(current);
-            tempPath.add(new BetterBlockPos(current.x, current.y, current.z));
-            current = current.previous;
-        }
+        List<BetterBlockPos> tempPath = trace.positions;
+        DoubleArrayList tempCosts = trace.costs;
 
         // If the position the player is at is different from the position we told A* to start from,
         // and A* gave us no movements, then add a fake node that will allow a movement to be created
         // that gets us to the single position in the path.
         // See PathingBehavior#createPathfinder and https://github.com/cabaletta/baritone/pull/4519
-        var startNodePos = new BetterBlockPos(start.x, start.y, start.z);
-        if (!realStart.equals(startNodePos) && start.equals(end)) {
+        if (!realStart.equals(startNodePos) && startNodePos.equals(end)) {
             this.start = realStart;
-            PathNode fakeNode = new PathNode(realStart.x, realStart.y, realStart.z, goal);
-            fakeNode.cost = 0;
-            tempNodes.add(fakeNode);
+            tempCosts.add(0);
             tempPath.add(realStart);
         } else {
             this.start = startNodePos;
@@ -102,7 +108,43 @@ class Path extends PathBase {
 
         // Nodes are traversed last to first so we need to reverse the list
         this.path = Lists.reverse(tempPath);
-        this.nodes = Lists.reverse(tempNodes);
+        this.costs = new double[tempCosts.size()];
+        for (int i = 0; i < costs.length; i++) {
+            costs[i] = tempCosts.getDouble(costs.length - 1 - i);
+        }
+    }
+
+    private static Trace traceNodes(PathNode end) {
+        Trace trace = new Trace();
+        PathNode current = end;
+        while (current != null) {
+            trace.costs.add(current.cost);
+            trace.positions.add(new BetterBlockPos(current.x, current.y, current.z));
+            current = current.previous;
+        }
+        return trace;
+    }
+
+    private static Trace traceNodes(NodeStore.Nodes nodes, int end) {
+        Trace trace = new Trace();
+        int current = end;
+        // bestPathSoFar can be called from another thread while the search is still writing, so the links may be out of
+        // date, and bound the walk in case they're out of date into a loop
+        for (int remaining = nodes.capacity(); nodes.contains(current) && remaining >= 0; remaining--) {
+            trace.costs.add(nodes.cost(current));
+            trace.positions.add(new BetterBlockPos(nodes.x(current), nodes.y(current), nodes.z(current)));
+            current = nodes.previous(current);
+        }
+        return trace;
+    }
+
+    /**
+     * Positions and costs from the end node back to the start node
+     */
+    private static final class Trace {
+
+        private final List<BetterBlockPos> positions = new ArrayList<>();
+        private final DoubleArrayList costs = new DoubleArrayList();
     }
 
     @Override
@@ -115,7 +157,7 @@ class Path extends PathBase {
             throw new IllegalStateException();
         }
         for (int i = 0; i < path.size() - 1; i++) {
-            double cost = nodes.get(i + 1).cost - nodes.get(i).cost;
+            double cost = costs[i + 1] - costs[i];
             Movement move = runBackwards(path.get(i), path.get(i + 1), cost);
             if (move == null) {
                 return true;
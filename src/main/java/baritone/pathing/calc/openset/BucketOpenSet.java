@@ -0,0 +1,248 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc.openset;
+
+import baritone.pathing.calc.PathNode;
+
+import java.util.Arrays;
+
+/**
+ * A bucket queue keyed on quantized {@link PathNode#combinedCost}.
+ * <p>
+ * Action costs come from a small set of constants, so the open set only ever spans a narrow band of combined costs.
+ * Nodes are linked into a circular array of buckets covering that band, insert and decrease-key are constant time, and
+ * {@link #removeLowest()} scans forward to the first non-empty bucket and then picks the exact minimum inside it, so
+ * the ordering is the same as a heap's. Not all goal heuristics are consistent, so keys below the current cursor are
+ * allowed too, they just move the cursor back.
+ * <p>
+ * {@link PathNode#heapPosition} is the node's slot in the dense entry arrays, which is stable until the node is removed.
+ */
+public final class BucketOpenSet implements IOpenSet {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final int INITIAL_BUCKETS = 1 << 12;
+
+    /**
+     * If the band of keys doesn't fit in this many buckets, halve the resolution instead of growing further
+     */
+    private static final int MAX_BUCKETS = 1 << 20;
+
+    private static final int NONE = -1;
+
+    /**
+     * Buckets per tick of cost
+     */
+    private double resolution = 4;
+
+    /**
+     * Head entry of each bucket, indexed by key & mask
+     */
+    private int[] buckets;
+    private int mask;
+
+    /**
+     * Dense per-entry arrays, entry i is nodes[i], with a doubly linked list per bucket
+     */
+    private PathNode[] nodes;
+    private long[] keys;
+    private int[] next;
+    private int[] prev;
+
+    private int size;
+
+    /**
+     * Every key currently in the queue is within [lowestKey, highestKey]
+     */
+    private long lowestKey;
+    private long highestKey;
+
+    public BucketOpenSet() {
+        this.buckets = new int[INITIAL_BUCKETS];
+        Arrays.fill(buckets, NONE);
+        this.mask = INITIAL_BUCKETS - 1;
+        this.nodes = new PathNode[INITIAL_CAPACITY];
+        this.keys = new long[INITIAL_CAPACITY];
+        this.next = new int[INITIAL_CAPACITY];
+        this.prev = new int[INITIAL_CAPACITY];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void insert(PathNode node) {
+        if (size == nodes.length) {
+            int capacity = nodes.length << 1;
+            nodes = Arrays.copyOf(nodes, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+        }
+        int entry = size++;
+        nodes[entry] = node;
+        node.heapPosition = entry;
+        long key = key(node.combinedCost);
+        if (size == 1) {
+            lowestKey = key;
+            highestKey = key;
+        }
+        link(entry, key);
+    }
+
+    @Override
+    public void update(PathNode node) {
+        int entry = node.heapPosition;
+        long key = key(node.combinedCost);
+        if (key != keys[entry]) {
+            unlink(entry);
+            link(entry, key);
+        }
+    }
+
+    @Override
+    public PathNode removeLowest() {
+        if (size == 0) {
+            throw new IllegalStateException();
+        }
+        int head;
+        while ((head = buckets[(int) (lowestKey & mask)]) == NONE) {
+            lowestKey++;
+        }
+        int best = head;
+        double bestCost = nodes[head].combinedCost;
+        for (int entry = next[head]; entry != NONE; entry = next[entry]) {
+            double cost = nodes[entry].combinedCost;
+            if (cost < bestCost) {
+                best = entry;
+                bestCost = cost;
+            }
+        }
+        PathNode result = nodes[best];
+        unlink(best);
+        result.heapPosition = -1;
+        size--;
+        if (best != size) {
+            // move the last entry into the hole so the entry arrays stay dense
+            moveEntry(size, best);
+        }
+        nodes[size] = null;
+        return result;
+    }
+
+    private long key(double combinedCost) {
+        return (long) Math.floor(combinedCost * resolution);
+    }
+
+    private void link(int entry, long key) {
+        if (key < lowestKey || key > highestKey) {
+            long low = Math.min(lowestKey, key);
+            long high = Math.max(highestKey, key);
+            if (high - low >= buckets.length) {
+                // this relinks every entry, including this one
+                resize(low, high);
+                return;
+            }
+            lowestKey = low;
+            highestKey = high;
+        }
+        keys[entry] = key;
+        int bucket = (int) (key & mask);
+        int head = buckets[bucket];
+        next[entry] = head;
+        prev[entry] = NONE;
+        if (head != NONE) {
+            prev[head] = entry;
+        }
+        buckets[bucket] = entry;
+    }
+
+    private void unlink(int entry) {
+        int before = prev[entry];
+        int after = next[entry];
+        if (before == NONE) {
+            buckets[(int) (keys[entry] & mask)] = after;
+        } else {
+            next[before] = after;
+        }
+        if (after != NONE) {
+            prev[after] = before;
+        }
+    }
+
+    private void moveEntry(int from, int to) {
+        PathNode node = nodes[from];
+        nodes[to] = node;
+        keys[to] = keys[from];
+        next[to] = next[from];
+        prev[to] = prev[from];
+        node.heapPosition = to;
+        if (prev[to] == NONE) {
+            buckets[(int) (keys[to] & mask)] = to;
+        } else {
+            next[prev[to]] = to;
+        }
+        if (next[to] != NONE) {
+            prev[next[to]] = to;
+        }
+    }
+
+    /**
+     * Make the buckets wide enough for every key between low and high, either by growing the bucket array or, once it's
+     * at {@link #MAX_BUCKETS}, by coarsening the resolution. Every entry is relinked with its current cost.
+     */
+    private void resize(long low, long high) {
+        long span = high - low + 1;
+        int count = buckets.length;
+        while (count < span && count < MAX_BUCKETS) {
+            count <<= 1;
+        }
+        while (span > count) {
+            resolution /= 2;
+            span = span / 2 + 2;
+        }
+        buckets = new int[count];
+        Arrays.fill(buckets, NONE);
+        mask = count - 1;
+        lowestKey = Long.MAX_VALUE;
+        highestKey = Long.MIN_VALUE;
+        for (int entry = 0; entry < size; entry++) {
+            long key = key(nodes[entry].combinedCost);
+            lowestKey = Math.min(lowestKey, key);
+            highestKey = Math.max(highestKey, key);
+            keys[entry] = key;
+        }
+        for (int entry = 0; entry < size; entry++) {
+            int bucket = (int) (keys[entry] & mask);
+            int head = buckets[bucket];
+            next[entry] = head;
+            prev[entry] = NONE;
+            if (head != NONE) {
+                prev[head] = entry;
+            }
+            buckets[bucket] = entry;
+        }
+    }
+}
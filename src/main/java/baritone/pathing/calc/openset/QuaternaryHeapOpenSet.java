@@ -0,0 +1,132 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc.openset;
+
+import baritone.pathing.calc.PathNode;
+
+import java.util.Arrays;
+
+/**
+ * A 4-ary heap. Half as deep as {@link BinaryHeapOpenSet}, and the four children of a node are adjacent in the array,
+ * so sifting down touches fewer cache lines at the cost of a couple more comparisons per level.
+ */
+public final class QuaternaryHeapOpenSet implements IOpenSet {
+
+    /**
+     * The initial capacity of the heap (2^10)
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The array backing the heap, the root is at index 0 and the children of i are at 4i+1 through 4i+4
+     */
+    private PathNode[] array;
+
+    /**
+     * The size of the heap
+     */
+    private int size;
+
+    public QuaternaryHeapOpenSet() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public QuaternaryHeapOpenSet(int size) {
+        this.size = 0;
+        this.array = new PathNode[size];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public final void insert(PathNode value) {
+        if (size >= array.length) {
+            array = Arrays.copyOf(array, array.length << 1);
+        }
+        value.heapPosition = size;
+        array[size] = value;
+        size++;
+        update(value);
+    }
+
+    @Override
+    public final void update(PathNode val) {
+        int index = val.heapPosition;
+        double cost = val.combinedCost;
+        while (index > 0) {
+            int parentInd = (index - 1) >>> 2;
+            PathNode parentNode = array[parentInd];
+            if (parentNode.combinedCost <= cost) {
+                break;
+            }
+            array[index] = parentNode;
+            parentNode.heapPosition = index;
+            index = parentInd;
+        }
+        array[index] = val;
+        val.heapPosition = index;
+    }
+
+    @Override
+    public final boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public final PathNode removeLowest() {
+        if (size == 0) {
+            throw new IllegalStateException();
+        }
+        PathNode result = array[0];
+        result.heapPosition = -1;
+        size--;
+        PathNode val = array[size];
+        array[size] = null;
+        if (size == 0) {
+            return result;
+        }
+        double cost = val.combinedCost;
+        int index = 0;
+        int firstChild;
+        while ((firstChild = (index << 2) + 1) < size) {
+            int smallestChild = firstChild;
+            double smallestCost = array[firstChild].combinedCost;
+            int lastChild = Math.min(firstChild + 4, size);
+            for (int child = firstChild + 1; child < lastChild; child++) {
+                double childCost = array[child].combinedCost;
+                if (childCost < smallestCost) {
+                    smallestChild = child;
+                    smallestCost = childCost;
+                }
+            }
+            if (cost <= smallestCost) {
+                break;
+            }
+            PathNode smallestChildNode = array[smallestChild];
+            array[index] = smallestChildNode;
+            smallestChildNode.heapPosition = index;
+            index = smallestChild;
+        }
+        array[index] = val;
+        val.heapPosition = index;
+        return result;
+    }
+}
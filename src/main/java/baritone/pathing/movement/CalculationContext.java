@@ -19,8 +19,10 @@ package baritone.pathing.movement;
 
 import baritone.Baritone;
 import baritone.api.IBaritone;
+import baritone.api.Settings;
 import baritone.api.pathing.movement.ActionCosts;
 import baritone.cache.WorldData;
+import baritone.pathing.precompute.PathingSnapshot;
 import baritone.pathing.precompute.PrecomputedData;
 import baritone.utils.BlockStateInterface;
 import baritone.utils.ToolSet;
@@ -37,7 +39,10 @@ import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.state.BlockState;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static baritone.api.pathing.movement.ActionCosts.COST_INF;
 
@@ -83,12 +88,17 @@ public class CalculationContext {
 
     public final PrecomputedData precomputedData;
 
+    /**
+     * Set by whoever starts a search on this context, null to always look at the world
+     */
+    public PathingSnapshot pathingSnapshot;
+
     public CalculationContext(IBaritone baritone) {
         this(baritone, false);
     }
 
     public CalculationContext(IBaritone baritone, boolean forUseOnAnotherThread) {
-        this.precomputedData = new PrecomputedData();
+        this.precomputedData = PrecomputedData.get();
         this.safeForThreadedUse = forUseOnAnotherThread;
         this.baritone = baritone;
         LocalPlayer player = baritone.getPlayerContext().player();
@@ -131,6 +141,91 @@ public class CalculationContext {
         this.worldBorder = new BetterWorldBorder(world.getWorldBorder());
     }
 
+    /**
+     * For pathing through a world that doesn't come from the client, like the synthetic terrain in the benchmarks.
+     * Settings are read the same way, but there is no player: no water bucket, no throwaway blocks, no frost walker or
+     * depth strider, and {@link #baritone}, {@link #world} and {@link #worldData} are null.
+     *
+     * @param bsi     The world to path through
+     * @param toolSet The tools to consider when breaking blocks
+     */
+    public CalculationContext(BlockStateInterface bsi, ToolSet toolSet) {
+        this.precomputedData = PrecomputedData.get();
+        this.safeForThreadedUse = true;
+        this.baritone = null;
+        this.world = null;
+        this.worldData = null;
+        this.bsi = bsi;
+        this.toolSet = toolSet;
+        this.hasThrowaway = false;
+        this.hasWaterBucket = false;
+        this.canSprint = Baritone.settings().allowSprint.value;
+        this.placeBlockCost = Baritone.settings().blockPlacementPenalty.value;
+        this.allowBreak = Baritone.settings().allowBreak.value;
+        this.allowBreakAnyway = new ArrayList<>(Baritone.settings().allowBreakAnyway.value);
+        this.allowParkour = Baritone.settings().allowParkour.value;
+        this.allowParkourPlace = Baritone.settings().allowParkourPlace.value;
+        this.allowJumpAt256 = Baritone.settings().allowJumpAt256.value;
+        this.allowParkourAscend = Baritone.settings().allowParkourAscend.value;
+        this.assumeWalkOnWater = Baritone.settings().assumeWalkOnWater.value;
+        this.allowFallIntoLava = false;
+        this.frostWalker = 0;
+        this.allowDiagonalDescend = Baritone.settings().allowDiagonalDescend.value;
+        this.allowDiagonalAscend = Baritone.settings().allowDiagonalAscend.value;
+        this.allowDownward = Baritone.settings().allowDownward.value;
+        this.minFallHeight = 3;
+        this.maxFallHeightNoWater = Baritone.settings().maxFallHeightNoWater.value;
+        this.maxFallHeightBucket = Baritone.settings().maxFallHeightBucket.value;
+        this.waterWalkSpeed = ActionCosts.WALK_ONE_IN_WATER_COST;
+        this.breakBlockAdditionalCost = Baritone.settings().blockBreakAdditionalPenalty.value;
+        this.backtrackCostFavoringCoefficient = Baritone.settings().backtrackCostFavoringCoefficient.value;
+        this.jumpPenalty = Baritone.settings().jumpPenalty.value;
+        this.walkOnWaterOnePenalty = Baritone.settings().walkOnWaterOnePenalty.value;
+        this.worldBorder = bsi.worldBorder;
+    }
+
+    /**
+     * Everything besides the blocks themselves that the movement costs calculated with this context depend on. Contexts
+     * with equal keys calculate the same cost for the same movement through the same blocks.
+     * <p>
+     * Subclasses that change how costs are calculated have to add whatever those changes depend on.
+     *
+     * @return The key, compare with {@link Object#equals}
+     */
+    public List<Object> movementCostKey() {
+        List<Object> key = new ArrayList<>(Arrays.asList(
+                getClass(), world, hasWaterBucket, hasThrowaway, canSprint, placeBlockCost, allowBreak, allowBreakAnyway,
+                allowParkour, allowParkourPlace, allowJumpAt256, allowParkourAscend, assumeWalkOnWater, allowFallIntoLava,
+                frostWalker, allowDiagonalDescend, allowDiagonalAscend, allowDownward, minFallHeight, maxFallHeightNoWater,
+                maxFallHeightBucket, waterWalkSpeed, breakBlockAdditionalCost, backtrackCostFavoringCoefficient, jumpPenalty,
+                walkOnWaterOnePenalty
+        ));
+        key.add(toolSet.fingerprint());
+        for (Settings.Setting<?> setting : Baritone.settings().allSettings) {
+            key.add(copyOf(setting.value)); // some movements read settings directly
+        }
+        return key;
+    }
+
+    /**
+     * Lists and maps in settings are edited in place, so the key holds copies of them as they are now
+     */
+    private static Object copyOf(Object value) {
+        if (value instanceof List) {
+            List<Object> copy = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                copy.add(copyOf(element));
+            }
+            return copy;
+        }
+        if (value instanceof Map) {
+            Map<Object, Object> copy = new HashMap<>();
+            ((Map<?, ?>) value).forEach((k, v) -> copy.put(k, copyOf(v)));
+            return copy;
+        }
+        return value;
+    }
+
     public final IBaritone getBaritone() {
         return baritone;
     }
@@ -26,6 +26,7 @@ import baritone.api.utils.*;
 import baritone.api.utils.Rotation;
 import baritone.api.utils.input.Input;
 import baritone.pathing.movement.MovementState.MovementTarget;
+import baritone.pathing.precompute.PathingSnapshot;
 import baritone.pathing.precompute.Ternary;
 import baritone.utils.BlockStateInterface;
 import baritone.utils.ToolSet;
@@ -121,6 +122,13 @@ public interface MovementHelper extends ActionCosts, Helper {
     }
 
     static boolean canWalkThrough(CalculationContext context, int x, int y, int z) {
+        PathingSnapshot snapshot = context.pathingSnapshot;
+        if (snapshot != null) {
+            Ternary canWalkThrough = snapshot.canWalkThrough(x, y, z);
+            if (canWalkThrough != MAYBE) {
+                return canWalkThrough == YES;
+            }
+        }
         return context.precomputedData.canWalkThrough(context.bsi, x, y, z, context.get(x, y, z));
     }
 
@@ -278,6 +286,13 @@ public interface MovementHelper extends ActionCosts, Helper {
      * not including water, and not including ladders or vines or cobwebs (they slow us down)
      */
     static boolean fullyPassable(CalculationContext context, int x, int y, int z) {
+        PathingSnapshot snapshot = context.pathingSnapshot;
+        if (snapshot != null) {
+            Ternary fullyPassable = snapshot.fullyPassable(x, y, z);
+            if (fullyPassable != MAYBE) {
+                return fullyPassable == YES;
+            }
+        }
         return fullyPassable(context, x, y, z, context.get(x, y, z));
     }
 
@@ -490,6 +505,13 @@ public interface MovementHelper extends ActionCosts, Helper {
     }
 
     static boolean canWalkOn(CalculationContext context, int x, int y, int z) {
+        PathingSnapshot snapshot = context.pathingSnapshot;
+        if (snapshot != null) {
+            Ternary canWalkOn = snapshot.canWalkOn(x, y, z);
+            if (canWalkOn != MAYBE) {
+                return canWalkOn == YES;
+            }
+        }
         return canWalkOn(context, x, y, z, context.get(x, y, z));
     }
 
@@ -645,7 +667,7 @@ public interface MovementHelper extends ActionCosts, Helper {
      */
     static void switchToBestToolFor(IPlayerContext ctx, BlockState b, ToolSet ts, boolean preferSilkTouch) {
         if (Baritone.settings().autoTool.value && !Baritone.settings().assumeExternalAutoTool.value) {
-            ctx.player().getInventory().selected = ts.getBestSlot(b.getBlock(), preferSilkTouch);
+            ctx.player().getInventory().selected = preferSilkTouch ? ts.getBestSlot(b.getBlock(), true) : ts.getBestSlot(b);
         }
     }
 
@@ -116,8 +116,8 @@ public class MovementAscend extends Movement {
             return COST_INF;
         }
         // we can jump from soul sand, but not from a bottom slab
-        boolean jumpingFromBottomSlab = MovementHelper.isBottomSlab(srcDown);
-        boolean jumpingToBottomSlab = MovementHelper.isBottomSlab(toPlace);
+        boolean jumpingFromBottomSlab = context.precomputedData.isBottomSlab(srcDown);
+        boolean jumpingToBottomSlab = context.precomputedData.isBottomSlab(toPlace);
         if (jumpingFromBottomSlab && !jumpingToBottomSlab) {
             return COST_INF;// the only thing we can ascend onto from a bottom slab is another bottom slab
         }
@@ -156,7 +156,7 @@ public class MovementDescend extends Movement {
             BlockState ontoBlock = context.get(destX, newY, destZ);
             int unprotectedFallHeight = fallHeight - (y - effectiveStartHeight); // equal to fallHeight - y + effectiveFallHeight, which is equal to -newY + effectiveFallHeight, which is equal to effectiveFallHeight - newY
             double tentativeCost = WALK_OFF_BLOCK_COST + FALL_N_BLOCKS_COST[unprotectedFallHeight] + frontBreak + costSoFar;
-            if (reachedMinimum && MovementHelper.isWater(ontoBlock)) {
+            if (reachedMinimum && context.precomputedData.isWater(ontoBlock)) {
                 if (!MovementHelper.canWalkThrough(context, destX, newY, destZ, ontoBlock)) {
                     return false;
                 }
@@ -177,7 +177,7 @@ public class MovementDescend extends Movement {
                 res.cost = tentativeCost;// TODO incorporate water swim up cost?
                 return false;
             }
-            if (reachedMinimum && context.allowFallIntoLava && MovementHelper.isLava(ontoBlock)) {
+            if (reachedMinimum && context.allowFallIntoLava && context.precomputedData.isLava(ontoBlock)) {
                 // found a fall into lava
                 res.x = destX;
                 res.y = newY;
@@ -199,7 +199,7 @@ public class MovementDescend extends Movement {
             if (!MovementHelper.canWalkOn(context, destX, newY, destZ, ontoBlock)) {
                 return false;
             }
-            if (MovementHelper.isBottomSlab(ontoBlock)) {
+            if (context.precomputedData.isBottomSlab(ontoBlock)) {
                 return false; // falling onto a half slab is really glitchy, and can cause more fall damage than we'd expect
             }
             if (reachedMinimum && unprotectedFallHeight <= context.maxFallHeightNoWater + 1) {
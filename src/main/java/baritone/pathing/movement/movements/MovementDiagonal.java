@@ -155,17 +155,17 @@ public class MovementDiagonal extends Movement {
             multiplier += (WALK_ONE_OVER_SOUL_SAND_COST - WALK_ONE_BLOCK_COST) / 2;
         }
         BlockState cuttingOver1 = context.get(x, y - 1, destZ);
-        if (cuttingOver1.getBlock() == Blocks.MAGMA_BLOCK || MovementHelper.isLava(cuttingOver1)) {
+        if (cuttingOver1.getBlock() == Blocks.MAGMA_BLOCK || context.precomputedData.isLava(cuttingOver1)) {
             return;
         }
         BlockState cuttingOver2 = context.get(destX, y - 1, z);
-        if (cuttingOver2.getBlock() == Blocks.MAGMA_BLOCK || MovementHelper.isLava(cuttingOver2)) {
+        if (cuttingOver2.getBlock() == Blocks.MAGMA_BLOCK || context.precomputedData.isLava(cuttingOver2)) {
             return;
         }
         boolean water = false;
         BlockState startState = context.get(x, y, z);
         Block startIn = startState.getBlock();
-        if (MovementHelper.isWater(startState) || MovementHelper.isWater(destInto)) {
+        if (context.precomputedData.isWater(startState) || context.precomputedData.isWater(destInto)) {
             if (ascend) {
                 return;
             }
@@ -185,8 +185,8 @@ public class MovementDiagonal extends Movement {
             boolean BMid = MovementHelper.canWalkThrough(context, destX, y + 1, z);
             boolean BLow = MovementHelper.canWalkThrough(context, destX, y, z, pb2);
             if ((!(ATop && AMid && ALow) && !(BTop && BMid && BLow)) // no option
-                    || MovementHelper.avoidWalkingInto(pb0) // bad
-                    || MovementHelper.avoidWalkingInto(pb2) // bad
+                    || context.precomputedData.avoidWalkingInto(pb0) // bad
+                    || context.precomputedData.avoidWalkingInto(pb2) // bad
                     || (ATop && AMid && MovementHelper.canWalkOn(context, x, y, destZ, pb0)) // we could just ascend
                     || (BTop && BMid && MovementHelper.canWalkOn(context, destX, y, z, pb2)) // we could just ascend
                     || (!ATop && AMid && ALow) // head bonk A
@@ -213,7 +213,7 @@ public class MovementDiagonal extends Movement {
             return;
         }
         BlockState pb3 = context.get(destX, y + 1, z);
-        if (optionA == 0 && ((MovementHelper.avoidWalkingInto(pb2) && pb2.getBlock() != Blocks.WATER) || MovementHelper.avoidWalkingInto(pb3))) {
+        if (optionA == 0 && ((context.precomputedData.avoidWalkingInto(pb2) && pb2.getBlock() != Blocks.WATER) || context.precomputedData.avoidWalkingInto(pb3))) {
             // at this point we're done calculating optionA, so we can check if it's actually possible to edge around in that direction
             return;
         }
@@ -222,7 +222,7 @@ public class MovementDiagonal extends Movement {
             // and finally, if the cost is nonzero for both ways to approach this diagonal, it's not possible
             return;
         }
-        if (optionB == 0 && ((MovementHelper.avoidWalkingInto(pb0) && pb0.getBlock() != Blocks.WATER) || MovementHelper.avoidWalkingInto(pb1))) {
+        if (optionB == 0 && ((context.precomputedData.avoidWalkingInto(pb0) && pb0.getBlock() != Blocks.WATER) || context.precomputedData.avoidWalkingInto(pb1))) {
             // and now that option B is fully calculated, see if we can edge around that way
             return;
         }
@@ -84,9 +84,9 @@ public class MovementPillar extends Movement {
             return COST_INF;
         }
         BlockState srcUp = null;
-        if (MovementHelper.isWater(toBreak) && MovementHelper.isWater(fromState)) { // TODO should this also be allowed if toBreakBlock is air?
+        if (context.precomputedData.isWater(toBreak) && context.precomputedData.isWater(fromState)) { // TODO should this also be allowed if toBreakBlock is air?
             srcUp = context.get(x, y + 1, z);
-            if (MovementHelper.isWater(srcUp)) {
+            if (context.precomputedData.isWater(srcUp)) {
                 return LADDER_UP_ONE_COST; // allow ascending pillars of water, but only if we're already in one
             }
         }
@@ -146,23 +146,23 @@ public class MovementPillar extends Movement {
     }
 
     public static boolean hasAgainst(CalculationContext context, int x, int y, int z) {
-        return MovementHelper.isBlockNormalCube(context.get(x + 1, y, z)) ||
-                MovementHelper.isBlockNormalCube(context.get(x - 1, y, z)) ||
-                MovementHelper.isBlockNormalCube(context.get(x, y, z + 1)) ||
-                MovementHelper.isBlockNormalCube(context.get(x, y, z - 1));
+        return context.precomputedData.isBlockNormalCube(context.get(x + 1, y, z)) ||
+                context.precomputedData.isBlockNormalCube(context.get(x - 1, y, z)) ||
+                context.precomputedData.isBlockNormalCube(context.get(x, y, z + 1)) ||
+                context.precomputedData.isBlockNormalCube(context.get(x, y, z - 1));
     }
 
     public static BlockPos getAgainst(CalculationContext context, BetterBlockPos vine) {
-        if (MovementHelper.isBlockNormalCube(context.get(vine.north()))) {
+        if (context.precomputedData.isBlockNormalCube(context.get(vine.north()))) {
             return vine.north();
         }
-        if (MovementHelper.isBlockNormalCube(context.get(vine.south()))) {
+        if (context.precomputedData.isBlockNormalCube(context.get(vine.south()))) {
             return vine.south();
         }
-        if (MovementHelper.isBlockNormalCube(context.get(vine.east()))) {
+        if (context.precomputedData.isBlockNormalCube(context.get(vine.east()))) {
             return vine.east();
         }
-        if (MovementHelper.isBlockNormalCube(context.get(vine.west()))) {
+        if (context.precomputedData.isBlockNormalCube(context.get(vine.west()))) {
             return vine.west();
         }
         return null;
@@ -85,7 +85,7 @@ public class MovementTraverse extends Movement {
         if (frostWalker || MovementHelper.canWalkOn(context, destX, y - 1, destZ, destOn)) { //this is a walk, not a bridge
             double WC = WALK_ONE_BLOCK_COST;
             boolean water = false;
-            if (MovementHelper.isWater(pb0) || MovementHelper.isWater(pb1)) {
+            if (context.precomputedData.isWater(pb0) || context.precomputedData.isWater(pb1)) {
                 WC = context.waterWalkSpeed;
                 water = true;
             } else {
@@ -124,8 +124,8 @@ public class MovementTraverse extends Movement {
                 return COST_INF;
             }
             if (MovementHelper.isReplaceable(destX, y - 1, destZ, destOn, context.bsi)) {
-                boolean throughWater = MovementHelper.isWater(pb0) || MovementHelper.isWater(pb1);
-                if (MovementHelper.isWater(destOn) && throughWater) {
+                boolean throughWater = context.precomputedData.isWater(pb0) || context.precomputedData.isWater(pb1);
+                if (context.precomputedData.isWater(destOn) && throughWater) {
                     // this happens when assume walk on water is true and this is a traverse in water, which isn't allowed
                     return COST_INF;
                 }
@@ -0,0 +1,59 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.precompute;
+
+import baritone.api.event.events.BlockChangeEvent;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.world.level.ChunkPos;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The chunks whose {@link PathingSnapshot} columns can't be reused, because blocks in them changed since the last
+ * snapshot was made. Filled in from the game thread, and taken by the search thread when it makes the next snapshot.
+ */
+public final class ChangedChunks {
+
+    private final Set<Long> chunks = ConcurrentHashMap.newKeySet();
+
+    public void blocksChanged(BlockChangeEvent event) {
+        chunks.add(event.getChunkPos().toLong());
+    }
+
+    /**
+     * Called when a chunk is loaded, unloaded or repopulated. The client can reuse the same chunk object for new data,
+     * so the snapshot can't rely on the chunk being replaced
+     */
+    public void chunkChanged(int chunkX, int chunkZ) {
+        chunks.add(ChunkPos.asLong(chunkX, chunkZ));
+    }
+
+    /**
+     * @return The chunks that changed since the last call, by {@link ChunkPos#asLong}
+     */
+    public LongOpenHashSet take() {
+        LongOpenHashSet changed = new LongOpenHashSet();
+        for (Iterator<Long> it = chunks.iterator(); it.hasNext(); ) {
+            changed.add((long) it.next());
+            it.remove();
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.precompute;
+
+import baritone.utils.BlockStateInterface;
+import baritone.utils.accessor.IPalettedContainer;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.util.BitStorage;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.Palette;
+
+import java.util.Arrays;
+
+import static baritone.pathing.precompute.Ternary.MAYBE;
+import static baritone.pathing.precompute.Ternary.NO;
+import static baritone.pathing.precompute.Ternary.YES;
+
+/**
+ * The {@link PrecomputedData} flags of every block in the loaded chunks around a point, extracted once before a search
+ * so that the walk on, walk through and fully passable checks by position read a byte instead of going through the
+ * chunk's palette and then looking the state up.
+ * <p>
+ * A snapshot never changes once made. {@link #refresh} makes the next one, reusing the extracted chunks that are still
+ * the same. Anything outside of the snapshot, and any block whose answer depends on its surroundings, comes back as
+ * {@link Ternary#MAYBE} and has to be checked against the world like before.
+ */
+public final class PathingSnapshot {
+
+    private static final int CAN_WALK_ON = 1;
+    private static final int CAN_WALK_ON_SPECIAL = 1 << 1;
+    private static final int CAN_WALK_THROUGH = 1 << 2;
+    private static final int CAN_WALK_THROUGH_SPECIAL = 1 << 3;
+    private static final int FULLY_PASSABLE = 1 << 4;
+    private static final int FULLY_PASSABLE_SPECIAL = 1 << 5;
+
+    /**
+     * Set for every block that was extracted, so that zero means no information
+     */
+    private static final int KNOWN = 1 << 6;
+
+    private final PrecomputedData data;
+    private final int minY;
+    private final int originX;
+    private final int originZ;
+    private final int diameter;
+    private final Column[] columns;
+
+    private PathingSnapshot(PrecomputedData data, int minY, int originX, int originZ, int diameter) {
+        this.data = data;
+        this.minY = minY;
+        this.originX = originX;
+        this.originZ = originZ;
+        this.diameter = diameter;
+        this.columns = new Column[diameter * diameter];
+    }
+
+    /**
+     * Extracts the loaded chunks within radius chunks of the specified one. Chunks that the previous snapshot has
+     * already extracted are shared with it, unless the client has replaced them since or they're in the changed set.
+     *
+     * @param previous The last snapshot made, or null
+     * @param changed  Chunks, by {@link ChunkPos#asLong}, that had blocks change since the previous snapshot
+     */
+    public static PathingSnapshot refresh(PathingSnapshot previous, LongSet changed, BlockStateInterface bsi, PrecomputedData data, int chunkX, int chunkZ, int radius) {
+        PathingSnapshot snapshot = new PathingSnapshot(data, bsi.minY, chunkX - radius, chunkZ - radius, radius * 2 + 1);
+        boolean reuse = previous != null && previous.data == data && previous.minY == bsi.minY;
+        Extractor extractor = new Extractor(data);
+        for (int x = 0; x < snapshot.diameter; x++) {
+            for (int z = 0; z < snapshot.diameter; z++) {
+                int cx = snapshot.originX + x;
+                int cz = snapshot.originZ + z;
+                LevelChunk chunk = bsi.getLoadedChunk(cx, cz);
+                if (chunk == null) {
+                    continue;
+                }
+                Column column = reuse ? previous.column(cx, cz) : null;
+                if (column == null || column.source != chunk || changed.contains(ChunkPos.asLong(cx, cz))) {
+                    column = extractor.extract(chunk);
+                }
+                snapshot.columns[x * snapshot.diameter + z] = column;
+            }
+        }
+        return snapshot;
+    }
+
+    private Column column(int chunkX, int chunkZ) {
+        int x = chunkX - originX;
+        int z = chunkZ - originZ;
+        if (x < 0 || x >= diameter || z < 0 || z >= diameter) {
+            return null;
+        }
+        return columns[x * diameter + z];
+    }
+
+    private int flags(int x, int y, int z) {
+        Column column = column(x >> 4, z >> 4);
+        if (column == null) {
+            return 0;
+        }
+        y -= minY;
+        if (y < 0 || y >> 4 >= column.sections.length) {
+            return 0;
+        }
+        return column.sections[y >> 4][(y & 15) << 8 | (z & 15) << 4 | (x & 15)];
+    }
+
+    private static Ternary get(int flags, int yes, int special) {
+        if ((flags & KNOWN) == 0 || (flags & special) != 0) {
+            return MAYBE;
+        }
+        return (flags & yes) != 0 ? YES : NO;
+    }
+
+    public Ternary canWalkOn(int x, int y, int z) {
+        return get(flags(x, y, z), CAN_WALK_ON, CAN_WALK_ON_SPECIAL);
+    }
+
+    public Ternary canWalkThrough(int x, int y, int z) {
+        return get(flags(x, y, z), CAN_WALK_THROUGH, CAN_WALK_THROUGH_SPECIAL);
+    }
+
+    public Ternary fullyPassable(int x, int y, int z) {
+        return get(flags(x, y, z), FULLY_PASSABLE, FULLY_PASSABLE_SPECIAL);
+    }
+
+    /**
+     * The flags of one chunk, one array of 4096 per section, along with the chunk they came from
+     */
+    private static final class Column {
+
+        private final LevelChunk source;
+        private final byte[][] sections;
+
+        private Column(LevelChunk source, byte[][] sections) {
+            this.source = source;
+            this.sections = sections;
+        }
+    }
+
+    private static final class Extractor {
+
+        private final PrecomputedData data;
+
+        /**
+         * Shared by every section that's only air
+         */
+        private final byte[] air = new byte[4096];
+
+        private Extractor(PrecomputedData data) {
+            this.data = data;
+            Arrays.fill(air, flagsOf(Blocks.AIR.defaultBlockState()));
+        }
+
+        private byte flagsOf(BlockState state) {
+            return (byte) (data.pathingFlags(state) | KNOWN);
+        }
+
+        private Column extract(LevelChunk chunk) {
+            LevelChunkSection[] sections = chunk.getSections();
+            byte[][] flags = new byte[sections.length][];
+            for (int i = 0; i < sections.length; i++) {
+                LevelChunkSection section = sections[i];
+                if (section.hasOnlyAir()) {
+                    flags[i] = air;
+                    continue;
+                }
+                flags[i] = extract(section);
+            }
+            return new Column(chunk, flags);
+        }
+
+        /**
+         * Looks up the flags of each entry of the section's palette once, rather than of each of its 4096 blocks. The
+         * flags only depend on the state, anything that depends on the neighbors is marked special and checked against
+         * the world by whoever reads it.
+         */
+        private byte[] extract(LevelChunkSection section) {
+            byte[] out = new byte[4096];
+            IPalettedContainer<BlockState> container = (IPalettedContainer<BlockState>) section.getStates();
+            Palette<BlockState> palette = container.getPalette();
+            BitStorage storage = container.getStorage();
+            if (storage == null) {
+                BlockState prev = null;
+                byte prevFlags = 0;
+                for (int i = 0; i < 4096; i++) {
+                    BlockState state = section.getBlockState(i & 15, i >> 8, (i >> 4) & 15);
+                    if (state != prev) { // runs of the same state are the norm, skip the id lookup for those
+                        prev = state;
+                        prevFlags = flagsOf(state);
+                    }
+                    out[i] = prevFlags;
+                }
+                return out;
+            }
+            int bits = storage.getBits();
+            if (bits == 0) {
+                // a single value palette, every block is id 0
+                Arrays.fill(out, flagsOf(palette.valueFor(0)));
+                return out;
+            }
+            // the flags of each palette id, looked up the first time the id comes up, 0 means not yet since KNOWN is set
+            byte[] byId = new byte[1 << bits];
+            long[] raw = storage.getRaw();
+            long mask = (1L << bits) - 1L;
+            // the BitStorage index is y << 8 | z << 4 | x, the same as the index into out, and entries never span two longs
+            for (int l = 0, i = 0; l < raw.length && i < 4096; l++) {
+                long word = raw[l];
+                for (int offset = 0; offset <= 64 - bits && i < 4096; offset += bits, i++) {
+                    int id = (int) ((word >>> offset) & mask);
+                    byte value = byId[id];
+                    if (value == 0) {
+                        value = flagsOf(palette.valueFor(id));
+                        byId[id] = value;
+                    }
+                    out[i] = value;
+                }
+            }
+            return out;
+        }
+    }
+}
@@ -17,17 +17,40 @@
 
 package baritone.pathing.precompute;
 
+import baritone.Baritone;
+import baritone.api.Settings;
 import baritone.pathing.movement.MovementHelper;
 import baritone.utils.BlockStateInterface;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.state.BlockState;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static baritone.pathing.precompute.Ternary.MAYBE;
 import static baritone.pathing.precompute.Ternary.YES;
 
+/**
+ * Per block state facts that pathing asks about constantly, looked up by block state id.
+ * <p>
+ * One table is shared by every context on every thread, see {@link #get()}. Entries are filled in as they're first
+ * needed, or all at once by {@link #warm()}. A new table is only made when the block state registry or one of the
+ * settings the state-only predicates read changes.
+ */
 public class PrecomputedData {
 
-    private final int[] data = new int[Block.BLOCK_STATE_REGISTRY.size()];
+    /**
+     * The table for the settings it was made with, replaced by {@link #get()} when those change
+     */
+    private static volatile PrecomputedData shared;
+
+    private final int[] data;
+
+    /**
+     * @see #settingsKey()
+     */
+    private final List<Object> settingsKey;
 
     private static final int COMPLETED_MASK = 1 << 0;
     private static final int CAN_WALK_ON_MASK = 1 << 1;
@@ -36,6 +59,63 @@ public class PrecomputedData {
     private static final int CAN_WALK_THROUGH_SPECIAL_MASK = 1 << 4;
     private static final int FULLY_PASSABLE_MASK = 1 << 5;
     private static final int FULLY_PASSABLE_SPECIAL_MASK = 1 << 6;
+    private static final int AVOID_WALKING_INTO_MASK = 1 << 7;
+    private static final int WATER_MASK = 1 << 8;
+    private static final int LAVA_MASK = 1 << 9;
+    private static final int POSSIBLY_FLOWING_MASK = 1 << 10;
+    private static final int BOTTOM_SLAB_MASK = 1 << 11;
+    private static final int NORMAL_CUBE_MASK = 1 << 12;
+
+    private PrecomputedData(List<Object> settingsKey) {
+        this.data = new int[Block.BLOCK_STATE_REGISTRY.size()];
+        this.settingsKey = settingsKey;
+    }
+
+    /**
+     * @return The shared table for the current settings
+     */
+    public static PrecomputedData get() {
+        List<Object> key = settingsKey();
+        PrecomputedData current = shared;
+        if (current == null || !current.settingsKey.equals(key)) {
+            synchronized (PrecomputedData.class) {
+                current = shared;
+                if (current == null || !current.settingsKey.equals(key)) {
+                    current = new PrecomputedData(key);
+                    shared = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Everything that the state-only predicates in {@link MovementHelper} depend on besides the state itself. Settings
+     * like {@code assumeWalkOnWater} that are only read by the position-dependent checks don't belong here, those are
+     * never cached.
+     */
+    private static List<Object> settingsKey() {
+        Settings settings = Baritone.settings();
+        return Arrays.asList(
+                Block.BLOCK_STATE_REGISTRY.size(),
+                new ArrayList<>(settings.blocksToAvoid.value), // copied so that changing the list in place is noticed
+                settings.allowVines.value,
+                settings.assumeWalkOnLava.value,
+                settings.allowWalkOnBottomSlab.value
+        );
+    }
+
+    /**
+     * Fill in every block state now, so that the first paths after joining a world don't have to
+     */
+    public void warm() {
+        for (BlockState state : Block.BLOCK_STATE_REGISTRY) {
+            int id = Block.BLOCK_STATE_REGISTRY.getId(state);
+            if ((data[id] & COMPLETED_MASK) == 0) {
+                fillData(id, state);
+            }
+        }
+    }
 
     private int fillData(int id, BlockState state) {
         int blockData = 0;
@@ -64,19 +144,43 @@ public class PrecomputedData {
             blockData |= FULLY_PASSABLE_SPECIAL_MASK;
         }
 
+        if (MovementHelper.avoidWalkingInto(state)) {
+            blockData |= AVOID_WALKING_INTO_MASK;
+        }
+        if (MovementHelper.isWater(state)) {
+            blockData |= WATER_MASK;
+        }
+        if (MovementHelper.isLava(state)) {
+            blockData |= LAVA_MASK;
+        }
+        if (MovementHelper.possiblyFlowing(state)) {
+            blockData |= POSSIBLY_FLOWING_MASK;
+        }
+        if (MovementHelper.isBottomSlab(state)) {
+            blockData |= BOTTOM_SLAB_MASK;
+        }
+        if (MovementHelper.isBlockNormalCube(state)) {
+            blockData |= NORMAL_CUBE_MASK;
+        }
+
         blockData |= COMPLETED_MASK;
 
         data[id] = blockData; // in theory, this is thread "safe" because every thread should compute the exact same int to write?
         return blockData;
     }
 
-    public boolean canWalkOn(BlockStateInterface bsi, int x, int y, int z, BlockState state) {
+    private int getData(BlockState state) {
         int id = Block.BLOCK_STATE_REGISTRY.getId(state);
         int blockData = data[id];
 
         if ((blockData & COMPLETED_MASK) == 0) { // we need to fill in the data
             blockData = fillData(id, state);
         }
+        return blockData;
+    }
+
+    public boolean canWalkOn(BlockStateInterface bsi, int x, int y, int z, BlockState state) {
+        int blockData = getData(state);
 
         if ((blockData & CAN_WALK_ON_SPECIAL_MASK) != 0) {
             return MovementHelper.canWalkOnPosition(bsi, x, y, z, state);
@@ -86,12 +190,7 @@ public class PrecomputedData {
     }
 
     public boolean canWalkThrough(BlockStateInterface bsi, int x, int y, int z, BlockState state) {
-        int id = Block.BLOCK_STATE_REGISTRY.getId(state);
-        int blockData = data[id];
-
-        if ((blockData & COMPLETED_MASK) == 0) { // we need to fill in the data
-            blockData = fillData(id, state);
-        }
+        int blockData = getData(state);
 
         if ((blockData & CAN_WALK_THROUGH_SPECIAL_MASK) != 0) {
             return MovementHelper.canWalkThroughPosition(bsi, x, y, z, state);
@@ -101,12 +200,7 @@ public class PrecomputedData {
     }
 
     public boolean fullyPassable(BlockStateInterface bsi, int x, int y, int z, BlockState state) {
-        int id = Block.BLOCK_STATE_REGISTRY.getId(state);
-        int blockData = data[id];
-
-        if ((blockData & COMPLETED_MASK) == 0) { // we need to fill in the data
-            blockData = fillData(id, state);
-        }
+        int blockData = getData(state);
 
         if ((blockData & FULLY_PASSABLE_SPECIAL_MASK) != 0) {
             return MovementHelper.fullyPassablePosition(bsi, x, y, z, state);
@@ -114,4 +208,53 @@ public class PrecomputedData {
             return (blockData & FULLY_PASSABLE_MASK) != 0;
         }
     }
+
+    /**
+     * The walk on, walk through and fully passable flags of this state, in the layout that {@link PathingSnapshot} keeps
+     */
+    int pathingFlags(BlockState state) {
+        return (getData(state) >> 1) & 0x3F; // CAN_WALK_ON_MASK up to and including FULLY_PASSABLE_SPECIAL_MASK, in order
+    }
+
+    /**
+     * @see MovementHelper#avoidWalkingInto(BlockState)
+     */
+    public boolean avoidWalkingInto(BlockState state) {
+        return (getData(state) & AVOID_WALKING_INTO_MASK) != 0;
+    }
+
+    /**
+     * @see MovementHelper#isWater(BlockState)
+     */
+    public boolean isWater(BlockState state) {
+        return (getData(state) & WATER_MASK) != 0;
+    }
+
+    /**
+     * @see MovementHelper#isLava(BlockState)
+     */
+    public boolean isLava(BlockState state) {
+        return (getData(state) & LAVA_MASK) != 0;
+    }
+
+    /**
+     * @see MovementHelper#possiblyFlowing(BlockState)
+     */
+    public boolean possiblyFlowing(BlockState state) {
+        return (getData(state) & POSSIBLY_FLOWING_MASK) != 0;
+    }
+
+    /**
+     * @see MovementHelper#isBottomSlab(BlockState)
+     */
+    public boolean isBottomSlab(BlockState state) {
+        return (getData(state) & BOTTOM_SLAB_MASK) != 0;
+    }
+
+    /**
+     * @see MovementHelper#isBlockNormalCube(BlockState)
+     */
+    public boolean isBlockNormalCube(BlockState state) {
+        return (getData(state) & NORMAL_CUBE_MASK) != 0;
+    }
 }
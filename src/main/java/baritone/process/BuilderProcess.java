@@ -1103,6 +1103,18 @@ public final class BuilderProcess extends BaritoneProcessHelper implements IBuil
             this.backtrackCostFavoringCoefficient = 1;
         }
 
+        @Override
+        public List<Object> movementCostKey() {
+            List<Object> key = super.movementCostKey();
+            key.add(schematic);
+            key.add(originX);
+            key.add(originY);
+            key.add(originZ);
+            key.add(placeable);
+            key.add(BuilderProcess.this.approxPlaceable);
+            return key;
+        }
+
         private BlockState getSchematic(int x, int y, int z, BlockState current) {
             if (schematic.inSchematic(x - originX, y - originY, z - originZ, current)) {
                 return schematic.desiredState(x - originX, y - originY, z - originZ, current, BuilderProcess.this.approxPlaceable);
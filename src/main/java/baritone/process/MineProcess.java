@@ -19,6 +19,7 @@ package baritone.process;
 
 import baritone.Baritone;
 import baritone.api.BaritoneAPI;
+import baritone.api.cache.IWorldScanner;
 import baritone.api.pathing.goals.*;
 import baritone.api.process.IMineProcess;
 import baritone.api.process.PathingCommand;
@@ -42,6 +43,7 @@ import net.minecraft.world.level.block.FallingBlock;
 import net.minecraft.world.level.block.state.BlockState;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static baritone.api.pathing.movement.ActionCosts.COST_INF;
@@ -62,6 +64,12 @@ public final class MineProcess extends BaritoneProcessHelper implements IMinePro
     private int desiredQuantity;
     private int tickCount;
 
+    /**
+     * The scan started by the latest {@link #mine} while it's running, null otherwise. Until it reports something,
+     * there's nowhere to go
+     */
+    private volatile Runnable initialScan;
+
     public MineProcess(Baritone baritone) {
         super(baritone);
     }
@@ -105,7 +113,7 @@ public final class MineProcess extends BaritoneProcessHelper implements IMinePro
         updateLoucaSystem();
         int mineGoalUpdateInterval = Baritone.settings().mineGoalUpdateInterval.value;
         List<BlockPos> curr = new ArrayList<>(knownOreLocations);
-        if (mineGoalUpdateInterval != 0 && tickCount++ % mineGoalUpdateInterval == 0) { // big brain
+        if (mineGoalUpdateInterval != 0 && tickCount++ % mineGoalUpdateInterval == 0 && initialScan == null) { // big brain
             CalculationContext context = new CalculationContext(baritone, true);
             Baritone.getExecutor().execute(() -> rescan(curr, context));
         }
@@ -191,6 +199,10 @@ public final class MineProcess extends BaritoneProcessHelper implements IMinePro
             return new PathingCommand(goal, legit ? PathingCommandType.FORCE_REVALIDATE_GOAL_AND_PATH : PathingCommandType.REVALIDATE_GOAL_AND_PATH);
         }
         // we don't know any ore locations at the moment
+        if (initialScan != null) {
+            // the first scan will start us moving as soon as it has found something
+            return new PathingCommand(null, PathingCommandType.REQUEST_PAUSE);
+        }
         if (!legit && !Baritone.settings().exploreForBlocks.value) {
             return null;
         }
@@ -233,7 +245,16 @@ public final class MineProcess extends BaritoneProcessHelper implements IMinePro
             return;
         }
         List<BlockPos> dropped = droppedItemsScan();
-        List<BlockPos> locs = searchWorld(context, filter, Baritone.settings().mineMaxOreLocationsCount.value, already, blacklist, dropped);
+        int max = Baritone.settings().mineMaxOreLocationsCount.value;
+        List<BlockPos> locs = searchWorld(context, filter, max, already, blacklist, dropped, found -> {
+            // if we have nowhere to go yet, start heading for the nearest ones while the rest of the world is scanned
+            if (knownOreLocations.isEmpty()) {
+                List<BlockPos> nearest = prune(context, new ArrayList<>(found), filter, max, blacklist, dropped);
+                if (!nearest.isEmpty()) {
+                    knownOreLocations = nearest;
+                }
+            }
+        });
         locs.addAll(dropped);
         if (locs.isEmpty() && !Baritone.settings().exploreForBlocks.value) {
             logDirect("No locations for " + filter + " known, cancelling");
@@ -358,11 +379,19 @@ public final class MineProcess extends BaritoneProcessHelper implements IMinePro
     }
 
     public static List<BlockPos> searchWorld(CalculationContext ctx, BlockOptionalMetaLookup filter, int max, List<BlockPos> alreadyKnown, List<BlockPos> blacklist, List<BlockPos> dropped) {
+        return searchWorld(ctx, filter, max, alreadyKnown, blacklist, dropped, null);
+    }
+
+    /**
+     * @param onProgress Called with the nearest matches scanned from the loaded world so far, while the scan is running,
+     *                   or null if nothing needs to know before the scan is done
+     */
+    public static List<BlockPos> searchWorld(CalculationContext ctx, BlockOptionalMetaLookup filter, int max, List<BlockPos> alreadyKnown, List<BlockPos> blacklist, List<BlockPos> dropped, Consumer<List<BlockPos>> onProgress) {
         List<BlockPos> locs = new ArrayList<>();
         List<Block> untracked = new ArrayList<>();
         for (BlockOptionalMeta bom : filter.blocks()) {
             Block block = bom.getBlock();
-            if (CachedChunk.BLOCKS_TO_KEEP_TRACK_OF.contains(block)) {
+            if (CachedChunk.isTracked(block)) {
                 BetterBlockPos pf = ctx.baritone.getPlayerContext().playerFeet();
 
                 // maxRegionDistanceSq 2 means adjacent directly or adjacent diagonally; nothing further than that
@@ -381,13 +410,12 @@ public final class MineProcess extends BaritoneProcessHelper implements IMinePro
         locs = prune(ctx, locs, filter, max, blacklist, dropped);
 
         if (!untracked.isEmpty() || (Baritone.settings().extendCacheOnThreshold.value && locs.size() < max)) {
-            locs.addAll(BaritoneAPI.getProvider().getWorldScanner().scanChunkRadius(
-                    ctx.getBaritone().getPlayerContext(),
-                    filter,
-                    max,
-                    10,
-                    32
-            )); // maxSearchRadius is NOT sq
+            IWorldScanner scanner = BaritoneAPI.getProvider().getWorldScanner();
+            IPlayerContext playerContext = ctx.getBaritone().getPlayerContext();
+            // maxSearchRadius is NOT sq
+            locs.addAll(onProgress == null
+                    ? scanner.scanChunkRadius(playerContext, filter, max, 10, 32)
+                    : scanner.scanChunkRadius(playerContext, filter, max, 10, 32, onProgress));
         }
 
         locs.addAll(alreadyKnown);
@@ -512,7 +540,24 @@ public final class MineProcess extends BaritoneProcessHelper implements IMinePro
         this.branchPointRunaway = null;
         this.anticipatedDrops = new HashMap<>();
         if (filter != null) {
-            rescan(new ArrayList<>(), new CalculationContext(baritone));
+            // off thread like every other rescan, so that the progress callback can get us moving before it finishes
+            CalculationContext context = new CalculationContext(baritone, true);
+            Runnable scan = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        rescan(new ArrayList<>(), context);
+                    } finally {
+                        if (initialScan == this) {
+                            initialScan = null;
+                        }
+                    }
+                }
+            };
+            initialScan = scan;
+            Baritone.getExecutor().execute(scan);
+        } else {
+            initialScan = null;
         }
     }
 
@@ -21,7 +21,6 @@ import baritone.Baritone;
 import baritone.api.utils.IPlayerContext;
 import baritone.cache.CachedRegion;
 import baritone.cache.WorldData;
-import baritone.utils.accessor.IClientChunkProvider;
 import baritone.utils.pathing.BetterWorldBorder;
 import net.minecraft.client.multiplayer.ClientChunkCache;
 import net.minecraft.core.BlockPos;
@@ -48,8 +47,14 @@ public class BlockStateInterface {
     public final BlockGetter access;
     public final BetterWorldBorder worldBorder;
 
-    private LevelChunk prev = null;
-    private CachedRegion prevCached = null;
+    /**
+     * The dimension's minimum y and height, cached so that lookups don't go through the dimension type every time
+     */
+    public final int minY;
+    public final int height;
+
+    private final NeighborhoodCache<LevelChunk> chunks = new NeighborhoodCache<>();
+    private final NeighborhoodCache<CachedRegion> regions = new NeighborhoodCache<>();
 
     private final boolean useTheRealWorld;
 
@@ -62,16 +67,35 @@ public class BlockStateInterface {
     public BlockStateInterface(IPlayerContext ctx, boolean copyLoadedChunks) {
         this.world = ctx.world();
         this.worldBorder = new BetterWorldBorder(world.getWorldBorder());
+        this.minY = world.dimensionType().minY();
+        this.height = world.dimensionType().height();
         this.worldData = (WorldData) ctx.worldData();
+        if (!ctx.minecraft().isSameThread()) {
+            throw new IllegalStateException();
+        }
         if (copyLoadedChunks) {
-            this.provider = ((IClientChunkProvider) world.getChunkSource()).createThreadSafeCopy();
+            this.provider = LoadedChunksSnapshot.get((ClientChunkCache) world.getChunkSource());
         } else {
             this.provider = (ClientChunkCache) world.getChunkSource();
         }
         this.useTheRealWorld = !Baritone.settings().pathThroughCachedOnly.value;
-        if (!ctx.minecraft().isSameThread()) {
-            throw new IllegalStateException();
-        }
+        this.isPassableBlockPos = new BlockPos.MutableBlockPos();
+        this.access = new BlockStateInterfaceAccessWrapper(this);
+    }
+
+    /**
+     * For worlds that don't come from the client, like the synthetic terrain in the benchmarks. There's no chunk
+     * provider and no cache behind this, so subclasses must override {@link #get0(int, int, int)},
+     * {@link #isLoaded(int, int)} and {@link #worldContainsLoadedChunk(int, int)}.
+     */
+    protected BlockStateInterface(int minY, int height, BetterWorldBorder worldBorder) {
+        this.world = null;
+        this.worldBorder = worldBorder;
+        this.minY = minY;
+        this.height = height;
+        this.worldData = null;
+        this.provider = null;
+        this.useTheRealWorld = false;
         this.isPassableBlockPos = new BlockPos.MutableBlockPos();
         this.access = new BlockStateInterfaceAccessWrapper(this);
     }
@@ -95,44 +119,23 @@ public class BlockStateInterface {
     }
 
     public BlockState get0(int x, int y, int z) { // Mickey resigned
-        y -= world.dimensionType().minY();
+        y -= minY;
         // Invalid vertical position
-        if (y < 0 || y >= world.dimensionType().height()) {
+        if (y < 0 || y >= height) {
             return AIR;
         }
 
         if (useTheRealWorld) {
-            LevelChunk cached = prev;
-            // there's great cache locality in block state lookups
-            // generally it's within each movement
-            // if it's the same chunk as last time
-            // we can just skip the mc.world.getChunk lookup
-            // which is a Long2ObjectOpenHashMap.get
-            // see issue #113
-            if (cached != null && cached.getPos().x == x >> 4 && cached.getPos().z == z >> 4) {
-                return getFromChunk(cached, x, y, z);
-            }
-            LevelChunk chunk = provider.getChunk(x >> 4, z >> 4, ChunkStatus.FULL, false);
-            if (chunk != null && !chunk.isEmpty()) {
-                prev = chunk;
+            LevelChunk chunk = getChunk(x >> 4, z >> 4);
+            if (chunk != null) {
                 return getFromChunk(chunk, x, y, z);
             }
         }
-        // same idea here, skip the Long2ObjectOpenHashMap.get if at all possible
-        // except here, it's 512x512 tiles instead of 16x16, so even better repetition
-        CachedRegion cached = prevCached;
-        if (cached == null || cached.getX() != x >> 9 || cached.getZ() != z >> 9) {
-            if (worldData == null) {
-                return AIR;
-            }
-            CachedRegion region = worldData.cache.getRegion(x >> 9, z >> 9);
-            if (region == null) {
-                return AIR;
-            }
-            prevCached = region;
-            cached = region;
+        CachedRegion region = getRegion(x >> 9, z >> 9);
+        if (region == null) {
+            return AIR;
         }
-        BlockState type = cached.getBlock(x & 511, y + world.dimensionType().minY(), z & 511);
+        BlockState type = region.getBlock(x & 511, y + minY, z & 511);
         if (type == null) {
             return AIR;
         }
@@ -140,28 +143,55 @@ public class BlockStateInterface {
     }
 
     public boolean isLoaded(int x, int z) {
-        LevelChunk prevChunk = prev;
-        if (prevChunk != null && prevChunk.getPos().x == x >> 4 && prevChunk.getPos().z == z >> 4) {
+        if (getChunk(x >> 4, z >> 4) != null) {
             return true;
         }
-        prevChunk = provider.getChunk(x >> 4, z >> 4, ChunkStatus.FULL, false);
-        if (prevChunk != null && !prevChunk.isEmpty()) {
-            prev = prevChunk;
-            return true;
+        CachedRegion region = getRegion(x >> 9, z >> 9);
+        return region != null && region.isCached(x & 511, z & 511);
+    }
+
+    /**
+     * @return The loaded chunk at these chunk coordinates, or null if it isn't loaded or this doesn't path through the
+     * real world
+     */
+    public LevelChunk getLoadedChunk(int chunkX, int chunkZ) {
+        return useTheRealWorld ? getChunk(chunkX, chunkZ) : null;
+    }
+
+    private LevelChunk getChunk(int chunkX, int chunkZ) {
+        // there's great cache locality in block state lookups
+        // generally it's within each movement, and a movement never reaches further than the neighboring chunks
+        // so if it's one of the chunks around the last lookup
+        // we can just skip the mc.world.getChunk lookup
+        // which is a Long2ObjectOpenHashMap.get
+        // see issue #113
+        LevelChunk chunk = chunks.get(chunkX, chunkZ);
+        if (chunk != null) {
+            return chunk;
+        }
+        chunk = provider.getChunk(chunkX, chunkZ, ChunkStatus.FULL, false);
+        if (chunk == null || chunk.isEmpty()) {
+            return null;
         }
-        CachedRegion prevRegion = prevCached;
-        if (prevRegion != null && prevRegion.getX() == x >> 9 && prevRegion.getZ() == z >> 9) {
-            return prevRegion.isCached(x & 511, z & 511);
+        chunks.put(chunkX, chunkZ, chunk);
+        return chunk;
+    }
+
+    private CachedRegion getRegion(int regionX, int regionZ) {
+        // same idea here, skip the Long2ObjectOpenHashMap.get if at all possible
+        // except here, it's 512x512 tiles instead of 16x16, so even better repetition
+        CachedRegion region = regions.get(regionX, regionZ);
+        if (region != null) {
+            return region;
         }
         if (worldData == null) {
-            return false;
+            return null;
         }
-        prevRegion = worldData.cache.getRegion(x >> 9, z >> 9);
-        if (prevRegion == null) {
-            return false;
+        region = worldData.cache.getRegion(regionX, regionZ);
+        if (region != null) {
+            regions.put(regionX, regionZ, region);
         }
-        prevCached = prevRegion;
-        return prevRegion.isCached(x & 511, z & 511);
+        return region;
     }
 
     // get the block at x,y,z from this chunk WITHOUT creating a single blockpos object
@@ -0,0 +1,81 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.utils;
+
+import baritone.utils.accessor.IClientChunkProvider;
+import net.minecraft.client.multiplayer.ClientChunkCache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread safe copy of the client's loaded chunks, shared by everything that needs one until the set of loaded chunks
+ * changes.
+ * <p>
+ * Copying the chunk array is proportional to the render distance, and used to happen every tick. The copy holds the
+ * same {@link net.minecraft.world.level.chunk.LevelChunk} instances as the client, so block changes inside loaded
+ * chunks show up in it anyway, only loading and unloading chunks makes it stale. Those bump {@link #epoch} through
+ * {@link #chunksChanged()}, and the next {@link #get} makes a new copy. Nothing ever writes to a copy once it has been
+ * handed out, so one can be read from any number of threads.
+ */
+public final class LoadedChunksSnapshot {
+
+    /**
+     * Incremented whenever a chunk is loaded or unloaded
+     */
+    private static final AtomicLong epoch = new AtomicLong();
+
+    private static volatile LoadedChunksSnapshot latest;
+
+    /**
+     * The client's chunk source this was copied from, a new world means a new one
+     */
+    private final ClientChunkCache source;
+
+    private final long copiedAt;
+
+    private final ClientChunkCache copy;
+
+    private LoadedChunksSnapshot(ClientChunkCache source, long copiedAt, ClientChunkCache copy) {
+        this.source = source;
+        this.copiedAt = copiedAt;
+        this.copy = copy;
+    }
+
+    /**
+     * Called for every chunk load and unload, so that the next {@link #get} doesn't reuse the current copy
+     */
+    public static void chunksChanged() {
+        epoch.incrementAndGet();
+    }
+
+    /**
+     * Must be called from the client thread, since that's the only place the live chunk array can be copied from.
+     *
+     * @param source The client's chunk source
+     * @return A copy of its loaded chunks that is safe to read from other threads
+     */
+    public static ClientChunkCache get(ClientChunkCache source) {
+        long now = epoch.get();
+        LoadedChunksSnapshot current = latest;
+        if (current == null || current.source != source || current.copiedAt != now) {
+            current = new LoadedChunksSnapshot(source, now, ((IClientChunkProvider) source).createThreadSafeCopy());
+            latest = current;
+        }
+        return current.copy;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.utils;
+
+/**
+ * Remembers the last few things looked up by chunk or region coordinates, so that a run of block lookups around one
+ * spot doesn't go to a hash map every time it crosses a border.
+ * <p>
+ * Slots are direct mapped on the low two bits of each coordinate, so any 4x4 square of coordinates fits without
+ * evicting itself. That covers the 3x3 chunks around whatever movement is being evaluated, wherever the borders fall,
+ * where a single remembered chunk would flip back and forth along every seam.
+ *
+ * @param <T> What is being cached
+ */
+final class NeighborhoodCache<T> {
+
+    private static final int SLOTS = 16;
+
+    private final int[] xs = new int[SLOTS];
+    private final int[] zs = new int[SLOTS];
+    private final Object[] values = new Object[SLOTS];
+
+    private static int slot(int x, int z) {
+        return (z & 3) << 2 | (x & 3);
+    }
+
+    /**
+     * @return The value last put at these coordinates, or null if it has since been evicted or was never put
+     */
+    @SuppressWarnings("unchecked")
+    T get(int x, int z) {
+        int slot = slot(x, z);
+        if (xs[slot] == x && zs[slot] == z) {
+            return (T) values[slot];
+        }
+        return null;
+    }
+
+    void put(int x, int z, T value) {
+        int slot = slot(x, z);
+        xs[slot] = x;
+        zs[slot] = z;
+        values[slot] = value;
+    }
+}
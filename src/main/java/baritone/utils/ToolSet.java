@@ -28,9 +28,9 @@ import net.minecraft.world.item.enchantment.Enchantments;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.state.BlockState;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.function.Function;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * A cached list of the best tools on the hotbar for any block
@@ -40,29 +40,32 @@ import java.util.function.Function;
 public class ToolSet {
 
     /**
-     * A cache mapping a {@link Block} to how long it will take to break
-     * with this toolset, given the optimum tool is used.
+     * The break times for the last hotbar a tool set was made for. Every context builds its own tool set, but the
+     * hotbar rarely changes between paths, so they all share this until it does.
      */
-    private final Map<Block, Double> breakStrengthCache;
+    private static volatile BreakTimes shared;
 
     /**
-     * My buddy leijurv owned me so we have this to not create a new lambda instance.
+     * How long it will take to break each block state with this toolset, given the optimum tool is used
      */
-    private final Function<Block, Double> backendCalculation;
+    private final BreakTimes breakTimes;
 
     private final LocalPlayer player;
 
     public ToolSet(LocalPlayer player) {
-        breakStrengthCache = new HashMap<>();
         this.player = player;
+        // without a player there's no hotbar to look at, subclasses like that must override getStrVsBlock themselves
+        this.breakTimes = player == null ? null : sharedBreakTimes();
+    }
 
-        if (Baritone.settings().considerPotionEffects.value) {
-            double amplifier = potionAmplifier();
-            Function<Double, Double> amplify = x -> amplifier * x;
-            backendCalculation = amplify.compose(this::getBestDestructionTime);
-        } else {
-            backendCalculation = this::getBestDestructionTime;
+    private BreakTimes sharedBreakTimes() {
+        List<Object> key = Arrays.asList(Block.BLOCK_STATE_REGISTRY.size(), fingerprint());
+        BreakTimes current = shared;
+        if (current == null || !current.key.equals(key)) {
+            current = new BreakTimes(key);
+            shared = current;
         }
+        return current;
     }
 
     /**
@@ -72,7 +75,32 @@ public class ToolSet {
      * @return the speed of how fast we'll mine it. 1/(time in ticks)
      */
     public double getStrVsBlock(BlockState state) {
-        return breakStrengthCache.computeIfAbsent(state.getBlock(), backendCalculation);
+        int id = Block.BLOCK_STATE_REGISTRY.getId(state);
+        double strVsBlock = breakTimes.strVsBlock[id];
+        if (Double.isNaN(strVsBlock)) {
+            strVsBlock = getBestDestructionTime(state);
+            if (Baritone.settings().considerPotionEffects.value) {
+                strVsBlock *= potionAmplifier();
+            }
+            breakTimes.strVsBlock[id] = strVsBlock;
+        }
+        return strVsBlock;
+    }
+
+    /**
+     * The hotbar slot that {@link #getStrVsBlock} assumes will be used to mine this block, not preferring silk touch
+     *
+     * @param state the blockstate to be mined
+     * @return An int containing the index in the tools array that worked best
+     */
+    public int getBestSlot(BlockState state) {
+        int id = Block.BLOCK_STATE_REGISTRY.getId(state);
+        int slot = breakTimes.bestSlot[id];
+        if (slot < 0) {
+            slot = getBestSlot(state.getBlock(), false, true);
+            breakTimes.bestSlot[id] = (byte) slot;
+        }
+        return slot;
     }
 
     /**
@@ -122,14 +150,15 @@ public class ToolSet {
         double highestSpeed = Double.NEGATIVE_INFINITY;
         int lowestCost = Integer.MIN_VALUE;
         boolean bestSilkTouch = false;
+        boolean useSwordToMine = Baritone.settings().useSwordToMine.value;
         BlockState blockState = b.defaultBlockState();
         for (int i = 0; i < 9; i++) {
             ItemStack itemStack = player.getInventory().getItem(i);
-            if (!Baritone.settings().useSwordToMine.value && itemStack.getItem() instanceof SwordItem) {
+            if (!useSwordToMine && itemStack.getItem() instanceof SwordItem) {
                 continue;
             }
 
-            if (Baritone.settings().itemSaver.value && (itemStack.getDamageValue() + Baritone.settings().itemSaverThreshold.value) >= itemStack.getMaxDamage() && itemStack.getMaxDamage() > 1) {
+            if (isSavedByItemSaver(itemStack)) {
                 continue;
             }
             double speed = calculateSpeedVsBlock(itemStack, blockState);
@@ -153,14 +182,45 @@ public class ToolSet {
         return best;
     }
 
+    private boolean isSavedByItemSaver(ItemStack itemStack) {
+        return Baritone.settings().itemSaver.value && (itemStack.getDamageValue() + Baritone.settings().itemSaverThreshold.value) >= itemStack.getMaxDamage() && itemStack.getMaxDamage() > 1;
+    }
+
+    /**
+     * Everything about the hotbar and the player that the break times here depend on. Tool sets with equal fingerprints
+     * give the same {@link #getStrVsBlock} for every block.
+     *
+     * @return The fingerprint, compare with {@link Object#equals}
+     */
+    public List<Object> fingerprint() {
+        List<Object> fingerprint = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            ItemStack itemStack = player.getInventory().getItem(i);
+            fingerprint.add(itemStack.getItem());
+            fingerprint.add(itemStack.getEnchantmentTags());
+            fingerprint.add(isSavedByItemSaver(itemStack));
+        }
+        if (!Baritone.settings().autoTool.value) {
+            fingerprint.add(player.getInventory().selected);
+        }
+        if (Baritone.settings().considerPotionEffects.value) {
+            fingerprint.add(potionAmplifier());
+        }
+        fingerprint.add(Baritone.settings().useSwordToMine.value);
+        fingerprint.add(new ArrayList<>(Baritone.settings().blocksToAvoidBreaking.value)); // copied so that changing the list in place is noticed
+        fingerprint.add(Baritone.settings().avoidBreakingMultiplier.value);
+        return fingerprint;
+    }
+
     /**
      * Calculate how effectively a block can be destroyed
      *
-     * @param b the blockstate to be mined
+     * @param state the blockstate to be mined
      * @return A double containing the destruction ticks with the best tool
      */
-    private double getBestDestructionTime(Block b) {
-        ItemStack stack = player.getInventory().getItem(getBestSlot(b, false, true));
+    private double getBestDestructionTime(BlockState state) {
+        Block b = state.getBlock();
+        ItemStack stack = player.getInventory().getItem(getBestSlot(state));
         return calculateSpeedVsBlock(stack, b.defaultBlockState()) * avoidanceMultiplier(b);
     }
 
@@ -232,4 +292,32 @@ public class ToolSet {
         }
         return speed;
     }
+
+    /**
+     * Break times and best slots by block state id, for tool sets whose {@link ToolSet#fingerprint} matches {@link #key}.
+     * Entries are filled in as they're first asked for, from any thread; racing writers compute the same value.
+     */
+    private static final class BreakTimes {
+
+        private final List<Object> key;
+
+        /**
+         * {@link ToolSet#getStrVsBlock} by block state id, NaN if not yet calculated
+         */
+        private final double[] strVsBlock;
+
+        /**
+         * {@link ToolSet#getBestSlot(BlockState)} by block state id, -1 if not yet calculated
+         */
+        private final byte[] bestSlot;
+
+        private BreakTimes(List<Object> key) {
+            int size = Block.BLOCK_STATE_REGISTRY.size();
+            this.key = key;
+            this.strVsBlock = new double[size];
+            this.bestSlot = new byte[size];
+            Arrays.fill(strVsBlock, Double.NaN);
+            Arrays.fill(bestSlot, (byte) -1);
+        }
+    }
 }
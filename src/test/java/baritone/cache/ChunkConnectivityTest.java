@@ -0,0 +1,90 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import baritone.utils.pathing.PathingBlockType;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ChunkConnectivityTest {
+
+    private static final int HEIGHT = 32;
+
+    private static ChunkConnectivity flat(int chunkX, int floor, boolean wall) {
+        return ChunkConnectivity.compute(chunkX, 0, -64, HEIGHT, 0, (x, y, z) -> y <= floor || (wall && x == 8) ? PathingBlockType.SOLID : PathingBlockType.AIR);
+    }
+
+    private static int entranceOn(ChunkConnectivity chunk, int side) {
+        for (int i = 0; i < chunk.entranceCount(); i++) {
+            if (chunk.side(i) == side) {
+                return i;
+            }
+        }
+        fail("no entrance on side " + side);
+        return -1;
+    }
+
+    @Test
+    public void testFlatChunk() {
+        ChunkConnectivity chunk = flat(0, 4, false);
+        assertEquals(4, chunk.entranceCount());
+        int west = entranceOn(chunk, ChunkConnectivity.WEST);
+        int east = entranceOn(chunk, ChunkConnectivity.EAST);
+        assertEquals(5 - 64, chunk.y(west));
+        assertEquals(0, chunk.x(west));
+        assertEquals(15, chunk.x(east));
+        assertEquals(15 + Math.abs(chunk.z(west) - chunk.z(east)), chunk.steps(west, east), 0);
+        assertEquals(chunk.steps(west, east), chunk.steps(east, west), 0);
+    }
+
+    @Test
+    public void testWallSplitsChunk() {
+        ChunkConnectivity chunk = flat(0, 4, true);
+        assertEquals(6, chunk.entranceCount());
+        int west = entranceOn(chunk, ChunkConnectivity.WEST);
+        int east = entranceOn(chunk, ChunkConnectivity.EAST);
+        assertEquals(Float.POSITIVE_INFINITY, chunk.steps(west, east), 0);
+        for (int i = 0; i < chunk.entranceCount(); i++) {
+            if (chunk.side(i) == ChunkConnectivity.NORTH) {
+                assertTrue((chunk.steps(west, i) == Float.POSITIVE_INFINITY) == (chunk.x(i) > 8));
+            }
+        }
+    }
+
+    @Test
+    public void testConnectsAcrossBorder() {
+        ChunkConnectivity a = flat(0, 4, false);
+        ChunkConnectivity b = flat(1, 4, false);
+        ChunkConnectivity cliff = flat(1, 12, false);
+        int east = entranceOn(a, ChunkConnectivity.EAST);
+        assertTrue(a.connects(east, b, entranceOn(b, ChunkConnectivity.WEST)));
+        assertFalse(a.connects(east, b, entranceOn(b, ChunkConnectivity.NORTH)));
+        assertFalse(a.connects(east, cliff, entranceOn(cliff, ChunkConnectivity.WEST)));
+        assertTrue(cliff.connects(entranceOn(cliff, ChunkConnectivity.WEST), flat(0, 10, false), east));
+    }
+
+    @Test
+    public void testStepsFromPosition() {
+        ChunkConnectivity chunk = flat(0, 4, false);
+        float[] steps = chunk.stepsFrom((x, y, z) -> y <= 4 ? PathingBlockType.SOLID : PathingBlockType.AIR, 3, 5 - 64, 3);
+        int west = entranceOn(chunk, ChunkConnectivity.WEST);
+        assertEquals(3 + Math.abs(chunk.z(west) - 3), steps[west], 0);
+        assertNull(chunk.stepsFrom((x, y, z) -> PathingBlockType.SOLID, 3, 5 - 64, 3));
+    }
+}
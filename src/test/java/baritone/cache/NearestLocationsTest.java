@@ -0,0 +1,76 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import net.minecraft.core.BlockPos;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NearestLocationsTest {
+
+    @Test
+    public void testKeepsOnlyTheNearest() {
+        Random rand = new Random(5021);
+        for (int trial = 0; trial < 500; trial++) {
+            int centerX = rand.nextInt(200) - 100;
+            int centerZ = rand.nextInt(200) - 100;
+            int maximum = 1 + rand.nextInt(20);
+            NearestLocations nearest = new NearestLocations(centerX, centerZ, maximum);
+            List<Long> distances = new ArrayList<>();
+            int offered = rand.nextInt(60);
+            for (int i = 0; i < offered; i++) {
+                int x = rand.nextInt(4000) - 2000;
+                int z = rand.nextInt(4000) - 2000;
+                nearest.offer(BlockPos.asLong(x, rand.nextInt(256), z));
+                distances.add(distSq(x - centerX, z - centerZ));
+            }
+            Collections.sort(distances);
+            long[] sorted = nearest.toSortedArray();
+            assertEquals(Math.min(offered, maximum), sorted.length);
+            for (int i = 0; i < sorted.length; i++) {
+                assertEquals((long) distances.get(i), distSq(BlockPos.getX(sorted[i]) - centerX, BlockPos.getZ(sorted[i]) - centerZ));
+            }
+        }
+    }
+
+    @Test
+    public void testBoundIsTheFurthestKeptOnceFull() {
+        NearestLocations nearest = new NearestLocations(0, 0, 2);
+        nearest.offer(BlockPos.asLong(10, 64, 0));
+        assertFalse(nearest.isFull());
+        assertEquals(Long.MAX_VALUE, nearest.bound());
+        nearest.offer(BlockPos.asLong(0, 64, 3));
+        assertTrue(nearest.isFull());
+        assertEquals(100, nearest.bound());
+        nearest.offer(BlockPos.asLong(5, 64, 0));
+        assertEquals(25, nearest.bound());
+        // an area holding the center is as near as it gets, one off to the side only as near as its closest edge
+        assertEquals(0, nearest.distSq(-16, -16, 15, 15));
+        assertEquals(16 * 16 + 1, nearest.distSq(16, -1, 31, -1));
+    }
+
+    private static long distSq(long dx, long dz) {
+        return dx * dx + dz * dz;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import org.junit.Test;
+
+import java.util.function.LongToDoubleFunction;
+
+import static org.junit.Assert.assertEquals;
+
+public class PackerQueueTest {
+
+    private static final LongToDoubleFunction BY_VALUE = pos -> pos;
+
+    @Test
+    public void testTakesLowestPriorityFirst() throws InterruptedException {
+        PackerQueue<String> queue = new PackerQueue<>();
+        queue.prioritize(BY_VALUE);
+        queue.offer(5, "five", 10);
+        queue.offer(1, "one", 10);
+        queue.offer(3, "three", 10);
+        assertEquals("one", queue.take());
+        assertEquals("three", queue.take());
+        assertEquals("five", queue.take());
+    }
+
+    @Test
+    public void testTiesAreFifo() throws InterruptedException {
+        PackerQueue<String> queue = new PackerQueue<>();
+        queue.prioritize(pos -> 0);
+        queue.offer(7, "first", 10);
+        queue.offer(2, "second", 10);
+        assertEquals("first", queue.take());
+        assertEquals("second", queue.take());
+    }
+
+    @Test
+    public void testCoalescesRequeuedChunks() throws InterruptedException {
+        PackerQueue<String> queue = new PackerQueue<>();
+        queue.prioritize(BY_VALUE);
+        queue.offer(1, "old", 10);
+        queue.offer(1, "new", 10);
+        assertEquals(1, queue.size());
+        assertEquals(1, queue.coalesced());
+        assertEquals("new", queue.take());
+    }
+
+    @Test
+    public void testDropsHighestPriorityWhenFull() throws InterruptedException {
+        PackerQueue<String> queue = new PackerQueue<>();
+        queue.prioritize(BY_VALUE);
+        queue.offer(9, "far", 2);
+        queue.offer(1, "near", 2);
+        queue.offer(4, "middle", 2);
+        assertEquals(2, queue.size());
+        assertEquals(1, queue.dropped());
+        assertEquals("near", queue.take());
+        assertEquals("middle", queue.take());
+    }
+
+    @Test
+    public void testMergesRequeuedChunks() throws InterruptedException {
+        PackerQueue<String> queue = new PackerQueue<>();
+        queue.prioritize(BY_VALUE);
+        queue.offer(1, "a", 10, String::concat);
+        queue.offer(1, "b", 10, String::concat);
+        assertEquals(1, queue.size());
+        assertEquals("ab", queue.take());
+    }
+
+    @Test
+    public void testReprioritizesQueuedChunks() throws InterruptedException {
+        PackerQueue<String> queue = new PackerQueue<>();
+        queue.prioritize(BY_VALUE);
+        queue.offer(1, "near", 10);
+        queue.offer(5, "far", 10);
+        queue.prioritize(pos -> -pos);
+        queue.offer(3, "middle", 10);
+        assertEquals("far", queue.take());
+        assertEquals("middle", queue.take());
+        assertEquals("near", queue.take());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class RegionFileTest {
+
+    private static final int HEADER_SIZE = 4 + 32 * 32 * 8;
+
+    private Path dir;
+    private Path path;
+
+    @Before
+    public void createDirectory() throws IOException {
+        dir = Files.createTempDirectory("baritone-region");
+        path = dir.resolve("r.0.0.bcr");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        Files.deleteIfExists(path);
+        Files.deleteIfExists(dir.resolve("r.0.0.bcr.tmp"));
+        Files.delete(dir);
+    }
+
+    private static byte[] record(int seed) {
+        byte[] record = new byte[100];
+        Arrays.fill(record, (byte) seed);
+        return record;
+    }
+
+    private static void assertSameRecords(byte[][][] expected, byte[][][] actual) {
+        for (int x = 0; x < 32; x++) {
+            for (int z = 0; z < 32; z++) {
+                assertArrayEquals("chunk " + x + "," + z, expected[x][z], actual[x][z]);
+            }
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        byte[][][] records = new byte[32][32][];
+        records[0][0] = record(1);
+        records[5][17] = record(2);
+        records[31][31] = record(3);
+        RegionFile file = new RegionFile(path);
+        assertFalse(file.exists());
+        file.write(records, new boolean[32][32]);
+        assertTrue(file.exists());
+        assertEquals(HEADER_SIZE + 300, Files.size(path));
+        assertSameRecords(records, file.readRecords());
+    }
+
+    @Test
+    public void testAppendsChangedChunksAndRemovesDeletedOnes() throws IOException {
+        byte[][][] records = new byte[32][32][];
+        for (int i = 0; i < 4; i++) {
+            records[i][0] = record(i);
+        }
+        RegionFile file = new RegionFile(path);
+        file.write(records, new boolean[32][32]);
+
+        boolean[][] modified = new boolean[32][32];
+        records[0][0] = record(4);
+        modified[0][0] = true;
+        records[1][0] = null;
+        modified[1][0] = true;
+        file.write(records, modified);
+        // the replaced chunk is appended, nothing is moved around
+        assertEquals(HEADER_SIZE + 500, Files.size(path));
+        assertSameRecords(records, file.readRecords());
+    }
+
+    @Test
+    public void testCompactsOnceMostlyReplaced() throws IOException {
+        byte[][][] records = new byte[32][32][];
+        for (int i = 0; i < 4; i++) {
+            records[i][i] = record(i);
+        }
+        RegionFile file = new RegionFile(path);
+        file.write(records, new boolean[32][32]);
+        boolean[][] modified = new boolean[32][32];
+        modified[0][0] = true;
+        // 400 live bytes, so it's rewritten once there's more than 400 bytes of replaced chunks
+        for (int i = 1; i <= 4; i++) {
+            records[0][0] = record(10 + i);
+            file.write(records, modified);
+            assertEquals(HEADER_SIZE + 400 + 100 * i, Files.size(path));
+        }
+        records[0][0] = record(20);
+        file.write(records, modified);
+        assertEquals(HEADER_SIZE + 400, Files.size(path));
+        assertFalse(Files.exists(dir.resolve("r.0.0.bcr.tmp")));
+        assertSameRecords(records, file.readRecords());
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc;
+
+import baritone.api.event.events.BlockChangeEvent;
+import baritone.api.utils.BetterBlockPos;
+import baritone.api.utils.Pair;
+import baritone.pathing.movement.Moves;
+import baritone.utils.pathing.MutableMoveResult;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.state.BlockState;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.*;
+
+public class MovementCostCacheTest {
+
+    private static final List<Object> KEY = Collections.singletonList("key");
+
+    private static void store(MovementCostCache cache, int x, int y, int z) {
+        MutableMoveResult res = new MutableMoveResult();
+        res.cost = 5;
+        res.x = x;
+        res.y = y - 7;
+        res.z = z + 1;
+        cache.get(x, y, z, BetterBlockPos.longHash(x, y, z)).store(Moves.DESCEND_SOUTH, res);
+    }
+
+    private static boolean isCached(MovementCostCache cache, int x, int y, int z) {
+        MutableMoveResult res = new MutableMoveResult();
+        boolean cached = cache.get(x, y, z, BetterBlockPos.longHash(x, y, z)).apply(Moves.DESCEND_SOUTH, x, y, z, res);
+        if (cached) {
+            assertEquals(5, res.cost, 0);
+            assertEquals(y - 7, res.y);
+            assertEquals(z + 1, res.z);
+        }
+        return cached;
+    }
+
+    private static void change(MovementCostCache cache, int x, int y, int z) {
+        change(cache, x, y, z, pos -> false);
+    }
+
+    private static void change(MovementCostCache cache, int x, int y, int z, Predicate<BlockPos> isFalling) {
+        List<Pair<BlockPos, BlockState>> blocks = Collections.singletonList(new Pair<>(new BlockPos(x, y, z), null));
+        cache.blocksChanged(new BlockChangeEvent(new ChunkPos(x >> 4, z >> 4), blocks), isFalling);
+    }
+
+    @Test
+    public void testBlockChangeInvalidatesNearby() {
+        MovementCostCache cache = new MovementCostCache();
+        cache.begin(KEY, 1000);
+        store(cache, 0, 64, 0);
+        store(cache, 100, 64, 100);
+        store(cache, 1, 90, 0); // could fall onto the changed block
+        store(cache, 4, 90, 0); // too far to the side to fall onto it
+        store(cache, 4, 60, 0);
+        change(cache, 0, 62, 0);
+        assertTrue(isCached(cache, 0, 64, 0)); // not applied until the next search begins
+        cache.end();
+        cache.begin(KEY, 1000);
+        assertFalse(isCached(cache, 0, 64, 0));
+        assertFalse(isCached(cache, 1, 90, 0));
+        assertFalse(isCached(cache, 4, 60, 0));
+        assertTrue(isCached(cache, 4, 90, 0));
+        assertTrue(isCached(cache, 100, 64, 100));
+    }
+
+    @Test
+    public void testContextChangeClears() {
+        MovementCostCache cache = new MovementCostCache();
+        cache.begin(KEY, 1000);
+        store(cache, 0, 64, 0);
+        cache.end();
+        cache.begin(KEY, 1000);
+        assertTrue(isCached(cache, 0, 64, 0));
+        cache.end();
+        cache.begin(Collections.singletonList("other"), 1000);
+        assertFalse(isCached(cache, 0, 64, 0));
+        assertEquals(1, cache.size());
+        cache.end();
+        cache.begin(Collections.singletonList("other"), 0);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testStopsStoringWhenFull() {
+        MovementCostCache cache = new MovementCostCache();
+        cache.begin(KEY, 2);
+        store(cache, 0, 64, 0);
+        store(cache, 1, 64, 0);
+        store(cache, 2, 64, 0);
+        assertEquals(2, cache.size());
+        assertTrue(isCached(cache, 0, 64, 0));
+        assertTrue(isCached(cache, 1, 64, 0));
+        assertFalse(isCached(cache, 2, 64, 0));
+        // a full cache starts over on the next search
+        cache.end();
+        cache.begin(KEY, 2);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testFallingStackInvalidatesBelow() {
+        MovementCostCache cache = new MovementCostCache();
+        cache.begin(KEY, 1000);
+        store(cache, 1, 56, 0); // breaks the block under the sand, which counts the whole stack
+        store(cache, 1, 50, 0);
+        // sand from 60 to 69, and the top of it changes
+        change(cache, 0, 70, 0, pos -> pos.getX() == 0 && pos.getZ() == 0 && pos.getY() >= 60 && pos.getY() < 70);
+        cache.end();
+        cache.begin(KEY, 1000);
+        assertFalse(isCached(cache, 1, 56, 0));
+        assertTrue(isCached(cache, 1, 50, 0));
+    }
+
+    @Test
+    public void testBeginWaitsForTheLastSearch() throws InterruptedException {
+        MovementCostCache cache = new MovementCostCache();
+        cache.begin(KEY, 1000);
+        Thread next = new Thread(() -> {
+            cache.begin(KEY, 1000);
+            cache.end();
+        });
+        next.start();
+        next.join(100);
+        assertTrue(next.isAlive());
+        cache.end();
+        next.join();
+    }
+}
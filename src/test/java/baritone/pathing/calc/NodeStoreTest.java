@@ -0,0 +1,121 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc;
+
+import baritone.api.pathing.goals.Goal;
+import baritone.api.pathing.movement.ActionCosts;
+import baritone.api.utils.BetterBlockPos;
+import baritone.pathing.calc.openset.IndexedBinaryHeapOpenSet;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NodeStoreTest {
+
+    // can't use an existing goal because they use Baritone.settings()
+    private static final Goal GOAL = new Goal() {
+        @Override
+        public boolean isInGoal(int x, int y, int z) {
+            return false;
+        }
+
+        @Override
+        public double heuristic(int x, int y, int z) {
+            return x + y + z;
+        }
+    };
+
+    @Test
+    public void testLookupAcrossRehash() {
+        NodeStore store = new NodeStore(GOAL, 16, 0.75f);
+        int[][] positions = new int[5000][];
+        Random random = new Random(5021);
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = new int[]{random.nextInt(2000) - 1000, random.nextInt(384) - 64, random.nextInt(2000) - 1000};
+        }
+        int[] indices = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            int[] pos = positions[i];
+            indices[i] = store.getNodeAtPosition(pos[0], pos[1], pos[2], BetterBlockPos.longHash(pos[0], pos[1], pos[2]));
+            assertEquals(pos[0], store.x(indices[i]));
+            assertEquals(pos[1], store.y(indices[i]));
+            assertEquals(pos[2], store.z(indices[i]));
+        }
+        for (int i = 0; i < positions.length; i++) {
+            int[] pos = positions[i];
+            int node = store.getNodeAtPosition(pos[0], pos[1], pos[2], BetterBlockPos.longHash(pos[0], pos[1], pos[2]));
+            assertEquals(indices[i], node);
+            assertEquals(pos[0] + pos[1] + pos[2], store.estimatedCostToGoal(node), 0);
+            assertEquals(ActionCosts.COST_INF, store.cost(node), 0);
+            assertEquals(NodeStore.NO_NODE, store.previous(node));
+            assertFalse(store.isOpen(node));
+        }
+        assertEquals(Arrays.stream(indices).distinct().count(), store.size());
+    }
+
+    @Test
+    public void testHeapOrderAndDecreaseKey() {
+        NodeStore store = new NodeStore(GOAL, 16, 0.75f);
+        IndexedBinaryHeapOpenSet openSet = new IndexedBinaryHeapOpenSet(store, 4);
+        Random random = new Random(42);
+        int count = 2000;
+        for (int i = 0; i < count; i++) {
+            int node = store.getNodeAtPosition(i, 0, 0, BetterBlockPos.longHash(i, 0, 0));
+            store.setCombinedCost(node, random.nextDouble());
+            openSet.insert(node);
+            assertTrue(store.isOpen(node));
+        }
+        for (int node = 0; node < count; node += 3) {
+            store.setCombinedCost(node, store.combinedCost(node) * random.nextDouble());
+            openSet.update(node);
+        }
+        double last = Double.NEGATIVE_INFINITY;
+        int removed = 0;
+        while (!openSet.isEmpty()) {
+            int node = openSet.removeLowest();
+            assertFalse(store.isOpen(node));
+            assertTrue(store.combinedCost(node) >= last);
+            last = store.combinedCost(node);
+            removed++;
+        }
+        assertEquals(count, removed);
+    }
+
+    @Test
+    public void testPublishedArraysKeepTheirLengthAcrossGrowth() {
+        NodeStore store = new NodeStore(GOAL, 16, 0.75f);
+        int first = store.getNodeAtPosition(0, 0, 0, BetterBlockPos.longHash(0, 0, 0));
+        NodeStore.Nodes before = store.published();
+        for (int i = 1; i < 100; i++) {
+            int node = store.getNodeAtPosition(i, 0, 0, BetterBlockPos.longHash(i, 0, 0));
+            store.setPrevious(node, node - 1);
+        }
+        NodeStore.Nodes after = store.published();
+        // what was published before the growth is still a consistent, if out of date, view
+        assertTrue(before.contains(first));
+        assertFalse(before.contains(99));
+        assertEquals(0, before.x(first));
+        assertTrue(after.contains(99));
+        assertEquals(99, after.x(99));
+        assertEquals(98, after.previous(99));
+        assertFalse(after.contains(NodeStore.NO_NODE));
+    }
+}
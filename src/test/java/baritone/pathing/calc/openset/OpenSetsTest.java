@@ -78,31 +78,37 @@ public class OpenSetsTest {
         System.out.println("Testing size " + size);
         // Include LinkedListOpenSet even though it's not performant because I absolutely trust that it behaves properly
         // I'm really testing the heap implementations against it as the ground truth
-        IOpenSet[] test = new IOpenSet[]{new BinaryHeapOpenSet(), new LinkedListOpenSet()};
+        IOpenSet[] test = new IOpenSet[]{new BinaryHeapOpenSet(), new QuaternaryHeapOpenSet(), new BucketOpenSet(), new LinkedListOpenSet()};
         for (IOpenSet set : test) {
             assertTrue(set.isEmpty());
         }
 
         // generate the pathnodes that we'll be testing the sets on
-        PathNode[] toInsert = new PathNode[size];
+        // every set gets its own copy, since the heaps keep track of their position in each node
+        // and each node gets its own position, since PathNode equality is by position
+        PathNode[][] nodes = new PathNode[test.length][size];
         for (int i = 0; i < size; i++) {
-            // can't use an existing goal
-            // because they use Baritone.settings()
-            // and we can't do that because Minecraft itself isn't initted
-            PathNode pn = new PathNode(0, 0, 0, new Goal() {
-                @Override
-                public boolean isInGoal(int x, int y, int z) {
-                    return false;
-                }
+            double combinedCost = Math.random();
+            for (int j = 0; j < test.length; j++) {
+                // can't use an existing goal
+                // because they use Baritone.settings()
+                // and we can't do that because Minecraft itself isn't initted
+                PathNode pn = new PathNode(i, 0, 0, new Goal() {
+                    @Override
+                    public boolean isInGoal(int x, int y, int z) {
+                        return false;
+                    }
 
-                @Override
-                public double heuristic(int x, int y, int z) {
-                    return 0;
-                }
-            });
-            pn.combinedCost = Math.random();
-            toInsert[i] = pn;
+                    @Override
+                    public double heuristic(int x, int y, int z) {
+                        return 0;
+                    }
+                });
+                pn.combinedCost = combinedCost;
+                nodes[j][i] = pn;
+            }
         }
+        PathNode[] toInsert = nodes[0];
 
         // create a list of what the first removals should be
         ArrayList<PathNode> copy = new ArrayList<>(Arrays.asList(toInsert));
@@ -115,10 +121,12 @@ public class OpenSetsTest {
         }
 
         System.out.println("Insertion");
-        for (IOpenSet set : test) {
+        for (int j = 0; j < test.length; j++) {
+            IOpenSet set = test[j];
             long before = System.nanoTime() / 1000000L;
             for (int i = 0; i < size; i++)
-                set.insert(toInsert[i]);
+                set.insert(nodes[j][i]);
+            assertEquals(size, set.size());
             System.out.println(set.getClass() + " " + (System.nanoTime() / 1000000L - before));
             //all three take either 0 or 1ms to insert up to 10,000 nodes
             //linkedlist takes 0ms most often (because there's no array resizing or allocation there, just pointer shuffling)
@@ -142,13 +150,14 @@ public class OpenSetsTest {
             if (lowestQuarter.contains(toInsert[i])) { // these were already removed and can't be updated to test
                 continue;
             }
-            toInsert[i].combinedCost *= Math.random();
             // multiplying it by a random number between 0 and 1 is guaranteed to decrease it
-            for (IOpenSet set : test) {
+            double decreased = toInsert[i].combinedCost * Math.random();
+            for (int j = 0; j < test.length; j++) {
                 // it's difficult to benchmark these individually because if you modify all at once then update then
                 // it breaks the internal consistency of the heaps.
                 // you have to call update every time you modify a node.
-                set.update(toInsert[i]);
+                nodes[j][i].combinedCost = decreased;
+                test[j].update(nodes[j][i]);
             }
             cnt++;
         }
@@ -167,4 +176,121 @@ public class OpenSetsTest {
             assertTrue(set.isEmpty());
         }
     }
+
+    @Test
+    public void testCostsSpanningManyBuckets() {
+        // far more buckets than it starts with, and for the larger sizes more than it's allowed, so it has to grow the
+        // bucket array and then halve the resolution
+        Random rand = new Random(size);
+        Mirror mirror = new Mirror(size);
+        for (int i = 0; i < size; i++) {
+            mirror.insert(i, rand.nextDouble() * 1000000);
+        }
+        mirror.decreaseSome(rand, size / 2, 1000000);
+        mirror.removeAll();
+    }
+
+    @Test
+    public void testLargeJumpsBetweenInserts() {
+        Random rand = new Random(size);
+        Mirror mirror = new Mirror(size);
+        double cost = 0;
+        for (int i = 0; i < size; i++) {
+            cost += rand.nextInt(4) == 0 ? 5000 + rand.nextDouble() * 50000 : rand.nextDouble();
+            mirror.insert(i, cost);
+            if (rand.nextBoolean()) {
+                mirror.removeLowest();
+            }
+        }
+        mirror.removeAll();
+    }
+
+    @Test
+    public void testDecreaseKeyAcrossWrap() {
+        // like a search, the frontier creeps upwards as the lowest nodes are removed, so the keys go round the circular
+        // buckets, starting just short of the first time they wrap (4096 buckets at 4 per tick of cost)
+        Random rand = new Random(size);
+        Mirror mirror = new Mirror(size);
+        double frontier = 1000;
+        for (int i = 0; i < size; i++) {
+            mirror.insert(i, frontier + rand.nextDouble() * 200);
+            frontier += 0.5 + rand.nextDouble() * 5;
+            if (i % 2 == 1) {
+                mirror.removeLowest();
+            }
+            mirror.decreaseSome(rand, 1, 300);
+        }
+        mirror.removeAll();
+    }
+
+    /**
+     * Does the same inserts, decrease-keys and removals on a {@link BucketOpenSet} and a {@link BinaryHeapOpenSet},
+     * checking that they remove the same costs in the same order
+     */
+    private static final class Mirror {
+
+        private final IOpenSet[] sets = {new BinaryHeapOpenSet(), new BucketOpenSet()};
+        private final PathNode[][] nodes;
+
+        Mirror(int size) {
+            nodes = new PathNode[sets.length][size];
+        }
+
+        void insert(int i, double combinedCost) {
+            for (int j = 0; j < sets.length; j++) {
+                PathNode pn = new PathNode(i, 0, 0, ZERO);
+                pn.combinedCost = combinedCost;
+                nodes[j][i] = pn;
+                sets[j].insert(pn);
+            }
+        }
+
+        /**
+         * Lowers the cost of up to this many of the nodes still in the sets, by up to the given amount
+         */
+        void decreaseSome(Random rand, int count, double maxDecrease) {
+            for (int k = 0; k < count; k++) {
+                int i = rand.nextInt(nodes[0].length);
+                if (nodes[0][i] == null || !nodes[0][i].isOpen()) {
+                    continue;
+                }
+                double decreased = nodes[0][i].combinedCost - rand.nextDouble() * Math.min(maxDecrease, nodes[0][i].combinedCost);
+                for (int j = 0; j < sets.length; j++) {
+                    assertTrue(nodes[j][i].isOpen());
+                    nodes[j][i].combinedCost = decreased;
+                    sets[j].update(nodes[j][i]);
+                }
+            }
+        }
+
+        void removeLowest() {
+            double expected = sets[0].removeLowest().combinedCost;
+            for (int j = 1; j < sets.length; j++) {
+                assertEquals(expected, sets[j].removeLowest().combinedCost, 0);
+                assertEquals(sets[0].size(), sets[j].size());
+            }
+        }
+
+        void removeAll() {
+            while (!sets[0].isEmpty()) {
+                removeLowest();
+            }
+            for (IOpenSet set : sets) {
+                assertTrue(set.isEmpty());
+            }
+        }
+    }
+
+    // can't use an existing goal because they use Baritone.settings()
+    private static final Goal ZERO = new Goal() {
+        @Override
+        public boolean isInGoal(int x, int y, int z) {
+            return false;
+        }
+
+        @Override
+        public double heuristic(int x, int y, int z) {
+            return 0;
+        }
+    };
 }
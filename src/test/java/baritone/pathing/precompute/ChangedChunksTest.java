@@ -0,0 +1,47 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.precompute;
+
+import baritone.api.event.events.BlockChangeEvent;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.ChunkPos;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ChangedChunksTest {
+
+    @Test
+    public void testSingleBlockChangeInvalidatesItsColumn() {
+        ChangedChunks changed = new ChangedChunks();
+        // the event a single block update fires, in a chunk with negative coordinates
+        changed.blocksChanged(new BlockChangeEvent(new BlockPos(-1, 64, -17), null));
+        LongOpenHashSet taken = changed.take();
+        assertEquals(1, taken.size());
+        assertTrue(taken.contains(ChunkPos.asLong(-1, -2)));
+    }
+
+    @Test
+    public void testTakeForgetsWhatItReturned() {
+        ChangedChunks changed = new ChangedChunks();
+        changed.chunkChanged(3, 4);
+        assertTrue(changed.take().contains(ChunkPos.asLong(3, 4)));
+        assertTrue(changed.take().isEmpty());
+    }
+}
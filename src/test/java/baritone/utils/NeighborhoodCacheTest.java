@@ -0,0 +1,57 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NeighborhoodCacheTest {
+
+    @Test
+    public void testHoldsAnyThreeByThree() {
+        for (int centerX = -5; centerX <= 5; centerX++) {
+            for (int centerZ = -5; centerZ <= 5; centerZ++) {
+                NeighborhoodCache<String> cache = new NeighborhoodCache<>();
+                for (int x = centerX - 1; x <= centerX + 1; x++) {
+                    for (int z = centerZ - 1; z <= centerZ + 1; z++) {
+                        cache.put(x, z, x + "," + z);
+                    }
+                }
+                for (int x = centerX - 1; x <= centerX + 1; x++) {
+                    for (int z = centerZ - 1; z <= centerZ + 1; z++) {
+                        assertEquals(x + "," + z, cache.get(x, z));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEvictsOnlyWhatCollides() {
+        NeighborhoodCache<String> cache = new NeighborhoodCache<>();
+        assertNull(cache.get(0, 0));
+        cache.put(0, 0, "a");
+        cache.put(1, 0, "b");
+        cache.put(4, 0, "c"); // same slot as 0,0
+        assertNull(cache.get(0, 0));
+        assertEquals("b", cache.get(1, 0));
+        assertEquals("c", cache.get(4, 0));
+        assertNull(cache.get(-4, 0));
+    }
+}